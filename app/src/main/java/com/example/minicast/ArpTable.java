@@ -0,0 +1,42 @@
+package com.example.minicast;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.net.InetAddress;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Çekirdek komşu tablosu (/proc/net/arp): yakın zamanda konuşulmuş, MAC’i çözülmüş host’lar.
+ * Android 10+ uygulamalara bu dosyayı kapatır; o durumda boş küme döner.
+ */
+final class ArpTable {
+
+    private static final String TAG = "MiniCast-IPScan";
+    private static final String PATH = "/proc/net/arp";
+    private static final int ATF_COM = 0x2; // girdi tamamlanmış
+
+    private ArpTable() {}
+
+    static Set<InetAddress> liveHosts() {
+        Set<InetAddress> out = new LinkedHashSet<>();
+        // Biçim: IP address  HW type  Flags  HW address  Mask  Device
+        try (BufferedReader br = new BufferedReader(new FileReader(PATH))) {
+            br.readLine(); // başlık
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] f = line.trim().split("\\s+");
+                if (f.length < 4) continue;
+                int flags;
+                try { flags = Integer.decode(f[2]); } catch (NumberFormatException e) { continue; }
+                if ((flags & ATF_COM) == 0 || "00:00:00:00:00:00".equals(f[3])) continue;
+                try { out.add(InetAddress.getByName(f[0])); } catch (Exception ignore) {}
+            }
+        } catch (Exception e) {
+            Log.d(TAG, "arp table unavailable: " + e.getMessage());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.minicast;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.minicast.devices.PlaybackClock;
+import com.google.android.gms.cast.MediaSeekOptions;
+import com.google.android.gms.cast.MediaStatus;
+import com.google.android.gms.cast.framework.media.RemoteMediaClient;
+
+/**
+ * Cast alıcısının oynatma durumunun yerel aynası; konum PlaybackClock ile yerelde yürür.
+ * - Alıcının kendiliğinden gönderdiği MEDIA_STATUS mesajları (oynat/duraklat, seek, tampon) saati çapalar
+ * - Oynarken yalnızca RESYNC_MS’te bir requestStatus() ile kayma düzeltilir; ProgressListener kullanılmaz
+ * - Tamponlanırken saat durur (PLAYER_STATE_BUFFERING oynuyor sayılmaz)
+ * Ana thread’de kullanılır; VideoCastManager.getPlaybackMirror() oturuma bağlı örnek verir.
+ */
+public class CastPlaybackMirror {
+
+    private static final long RESYNC_MS = 15_000L;
+
+    private final RemoteMediaClient client;
+    private final PlaybackClock clock = new PlaybackClock();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private boolean resyncPosted = false; // saatin durumundan bağımsız: play() saati önden oynatır
+    private final Runnable resync = new Runnable() {
+        @Override public void run() {
+            resyncPosted = false;
+            client.requestStatus();
+            if (clock.isPlaying()) armResync();
+        }
+    };
+    private final RemoteMediaClient.Callback callback = new RemoteMediaClient.Callback() {
+        @Override public void onStatusUpdated() { apply(); }
+        @Override public void onMetadataUpdated() { apply(); }
+    };
+
+    CastPlaybackMirror(RemoteMediaClient client) {
+        this.client = client;
+        client.registerCallback(callback);
+        apply();
+    }
+
+    /** Oturum bitince VideoCastManager çağırır. */
+    void release() {
+        client.unregisterCallback(callback);
+        cancelResync();
+        clock.reset();
+    }
+
+    public PlaybackClock getClock() { return clock; }
+
+    /** Saati hemen hedefe alır; alıcının seek sonrası durum mesajı yeniden çapalar. */
+    public void seek(long positionMs) {
+        clock.jump(positionMs);
+        client.seek(new MediaSeekOptions.Builder()
+                .setPosition(positionMs)
+                .setResumeState(MediaSeekOptions.RESUME_STATE_UNCHANGED)
+                .build());
+    }
+
+    public void play() {
+        clock.setPlaying(true);
+        client.play();
+    }
+
+    public void pause() {
+        clock.setPlaying(false);
+        client.pause();
+    }
+
+    private void apply() {
+        MediaStatus status = client.getMediaStatus();
+        if (status == null) {
+            cancelResync();
+            clock.reset();
+            return;
+        }
+        boolean playing = status.getPlayerState() == MediaStatus.PLAYER_STATE_PLAYING;
+        double rate = status.getPlaybackRate() > 0 ? status.getPlaybackRate() : 1.0;
+        long duration = client.getStreamDuration();
+        clock.sync(status.getStreamPosition(), duration > 0 ? duration : -1, rate, playing,
+                System.nanoTime(), false);
+        if (playing) armResync();
+        else cancelResync();
+    }
+
+    /** Zaten bekleyen bir resync varsa dokunmaz; oynarken tek döngü çalışır. */
+    private void armResync() {
+        if (resyncPosted) return;
+        resyncPosted = true;
+        main.postDelayed(resync, RESYNC_MS);
+    }
+
+    private void cancelResync() {
+        main.removeCallbacks(resync);
+        resyncPosted = false;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.minicast;
+
+import com.example.minicast.devices.MediaVariant;
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaLoadRequestData;
+import com.google.android.gms.cast.MediaMetadata;
+import com.google.android.gms.cast.MediaQueueData;
+import com.google.android.gms.cast.MediaQueueItem;
+import com.google.android.gms.cast.MediaStatus;
+import com.google.android.gms.cast.framework.media.RemoteMediaClient;
+import com.google.android.gms.common.api.PendingResult;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cast oturumunda kuyruklu (boşluksuz) oynatma; RemoteMediaClient’ın queue API’si üzerine.
+ * - Her öğe preloadTime ile gider: alıcı, çalan öğenin bitmesine bu kadar kala sıradakini tamponlar
+ * - Ekleme / taşıma / silme alıcıdaki kuyrukta yapılır; kuyruk yeniden yüklenmez, çalan öğe kesilmez
+ * - İşlemler CompletableFuture döner (DlnaController ile aynı biçim); hata IOException olarak gelir
+ * Öğe kimlikleri (itemId) alıcı tarafından atanır; itemIds() ile okunur.
+ */
+public class CastQueue {
+
+    /** Sıradaki öğenin tamponlanmaya başlayacağı süre (çalan öğenin bitişine kalan saniye). */
+    public static final double DEFAULT_PRELOAD_SEC = 20;
+
+    public interface Listener {
+        /** Ana thread’de; kuyruk, çalan ya da önceden yüklenen öğe değişince. */
+        void onQueueUpdated(int[] itemIds, int currentItemId, int preloadedItemId);
+    }
+
+    private final RemoteMediaClient client;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final RemoteMediaClient.Callback callback = new RemoteMediaClient.Callback() {
+        @Override public void onQueueStatusUpdated() { fireUpdated(); }
+        @Override public void onPreloadStatusUpdated() { fireUpdated(); }
+    };
+
+    CastQueue(RemoteMediaClient client) {
+        this.client = client;
+        client.registerCallback(callback);
+    }
+
+    /** Oturum bitince VideoCastManager çağırır. */
+    void release() {
+        client.unregisterCallback(callback);
+        listeners.clear();
+    }
+
+    public void addListener(Listener l) { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    /** Varsayılan preload’lı, otomatik oynayan kuyruk öğesi. */
+    public static MediaQueueItem item(String url, String mimeType, String title) {
+        return item(url, mimeType, title, null);
+    }
+
+    /** customData MediaInfo’ya eklenir (örn. özel alıcı için istek başlıkları); null olabilir. */
+    public static MediaQueueItem item(String url, String mimeType, String title, JSONObject customData) {
+        MediaMetadata meta = new MediaMetadata(MediaMetadata.MEDIA_TYPE_MOVIE);
+        if (title != null) meta.putString(MediaMetadata.KEY_TITLE, title);
+        MediaInfo.Builder builder = new MediaInfo.Builder(url)
+                .setStreamType(MediaInfo.STREAM_TYPE_BUFFERED)
+                .setContentType(mimeType)
+                .setMetadata(meta);
+        if (customData != null) builder.setCustomData(customData);
+        MediaInfo info = builder.build();
+        return new MediaQueueItem.Builder(info)
+                .setAutoplay(true)
+                .setPreloadTime(DEFAULT_PRELOAD_SEC)
+                .build();
+    }
+
+    public static MediaQueueItem item(MediaVariant variant, String title) {
+        return item(variant.getUrl(), variant.getMimeType(), title);
+    }
+
+    /** Kuyruğu baştan yükler (tek seferlik); sonraki değişiklikler için insert/move/remove. */
+    public CompletableFuture<Void> load(List<MediaQueueItem> items, int startIndex, long startPositionMs) {
+        MediaQueueData queue = new MediaQueueData.Builder()
+                .setItems(withPreload(items))
+                .setStartIndex(startIndex)
+                .setRepeatMode(MediaStatus.REPEAT_MODE_REPEAT_OFF)
+                .build();
+        MediaLoadRequestData request = new MediaLoadRequestData.Builder()
+                .setQueueData(queue)
+                .setAutoplay(true)
+                .setCurrentTime(startPositionMs)
+                .build();
+        return toFuture(client.load(request));
+    }
+
+    /** Kuyruğun sonuna ekler. */
+    public CompletableFuture<Void> append(List<MediaQueueItem> items) {
+        return insertBefore(MediaQueueItem.INVALID_ITEM_ID, items);
+    }
+
+    /** beforeItemId’nin önüne ekler; INVALID_ITEM_ID ise sona. */
+    public CompletableFuture<Void> insertBefore(int beforeItemId, List<MediaQueueItem> items) {
+        List<MediaQueueItem> list = withPreload(items);
+        return toFuture(client.queueInsertItems(list.toArray(new MediaQueueItem[0]), beforeItemId, null));
+    }
+
+    /** Çalan öğenin hemen arkasına ekler (preload sırası da ona geçer). */
+    public CompletableFuture<Void> playNext(MediaQueueItem item) {
+        List<MediaQueueItem> one = new ArrayList<>(1);
+        one.add(item);
+        return insertBefore(itemAfterCurrent(), one);
+    }
+
+    /** Öğeyi yeni sırasına taşır. */
+    public CompletableFuture<Void> move(int itemId, int newIndex) {
+        return toFuture(client.queueMoveItemToNewIndex(itemId, newIndex, null));
+    }
+
+    /** Birden çok öğeyi verilen sırayla beforeItemId’nin önüne taşır; INVALID_ITEM_ID ise sona. */
+    public CompletableFuture<Void> reorder(int[] itemIds, int beforeItemId) {
+        return toFuture(client.queueReorderItems(itemIds, beforeItemId, null));
+    }
+
+    public CompletableFuture<Void> remove(int itemId) {
+        return toFuture(client.queueRemoveItem(itemId, null));
+    }
+
+    public CompletableFuture<Void> jumpTo(int itemId) {
+        return toFuture(client.queueJumpToItem(itemId, null));
+    }
+
+    public CompletableFuture<Void> next() { return toFuture(client.queueNext(null)); }
+
+    public CompletableFuture<Void> previous() { return toFuture(client.queuePrev(null)); }
+
+    /** Alıcıdaki kuyruk sırası (itemId’ler). */
+    public int[] itemIds() {
+        return client.getMediaQueue() != null ? client.getMediaQueue().getItemIds() : new int[0];
+    }
+
+    public int getCurrentItemId() {
+        MediaStatus s = client.getMediaStatus();
+        return s != null ? s.getCurrentItemId() : MediaQueueItem.INVALID_ITEM_ID;
+    }
+
+    /** Alıcının şu an tamponladığı sıradaki öğe; yoksa INVALID_ITEM_ID. */
+    public int getPreloadedItemId() {
+        MediaStatus s = client.getMediaStatus();
+        return s != null ? s.getPreloadedItemId() : MediaQueueItem.INVALID_ITEM_ID;
+    }
+
+    private int itemAfterCurrent() {
+        int[] ids = itemIds();
+        int current = getCurrentItemId();
+        for (int i = 0; i < ids.length - 1; i++) {
+            if (ids[i] == current) return ids[i + 1];
+        }
+        return MediaQueueItem.INVALID_ITEM_ID;
+    }
+
+    /** preloadTime’ı olmayan öğeye varsayılanı verir; yoksa alıcı öğe geçişinde soğuk yükler. */
+    private static List<MediaQueueItem> withPreload(List<MediaQueueItem> items) {
+        List<MediaQueueItem> out = new ArrayList<>(items.size());
+        for (MediaQueueItem it : items) {
+            out.add(it.getPreloadTime() > 0 ? it
+                    : new MediaQueueItem.Builder(it).setPreloadTime(DEFAULT_PRELOAD_SEC).build());
+        }
+        return out;
+    }
+
+    private void fireUpdated() {
+        int[] ids = itemIds();
+        int current = getCurrentItemId();
+        int preloaded = getPreloadedItemId();
+        for (Listener l : listeners) l.onQueueUpdated(ids, current, preloaded);
+    }
+
+    private static CompletableFuture<Void> toFuture(PendingResult<RemoteMediaClient.MediaChannelResult> pending) {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        if (pending == null) {
+            f.completeExceptionally(new IOException("no media session"));
+            return f;
+        }
+        pending.setResultCallback(r -> {
+            if (r.getStatus().isSuccess()) {
+                f.complete(null);
+            } else {
+                f.completeExceptionally(new IOException("cast queue request failed: "
+                        + r.getStatus().getStatusCode() + " " + r.getStatus().getStatusMessage()));
+            }
+        });
+        return f;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.minicast;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Selector tabanlı, non-blocking TCP connect taraması.
+ * - Tek thread üzerinden aynı anda çok sayıda connect (maxInFlight ile sınırlı)
+ * - Connect timeout RttEstimator’dan gelir; ölçülen RTT’ler ona geri beslenir
+ * - Her hedefin sonucu (OPEN / REFUSED / TIMEOUT) Callback ile bildirilir, soket hemen kapatılır
+ */
+final class ConnectSweep {
+
+    /** OPEN: port açık, REFUSED: RST geldi (host ayakta), TIMEOUT/UNREACHABLE: host yanıt vermedi. */
+    enum Outcome { OPEN, REFUSED, TIMEOUT, UNREACHABLE }
+
+    interface Callback {
+        /** Selector thread’inden çağrılır; burada bloklamayın. */
+        void onResult(InetSocketAddress target, Outcome outcome);
+    }
+
+    private static final class Pending {
+        final InetSocketAddress target;
+        final long startNanos;
+        final long deadlineNanos;
+
+        Pending(InetSocketAddress target, long startNanos, long deadlineNanos) {
+            this.target = target;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final Iterator<InetSocketAddress> targets;
+    private final int maxInFlight;
+    private final RttEstimator rtt;
+    private final Callback callback;
+    private volatile boolean cancelled = false;
+
+    ConnectSweep(List<InetSocketAddress> targets, int maxInFlight, RttEstimator rtt, Callback callback) {
+        this.targets = targets.iterator();
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.rtt = rtt;
+        this.callback = callback;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /** Tüm hedefler bitene (veya cancel edilene) kadar çağıran thread’de çalışır. */
+    void run() throws IOException {
+        try (Selector selector = Selector.open()) {
+            int inFlight = 0;
+            while (!cancelled) {
+                // Pencereyi doldur
+                while (inFlight < maxInFlight && targets.hasNext()) {
+                    if (open(selector, targets.next())) inFlight++;
+                }
+                if (inFlight == 0) break;
+
+                selector.select(Math.max(1, nextDeadlineMs(selector)));
+                long now = System.nanoTime();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Pending p = (Pending) key.attachment();
+                    Outcome outcome;
+                    try {
+                        if (!((SocketChannel) key.channel()).finishConnect()) continue; // hâlâ bekliyor
+                        outcome = Outcome.OPEN;
+                    } catch (NoRouteToHostException e) {
+                        // ARP çözülemedi: adreste kimse yok
+                        outcome = Outcome.UNREACHABLE;
+                    } catch (IOException refused) {
+                        // RST: port kapalı ama host ayakta
+                        outcome = Outcome.REFUSED;
+                    }
+                    close(key);
+                    inFlight--;
+                    if (outcome != Outcome.UNREACHABLE) rtt.sample(now - p.startNanos);
+                    callback.onResult(p.target, outcome);
+                }
+
+                // Süresi dolanları kapat
+                for (SelectionKey key : selector.keys()) {
+                    if (!key.isValid()) continue;
+                    Pending p = (Pending) key.attachment();
+                    if (now >= p.deadlineNanos) {
+                        close(key);
+                        inFlight--;
+                        callback.onResult(p.target, Outcome.TIMEOUT);
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) close(key);
+        }
+    }
+
+    private boolean open(Selector selector, InetSocketAddress target) {
+        SocketChannel ch = null;
+        try {
+            ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            if (ch.connect(target)) {
+                // Yerel/loopback hedeflerde connect anında tamamlanabilir
+                ch.close();
+                callback.onResult(target, Outcome.OPEN);
+                return false;
+            }
+            long now = System.nanoTime();
+            ch.register(selector, SelectionKey.OP_CONNECT,
+                    new Pending(target, now, now + rtt.timeoutMs() * 1_000_000L));
+            return true;
+        } catch (IOException e) {
+            if (ch != null) {
+                try { ch.close(); } catch (IOException ignore) {}
+            }
+            callback.onResult(target, Outcome.UNREACHABLE);
+            return false;
+        }
+    }
+
+    private long nextDeadlineMs(Selector selector) {
+        long now = System.nanoTime();
+        long min = rtt.timeoutMs() * 1_000_000L;
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid()) continue;
+            long left = ((Pending) key.attachment()).deadlineNanos - now;
+            if (left < min) min = left;
+        }
+        return min / 1_000_000L;
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try { key.channel().close(); } catch (IOException ignore) {}
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.minicast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Description XML’inden friendlyName + UDN’i akış halinde, bayt seviyesinde yakalar.
+ * - Gövde bir kez, sabit tamponla okunur (probe başına sınırlı bellek)
+ * - Namespace önekli etiketler (&lt;dev:friendlyName&gt;) de eşleşir
+ * - chunked transfer-encoding yerinde çözülür
+ * - İkisi de yakalanınca okuma durur ve bağlantı kapatılır
+ */
+final class DescriptionSniffer {
+
+    static final class Result {
+        final String friendlyName;
+        final String udn; // null olabilir
+
+        Result(String friendlyName, String udn) {
+            this.friendlyName = friendlyName;
+            this.udn = udn;
+        }
+    }
+
+    private static final int BUF_SIZE = 2048;
+    private static final int MAX_TAG = 64;
+    private static final int MAX_VALUE = 256;
+
+    private static final byte[] FRIENDLY_NAME = "friendlyName".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UDN = "UDN".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * http://ip:port/path için tek bir GET yapar. 200 dışı veya friendlyName yoksa null döner.
+     * Bağlantı reddi/RST SocketException olarak yukarı çıkar.
+     */
+    static Result fetch(String ip, int port, String path, int connectTimeoutMs, int readTimeoutMs)
+            throws IOException {
+        try (Socket s = new Socket()) {
+            s.connect(new InetSocketAddress(ip, port), connectTimeoutMs);
+            s.setSoTimeout(readTimeoutMs);
+            OutputStream os = s.getOutputStream();
+            os.write(("GET " + path + " HTTP/1.1\r\n"
+                    + "Host: " + ip + ":" + port + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+            return new DescriptionSniffer().read(s.getInputStream());
+        }
+    }
+
+    // ---- HTTP başlık durumu ----
+    private final byte[] buf = new byte[BUF_SIZE];
+    private int status = -1;
+    private boolean chunked = false;
+
+    // ---- chunked çözücü durumu ----
+    private static final int CH_SIZE = 0, CH_EXT = 1, CH_DATA = 2, CH_DATA_END = 3;
+    private int chState = CH_SIZE;
+    private long chLeft = 0;
+
+    // ---- etiket eşleyici durumu ----
+    private static final int OUTSIDE = 0, TAG_NAME = 1, IN_TAG = 2, VALUE = 3;
+    private int state = OUTSIDE;
+    private final byte[] tag = new byte[MAX_TAG];
+    private int tagLen = 0;
+    private final byte[] value = new byte[MAX_VALUE];
+    private int valueLen = 0;
+    private byte[] capturing = null; // yakalanan etiket
+    private byte[] pending = null;   // '>' bekleyen eşleşmiş açılış etiketi
+    private byte prev = 0;
+
+    private String friendlyName;
+    private String udn;
+
+    private Result read(InputStream in) throws IOException {
+        int len = 0;
+        int bodyStart = -1;
+        // Başlıklar tampona sığmalı (description sunucularında birkaç yüz bayt)
+        while (bodyStart < 0) {
+            if (len == buf.length) return null;
+            int n = in.read(buf, len, buf.length - len);
+            if (n < 0) return null;
+            len += n;
+            bodyStart = parseHeaders(len);
+        }
+        if (status != 200) return null;
+
+        if (feedBody(buf, bodyStart, len - bodyStart)) return result();
+        int n;
+        while ((n = in.read(buf, 0, buf.length)) > 0) {
+            if (feedBody(buf, 0, n)) break;
+        }
+        return result();
+    }
+
+    private Result result() {
+        return friendlyName != null ? new Result(friendlyName, udn) : null;
+    }
+
+    /** Başlık sonu bulunduysa gövdenin başladığı indeksi döner, yoksa -1. */
+    private int parseHeaders(int len) {
+        int end = -1;
+        for (int i = 3; i < len; i++) {
+            if (buf[i - 3] == '\r' && buf[i - 2] == '\n' && buf[i - 1] == '\r' && buf[i] == '\n') {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end < 0) return -1;
+        String head = new String(buf, 0, end, StandardCharsets.ISO_8859_1);
+        int sp = head.indexOf(' ');
+        if (sp > 0 && head.length() >= sp + 4) {
+            try { status = Integer.parseInt(head.substring(sp + 1, sp + 4)); } catch (NumberFormatException ignore) {}
+        }
+        for (String line : head.split("\r\n")) {
+            int c = line.indexOf(':');
+            if (c > 0 && line.substring(0, c).trim().equalsIgnoreCase("Transfer-Encoding")
+                    && line.substring(c + 1).toLowerCase(java.util.Locale.US).contains("chunked")) {
+                chunked = true;
+            }
+        }
+        return end;
+    }
+
+    /** Gövde baytlarını (gerekirse chunk çözerek) etiket eşleyiciye verir; bitti ise true. */
+    private boolean feedBody(byte[] b, int off, int len) {
+        if (!chunked) return feed(b, off, len);
+        int i = off, end = off + len;
+        while (i < end) {
+            switch (chState) {
+                case CH_SIZE: {
+                    byte c = b[i++];
+                    int d = Character.digit(c, 16);
+                    if (d >= 0) chLeft = chLeft * 16 + d;
+                    else if (c == '\n') {
+                        if (chLeft == 0) return true; // son chunk
+                        chState = CH_DATA;
+                    } else chState = CH_EXT;
+                    break;
+                }
+                case CH_EXT:
+                    if (b[i++] == '\n') {
+                        if (chLeft == 0) return true;
+                        chState = CH_DATA;
+                    }
+                    break;
+                case CH_DATA: {
+                    int n = (int) Math.min(chLeft, end - i);
+                    if (feed(b, i, n)) return true;
+                    i += n;
+                    chLeft -= n;
+                    if (chLeft == 0) chState = CH_DATA_END;
+                    break;
+                }
+                default: // CH_DATA_END: chunk sonu CRLF
+                    if (b[i++] == '\n') chState = CH_SIZE;
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /** XML baytlarını işler; friendlyName ve UDN yakalandıysa true. */
+    private boolean feed(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            byte c = b[i];
+            switch (state) {
+                case OUTSIDE:
+                    if (c == '<') startTag();
+                    break;
+                case TAG_NAME:
+                    if (c == '>' || c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '/') {
+                        pending = matchTag();
+                        if (c == '>') openValue();
+                        else state = IN_TAG;
+                    } else if (tagLen < MAX_TAG) {
+                        tag[tagLen++] = c;
+                    } else {
+                        state = IN_TAG; // çok uzun isim: ilgilenmiyoruz
+                        pending = null;
+                    }
+                    break;
+                case IN_TAG:
+                    if (c == '>') {
+                        // <tag/> kendiliğinden kapanan: değer yok
+                        if (prev == '/') pending = null;
+                        openValue();
+                    }
+                    break;
+                default: // VALUE
+                    if (c == '<') {
+                        store();
+                        if (friendlyName != null && udn != null) return true;
+                        startTag();
+                    } else if (valueLen < MAX_VALUE) {
+                        value[valueLen++] = c;
+                    }
+                    break;
+            }
+            prev = c;
+        }
+        return false;
+    }
+
+    private void startTag() {
+        state = TAG_NAME;
+        tagLen = 0;
+    }
+
+    private void openValue() {
+        if (pending != null) {
+            capturing = pending;
+            pending = null;
+            valueLen = 0;
+            state = VALUE;
+        } else {
+            state = OUTSIDE;
+        }
+    }
+
+    /** Önek (ns:) atlanarak yerel isim hedeflerden biriyse onu döner. */
+    private byte[] matchTag() {
+        if (tagLen == 0 || tag[0] == '/' || tag[0] == '?' || tag[0] == '!') return null;
+        int start = 0;
+        for (int i = 0; i < tagLen; i++) if (tag[i] == ':') start = i + 1;
+        if (friendlyName == null && equals(tag, start, tagLen, FRIENDLY_NAME)) return FRIENDLY_NAME;
+        if (udn == null && equals(tag, start, tagLen, UDN)) return UDN;
+        return null;
+    }
+
+    private static boolean equals(byte[] a, int from, int to, byte[] b) {
+        if (to - from != b.length) return false;
+        for (int i = 0; i < b.length; i++) if (a[from + i] != b[i]) return false;
+        return true;
+    }
+
+    private void store() {
+        String v = unescape(new String(value, 0, valueLen, StandardCharsets.UTF_8).trim());
+        if (capturing == FRIENDLY_NAME && friendlyName == null) friendlyName = v;
+        else if (capturing == UDN && udn == null && !v.isEmpty()) udn = v;
+        capturing = null;
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('&') < 0) return s;
+        return s.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.minicast;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.example.minicast.devices.PlaybackClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seek çubuğu / konum yazısı güncellemesi için tek ortak Choreographer geri çağrısı.
+ * - Kaç dinleyici olursa olsun kare başına bir doFrame; her dinleyici en fazla karede bir çağrılır
+ * - Konum ekrandaki haliyle (saniye/ms adımı değişmeden) aynıysa dinleyici çağrılmaz
+ * - Bağlı saatlerin hiçbiri oynamıyorsa kare istenmez; saat değişince (oynat, seek) yeniden kurulur
+ * Yalnızca ana thread’den kullanılır.
+ */
+public final class FrameTicker {
+
+    public interface Listener {
+        /** Ana thread’de, vsync ile; durationMs bilinmiyorsa -1. */
+        void onFrame(long positionMs, long durationMs, boolean playing);
+    }
+
+    private static FrameTicker instance;
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final List<Binding> bindings = new ArrayList<>();
+    private final Choreographer.FrameCallback frame = this::doFrame;
+    private final Runnable rearm = this::arm; // saat değişimi başka thread’den gelebilir
+    private boolean posted = false;
+
+    private static final class Binding {
+        final PlaybackClock clock;
+        final Listener listener;
+        final long stepMs;
+        final Runnable onClockChanged;
+        long lastPosition = Long.MIN_VALUE;
+        long lastDuration = Long.MIN_VALUE;
+        boolean lastPlaying;
+
+        Binding(PlaybackClock clock, Listener listener, long stepMs, Runnable onClockChanged) {
+            this.clock = clock;
+            this.listener = listener;
+            this.stepMs = stepMs;
+            this.onClockChanged = onClockChanged;
+        }
+    }
+
+    private FrameTicker() {}
+
+    public static FrameTicker get() {
+        if (instance == null) instance = new FrameTicker();
+        return instance;
+    }
+
+    /** Her değişen ms’de çağrılır (seek çubuğu için). */
+    public void add(PlaybackClock clock, Listener listener) {
+        add(clock, listener, 1);
+    }
+
+    /**
+     * stepMs: konumun yuvarlandığı adım; örn. "01:23" yazısı için 1000 verilirse saniyede bir çağrılır.
+     * İlk durum bir sonraki karede gelir.
+     */
+    public void add(PlaybackClock clock, Listener listener, long stepMs) {
+        Binding b = new Binding(clock, listener, Math.max(1, stepMs), () -> {
+            main.removeCallbacks(rearm);
+            main.post(rearm);
+        });
+        clock.addChangeListener(b.onClockChanged);
+        bindings.add(b);
+        arm();
+    }
+
+    public void remove(Listener listener) {
+        for (int i = bindings.size() - 1; i >= 0; i--) {
+            Binding b = bindings.get(i);
+            if (b.listener == listener) {
+                b.clock.removeChangeListener(b.onClockChanged);
+                bindings.remove(i);
+            }
+        }
+        if (bindings.isEmpty() && posted) {
+            choreographer.removeFrameCallback(frame);
+            posted = false;
+        }
+    }
+
+    private void arm() {
+        if (posted || bindings.isEmpty()) return;
+        posted = true;
+        choreographer.postFrameCallback(frame);
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        posted = false;
+        boolean anyPlaying = false;
+        // Dinleyici içinden remove() yapılabilir
+        for (Binding b : new ArrayList<>(bindings)) {
+            boolean playing = b.clock.isPlaying();
+            long position = b.clock.positionMs(frameTimeNanos) / b.stepMs * b.stepMs;
+            long duration = b.clock.getDurationMs();
+            anyPlaying |= playing;
+            if (position == b.lastPosition && duration == b.lastDuration && playing == b.lastPlaying) continue;
+            b.lastPosition = position;
+            b.lastDuration = duration;
+            b.lastPlaying = playing;
+            b.listener.onFrame(position, duration, playing);
+        }
+        // Duraklatılmış/slew bitmiş saatler için kare istenmez; sonraki değişim rearm eder
+        if (anyPlaying) arm();
+    }
+}
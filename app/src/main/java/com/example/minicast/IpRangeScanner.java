@@ -1,23 +1,26 @@
 package com.example.minicast;
 
+import android.content.Context;
 import android.util.Log;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.InetSocketAddress;
-import java.net.URL;
+import com.example.minicast.devices.ScannedDevice;
+import com.example.minicast.devices.TargetDeviceRegistry;
+
+import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class IpRangeScanner {
     private static final String TAG = "MiniCast-IPScan";
 
     // Denenecek yaygın DLNA portları
-    private static final int[] PORTS = {55000, 49152, 8895};
+    static final int[] PORTS = {55000, 49152, 8895};
 
     // Description path listesi
-    private static final String[] PATHS = {
+    static final String[] PATHS = {
             "/description.xml",
             "/rootDesc.xml",
             "/DeviceDescription.xml",
@@ -29,43 +32,119 @@ public class IpRangeScanner {
         void onFinished();
     }
 
+    /** Bulunan cihazları TargetDeviceRegistry’ye yazar, ardından (varsa) next’e iletir. */
+    public static ResultListener feeding(TargetDeviceRegistry registry, ResultListener next) {
+        return new ResultListener() {
+            @Override
+            public void onDeviceFound(String ip, int port, String url, String friendlyName) {
+                registry.put(new ScannedDevice(ip, port, url, friendlyName));
+                if (next != null) next.onDeviceFound(ip, port, url, friendlyName);
+            }
+
+            @Override
+            public void onFinished() {
+                if (next != null) next.onFinished();
+            }
+        };
+    }
+
+    /**
+     * CIDR taramasında ARP tablosunun kullanımı.
+     * FULL: tablo yok sayılır; ARP_FIRST: tablodakiler önce ve canlılık kontrolü olmadan denenir;
+     * ARP_ONLY: yalnızca tablodakiler (tablo okunamazsa ARP_FIRST’e düşer).
+     */
+    public enum ScanMode { FULL, ARP_FIRST, ARP_ONLY }
+
+    /** Aynı anda açık tutulacak varsayılan connect sayısı (Android fd limitinin güvenli altında). */
+    public static final int DEFAULT_CONCURRENCY = 256;
+
     public static void scanRange(String subnet, int start, int end, ResultListener listener) {
+        scanRange(subnet, start, end, DEFAULT_CONCURRENCY, listener);
+    }
+
+    public static void scanRange(String subnet, int start, int end, int maxConcurrent, ResultListener listener) {
+        scanRange(null, subnet, start, end, maxConcurrent, listener);
+    }
+
+    /**
+     * Önbellekli tarama: daha önce bulunan TV’ler (ip, port, path) önce doğrudan denenip
+     * milisaniyeler içinde bildirilir; ardından tam tarama arka planda sürer ve
+     * artık yanıt vermeyen kayıtlar önbellekten düşer.
+     */
+    public static void scanRange(Context ctx, String subnet, int start, int end, ResultListener listener) {
+        scanRange(ctx, subnet, start, end, DEFAULT_CONCURRENCY, listener);
+    }
+
+    /**
+     * NIO connect taraması + host bazlı uyarlanır plan (bkz. ProbeScheduler):
+     * önce canlılık, sonra yalnızca ayakta olan host’larda kalan portlar ve açık portlarda path’ler.
+     * Listener çağrıları worker thread’lerinden gelir ama birbirine karışmaz.
+     */
+    public static void scanRange(Context ctx, String subnet, int start, int end, int maxConcurrent,
+                                 ResultListener listener) {
         new Thread(() -> {
-            List<String> found = new ArrayList<>();
+            List<InetAddress> hosts = new ArrayList<>();
             for (int i = start; i <= end; i++) {
-                String ip = subnet + "." + i;
-                for (int port : PORTS) {
-                    for (String path : PATHS) {
-                        String url = "http://" + ip + ":" + port + path;
-                        try {
-                            HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
-                            c.setConnectTimeout(800);
-                            c.setReadTimeout(800);
-                            int code = c.getResponseCode();
-                            if (code == 200) {
-                                // FriendlyName çıkar
-                                BufferedReader br = new BufferedReader(new InputStreamReader(c.getInputStream()));
-                                StringBuilder sb = new StringBuilder();
-                                String line;
-                                while ((line = br.readLine()) != null) {
-                                    sb.append(line);
-                                    int s = sb.indexOf("<friendlyName>");
-                                    if (s >= 0) {
-                                        int e = sb.indexOf("</friendlyName>", s);
-                                        if (e > s) {
-                                            String fname = sb.substring(s + 14, e).trim();
-                                            listener.onDeviceFound(ip, port, url, fname);
-                                        }
-                                    }
-                                }
-                                br.close();
-                            }
-                        } catch (Exception ignore) {
-                        }
-                    }
+                try {
+                    hosts.add(InetAddress.getByName(subnet + "." + i));
+                } catch (Exception ignore) {
+                    // geçersiz IP
                 }
             }
+            KnownHostCache cache = ctx != null ? new KnownHostCache(ctx) : null;
+            new ProbeScheduler(maxConcurrent, cache, listener).run(hosts);
+            synchronized (listener) {
+                listener.onFinished();
+            }
+        }, "minicast-ipscan").start();
+    }
+
+    /** Telefonun bağlı olduğu tüm IPv4 alt ağlarını (arayüz önek uzunluğuyla, en fazla /20) tarar. */
+    public static void scanLocalNetworks(Context ctx, ScanMode mode, ResultListener listener) {
+        new Thread(() -> scanSubnets(ctx, Ipv4Cidr.activeSubnets(), mode, listener),
+                "minicast-ipscan").start();
+    }
+
+    /** "192.168.0.0/22" gibi bir CIDR aralığını tarar; /20’den genişi kendi bloğumuza daraltılır. */
+    public static void scanCidr(Context ctx, String cidr, ScanMode mode, ResultListener listener) {
+        new Thread(() -> {
+            List<Ipv4Cidr> list = new ArrayList<>();
+            try {
+                list.add(Ipv4Cidr.parse(cidr));
+            } catch (Exception e) {
+                Log.w(TAG, "bad cidr: " + cidr);
+            }
+            scanSubnets(ctx, list, mode, listener);
+        }, "minicast-ipscan").start();
+    }
+
+    private static void scanSubnets(Context ctx, List<Ipv4Cidr> subnets, ScanMode mode, ResultListener listener) {
+        Set<InetAddress> arp = mode == ScanMode.FULL ? Collections.<InetAddress>emptySet() : ArpTable.liveHosts();
+        if (mode == ScanMode.ARP_ONLY && arp.isEmpty()) {
+            Log.d(TAG, "arp table empty, falling back to full sweep");
+            mode = ScanMode.ARP_FIRST;
+        }
+
+        // ARP’de görülenler önde, sonra kalanlar (ARP_ONLY’de yalnızca onlar)
+        Set<InetAddress> live = new LinkedHashSet<>();
+        for (Ipv4Cidr c : subnets) {
+            for (InetAddress a : arp) {
+                if (c.contains(a)) live.add(a);
+            }
+        }
+        Set<InetAddress> ordered = new LinkedHashSet<>(live);
+        if (mode != ScanMode.ARP_ONLY) {
+            for (Ipv4Cidr c : subnets) {
+                for (InetAddress a : c.hosts()) ordered.add(a);
+            }
+        }
+        List<InetAddress> hosts = new ArrayList<>(ordered);
+        Log.d(TAG, "subnets=" + subnets + " hosts=" + hosts.size() + " arp=" + live.size());
+
+        KnownHostCache cache = ctx != null ? new KnownHostCache(ctx) : null;
+        new ProbeScheduler(DEFAULT_CONCURRENCY, cache, listener).run(hosts, live);
+        synchronized (listener) {
             listener.onFinished();
-        }).start();
+        }
     }
 }
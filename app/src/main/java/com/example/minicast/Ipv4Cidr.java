@@ -0,0 +1,126 @@
+package com.example.minicast;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * IPv4 CIDR aralığı ("192.168.1.0/24") + aktif arayüzlerden alt ağ keşfi.
+ * Çok geniş ağlar (ör. /16) MIN_PREFIX’e daraltılır; daraltma kendi adresimizi içeren blokta yapılır.
+ */
+final class Ipv4Cidr {
+
+    /** Tam taramada izin verilen en geniş blok: /20 = 4094 host. */
+    static final int MIN_PREFIX = 20;
+
+    final int network;
+    final int prefix;
+    final int self; // kendi adresimiz (host listesinden çıkarılır), yoksa 0
+
+    Ipv4Cidr(int address, int prefix, int self) {
+        this.prefix = prefix;
+        this.network = prefix == 0 ? 0 : address & (-1 << (32 - prefix));
+        this.self = self;
+    }
+
+    /**
+     * MIN_PREFIX’ten geniş aralık (ör. 10.0.0.0/8) kendi adresimizi içeren MIN_PREFIX bloğuna daraltılır;
+     * adresimiz aralıkta değilse reddedilir (16M host’luk tarama yapılmaz).
+     */
+    static Ipv4Cidr parse(String cidr) throws UnknownHostException {
+        int slash = cidr.indexOf('/');
+        String ip = slash >= 0 ? cidr.substring(0, slash) : cidr;
+        int prefix = slash >= 0 ? Integer.parseInt(cidr.substring(slash + 1).trim()) : 24;
+        if (prefix < 0 || prefix > 32) throw new UnknownHostException("bad prefix: " + cidr);
+        Ipv4Cidr c = new Ipv4Cidr(toInt(InetAddress.getByName(ip.trim())), prefix, 0);
+        if (prefix >= MIN_PREFIX) return c;
+        for (Ipv4Cidr local : activeSubnets()) {
+            if (c.contains(toAddress(local.self))) return local;
+        }
+        throw new UnknownHostException("prefix wider than /" + MIN_PREFIX + " and no local address in " + cidr);
+    }
+
+    /** Ayakta, loopback olmayan arayüzlerin IPv4 alt ağları (MIN_PREFIX’e daraltılmış). */
+    static List<Ipv4Cidr> activeSubnets() {
+        List<Ipv4Cidr> out = new ArrayList<>();
+        try {
+            for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!ni.isUp() || ni.isLoopback() || ni.isPointToPoint()) continue;
+                for (InterfaceAddress ia : ni.getInterfaceAddresses()) {
+                    if (!(ia.getAddress() instanceof Inet4Address)) continue;
+                    int addr = toInt(ia.getAddress());
+                    int prefix = Math.max(ia.getNetworkPrefixLength(), MIN_PREFIX);
+                    if (prefix >= 31) continue; // host yok
+                    Ipv4Cidr c = new Ipv4Cidr(addr, prefix, addr);
+                    if (!out.contains(c)) out.add(c);
+                }
+            }
+        } catch (Exception ignore) {
+            // arayüz listesi alınamadı
+        }
+        return out;
+    }
+
+    /** Ağ ve broadcast adresleri ile kendi adresimiz hariç tüm host’lar; adresler gezinirken üretilir. */
+    Iterable<InetAddress> hosts() {
+        long size = 1L << (32 - prefix);
+        long first = size > 2 ? 1 : 0;
+        long last = size > 2 ? size - 2 : size - 1;
+        return () -> new Iterator<InetAddress>() {
+            long i = skipSelf(first);
+
+            @Override public boolean hasNext() { return i <= last; }
+
+            @Override public InetAddress next() {
+                if (i > last) throw new NoSuchElementException();
+                InetAddress a = toAddress(network + (int) i);
+                i = skipSelf(i + 1);
+                return a;
+            }
+        };
+    }
+
+    private long skipSelf(long i) {
+        return self != 0 && network + (int) i == self ? i + 1 : i;
+    }
+
+    boolean contains(InetAddress a) {
+        if (!(a instanceof Inet4Address)) return false;
+        int mask = prefix == 0 ? 0 : -1 << (32 - prefix);
+        return (toInt(a) & mask) == network;
+    }
+
+    static int toInt(InetAddress a) {
+        byte[] b = a.getAddress();
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    static InetAddress toAddress(int a) {
+        try {
+            return InetAddress.getByAddress(new byte[] {
+                    (byte) (a >>> 24), (byte) (a >>> 16), (byte) (a >>> 8), (byte) a });
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e); // 4 bayt her zaman geçerli
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Ipv4Cidr)) return false;
+        Ipv4Cidr that = (Ipv4Cidr) o;
+        return network == that.network && prefix == that.prefix;
+    }
+
+    @Override
+    public int hashCode() { return network * 31 + prefix; }
+
+    @Override
+    public String toString() { return toAddress(network).getHostAddress() + "/" + prefix; }
+}
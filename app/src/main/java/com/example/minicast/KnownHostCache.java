@@ -0,0 +1,133 @@
+package com.example.minicast;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Son taramalarda bulunan uç noktaların kalıcı önbelleği (SharedPreferences + JSON).
+ * - Anahtar: ip:port; değer: description path, friendlyName, lastSeen
+ * - Yeni taramada önce bu uç noktalar doğrudan denenir (bkz. ProbeScheduler)
+ * - Üst üste MAX_MISSES tarama boyunca yanıt vermeyen veya MAX_AGE_MS’den eski kayıtlar silinir
+ */
+final class KnownHostCache {
+
+    private static final String TAG = "MiniCast-IPScan";
+    private static final String PREFS = "minicast_known_hosts";
+    private static final String KEY = "entries";
+
+    private static final int MAX_MISSES = 2;
+    private static final long MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000;
+
+    static final class Entry {
+        final String ip;
+        final int port;
+        final String path;
+        final String friendlyName;
+        final long lastSeen;
+        final int misses;
+
+        Entry(String ip, int port, String path, String friendlyName, long lastSeen, int misses) {
+            this.ip = ip;
+            this.port = port;
+            this.path = path;
+            this.friendlyName = friendlyName;
+            this.lastSeen = lastSeen;
+            this.misses = misses;
+        }
+
+        String key() { return KnownHostCache.key(ip, port); }
+    }
+
+    static String key(String ip, int port) { return ip + ":" + port; }
+
+    private final SharedPreferences prefs;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    KnownHostCache(Context ctx) {
+        this.prefs = ctx.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        load();
+    }
+
+    /** En son görülen önce. */
+    synchronized List<Entry> entries() {
+        List<Entry> out = new ArrayList<>(entries.values());
+        out.sort((a, b) -> Long.compare(b.lastSeen, a.lastSeen));
+        return out;
+    }
+
+    synchronized void hit(String ip, int port, String path, String friendlyName) {
+        Entry e = new Entry(ip, port, path, friendlyName, System.currentTimeMillis(), 0);
+        entries.put(e.key(), e);
+    }
+
+    /**
+     * Tarama bitti: taranan IP’lerde olup bu sefer görülmeyen kayıtların kaçırma sayısını artırır,
+     * eşik aşılınca veya çok eskiyse kaydı siler. Taranmayan alt ağlardaki kayıtlara dokunulmaz.
+     */
+    synchronized void expire(Set<String> scannedIps, Set<String> seenKeys) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> me = it.next();
+            Entry e = me.getValue();
+            if (now - e.lastSeen > MAX_AGE_MS) {
+                it.remove();
+                continue;
+            }
+            if (!scannedIps.contains(e.ip) || seenKeys.contains(e.key())) continue;
+            if (e.misses + 1 >= MAX_MISSES) {
+                it.remove();
+            } else {
+                me.setValue(new Entry(e.ip, e.port, e.path, e.friendlyName, e.lastSeen, e.misses + 1));
+            }
+        }
+    }
+
+    synchronized void save() {
+        try {
+            JSONArray arr = new JSONArray();
+            for (Entry e : entries.values()) {
+                JSONObject o = new JSONObject();
+                o.put("ip", e.ip);
+                o.put("port", e.port);
+                o.put("path", e.path);
+                o.put("name", e.friendlyName);
+                o.put("seen", e.lastSeen);
+                o.put("miss", e.misses);
+                arr.put(o);
+            }
+            prefs.edit().putString(KEY, arr.toString()).apply();
+        } catch (Exception e) {
+            Log.w(TAG, "cache save error: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        String raw = prefs.getString(KEY, null);
+        if (raw == null) return;
+        try {
+            JSONArray arr = new JSONArray(raw);
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                Entry e = new Entry(o.getString("ip"), o.getInt("port"), o.getString("path"),
+                        o.optString("name", ""), o.optLong("seen", 0), o.optInt("miss", 0));
+                entries.put(e.key(), e);
+            }
+        } catch (Exception e) {
+            // Bozuk kayıt: sıfırdan başla
+            Log.w(TAG, "cache load error: " + e.getMessage());
+            entries.clear();
+        }
+    }
+}
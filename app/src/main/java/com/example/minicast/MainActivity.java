@@ -6,21 +6,78 @@ import android.content.ActivityNotFoundException;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.Settings;
+import android.util.Log;
 import android.view.View;
 import android.view.WindowInsetsController;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
-import android.webkit.WebViewClient;
 import android.widget.Button;
 
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.mediarouter.app.MediaRouteButton;
+
+import com.example.minicast.devices.CastDiscovery;
+import com.example.minicast.devices.DlnaController;
+import com.example.minicast.devices.DlnaPlaybackMirror;
+import com.example.minicast.devices.DlnaDevice;
+import com.example.minicast.devices.DlnaDiscovery;
+import com.example.minicast.devices.HlsRelay;
+import com.example.minicast.devices.MediaVariant;
+import com.example.minicast.devices.TargetDevice;
+import com.example.minicast.devices.TargetDeviceRegistry;
+import com.example.minicast.devices.UnifiedDevice;
+import com.google.android.gms.cast.CastDevice;
+import com.google.android.gms.cast.framework.CastButtonFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+    private static final long RELAY_STATS_MS = 2_000L;
+    // Röle yayını ağ işi (rota seçimi, soket açma); ana thread’de StrictMode izin vermez
+    private static final ExecutorService PUBLISH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "minicast-relay-publish");
+        t.setDaemon(true);
+        return t;
+    });
+
     private WebView webView;
     private Button btnSmartView;
+    private MediaSniffer sniffer;
+    private CastDiscovery castDiscovery; // seçici listesi için; Cast rotaları TargetDeviceRegistry’ye yazılır
+    private DlnaDevice dlnaTarget; // seçiciden seçilen renderer; yoksa son bağlanılan (RouteReconnector)
+    private String defaultUserAgent; // WebView’in kendi UA’sı; sayfa başka UA gönderdiyse akış röleye gider
+    private DlnaController dlnaSession; // TV’de oynayan DLNA oturumu; sayfa/hedef değişince kapatılır (GENA)
+    private DlnaPlaybackMirror dlnaMirror; // dlnaSession’ın konumu (tvBar için)
+    private TvPlaybackBar tvBar;
+    private HlsRelay relay;
+    private String relayUrl; // TV’ye verilen röle adresi; akış değişince ya da oturum bitince kapatılır
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Executor ui = main::post;
+    private final Runnable relayStats = new Runnable() {
+        @Override public void run() {
+            if (relayUrl == null) return;
+            HlsRelay.Stats st = relay.getStats();
+            btnSmartView.setText(String.format(Locale.US, "TV’de (röle: önbellek %%%.0f, %.1f Mbit/s)",
+                    st.hitRate() * 100, st.originBytesPerSec() * 8 / 1e6));
+            main.postDelayed(this, RELAY_STATS_MS);
+        }
+    };
+    private boolean streamingDirect = false; // TV akışı kendisi çekiyor; sayfadaki video tam ekrana alınmaz
+    private int page = 0; // sayfa değişince artar; eski sayfanın geç gelen load sonucu yok sayılır
 
     @SuppressLint("SetJavaScriptEnabled")
     @Override
@@ -31,6 +88,18 @@ public class MainActivity extends AppCompatActivity {
 
         webView = findViewById(R.id.webView);
         btnSmartView = findViewById(R.id.btnSmartView);
+        tvBar = new TvPlaybackBar(findViewById(R.id.tvControls));
+
+        // Cast oturumu için resmi buton (tema NoActionBar: menü yerine yerleşimde)
+        RouteReconnector.start(this); // Splash’tan geçilmediyse (ör. doğrudan açılış)
+        RouteReconnector.castManager().setOnSessionEnded(this::tvSessionEnded);
+        CastButtonFactory.setUpMediaRouteButton(getApplicationContext(), (MediaRouteButton) findViewById(R.id.castButton));
+
+        // Hedef seçici TargetDeviceRegistry’deki ortak listeyi gösterir; keşif arka planda doldurur
+        TargetDeviceRegistry devices = TargetDeviceRegistry.get();
+        castDiscovery = new CastDiscovery(this, devices, null);
+        castDiscovery.start();
+        DlnaDiscovery.discover(this, devices.feed(null));
 
         // Ekranı açık tut
         getWindow().getDecorView().setKeepScreenOn(true);
@@ -42,12 +111,40 @@ public class MainActivity extends AppCompatActivity {
         ws.setDomStorageEnabled(true);
         ws.setLoadWithOverviewMode(true);
         ws.setUseWideViewPort(true);
+        defaultUserAgent = WebSettings.getDefaultUserAgent(this);
 
-        webView.setWebViewClient(new WebViewClient());
+        // Sayfanın yüklediği m3u8/mpd/mp4/webm adresleri yakalanır; bulununca buton doğrudan TV’ye gönderir
+        sniffer = new MediaSniffer(new MediaSniffer.Listener() {
+            @Override public void onStreamDetected(MediaSniffer.Stream stream) {
+                btnSmartView.setText("TV’de Oynat");
+            }
+
+            @Override public void onPageChanged(String url) {
+                page++;
+                streamingDirect = false;
+                stopRelay();
+                endDlnaSession();
+                btnSmartView.setText("Smart View’a Bağlan");
+            }
+        });
+        webView.setWebViewClient(sniffer);
         // İstediğiniz test sayfasını yükleyin; mevcut akışınız farklıysa bunu koruyun
         // webView.loadUrl("https://example.com/video_test.html");
 
-        btnSmartView.setOnClickListener(v -> openSmartViewSettings());
+        btnSmartView.setOnClickListener(v -> {
+            MediaSniffer.Stream stream = sniffer.best();
+            if (stream == null || !playOnTv(stream)) openSmartViewSettings();
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (castDiscovery != null) castDiscovery.stop();
+        RouteReconnector.castManager().setOnSessionEnded(null);
+        stopRelay();
+        endDlnaSession();
+        tvBar.detach();
+        super.onDestroy();
     }
 
     @Override
@@ -55,7 +152,197 @@ public class MainActivity extends AppCompatActivity {
         super.onResume();
         applyImmersiveFullscreen();
         // Smart View’dan dönünce, telefonda tam ekran → TV’de gerçek tam ekran
+        if (!streamingDirect) requestVideoFullscreenAndPlay();
+    }
+
+    /**
+     * Yakalanan akışı bağlı Cast oturumuna, yoksa seçilen / son DLNA renderer’ına verir; TV orijinal
+     * akışı çeker. İkisi de yoksa hedef seçici açılır; listede cihaz yoksa false (çağıran Smart View’a
+     * düşer). Telefondaki oynatma ancak TV yüklemeyi kabul edince durdurulur; yükleme başarısızsa
+     * sayfa ve Smart View yedeği geri gelir.
+     */
+    private boolean playOnTv(MediaSniffer.Stream stream) {
+        String title = webView.getTitle();
+        int loadPage = page;
+        VideoCastManager cast = RouteReconnector.castManager();
+        CastQueue queue = cast != null ? cast.getQueue() : null;
+        if (queue != null) {
+            endDlnaSession(); // yayın Cast’e geçti
+            CastDevice device = cast.getCastSession().getCastDevice();
+            tvUrl(stream, device != null && device.getInetAddress() != null
+                    ? device.getInetAddress().getHostAddress() : null, loadPage)
+                    .thenCompose(url -> queue.load(Collections.singletonList(CastQueue.item(url,
+                            stream.kind.mimeType, title, stream.toCustomData())), 0, 0))
+                    .whenComplete((v, e) -> runOnUiThread(() -> {
+                        if (e == null && loadPage == page) showCastControls(cast);
+                        loaded(loadPage, "cast", e);
+                    }));
+            return true;
+        }
+        DlnaDevice dlna = dlnaTarget != null ? dlnaTarget : RouteReconnector.dlnaDevice();
+        if (dlna != null) {
+            DlnaController c = DlnaController.of(dlna);
+            tvUrl(stream, dlna.getControlUrl() != null ? dlna.getControlUrl().getHost() : null, loadPage)
+                    .thenCompose(url -> c.load(
+                            Collections.singletonList(new MediaVariant(url, stream.kind.mimeType)), title))
+                    .whenComplete((v, e) -> runOnUiThread(() -> {
+                        if (e == null && loadPage == page) {
+                            showDlnaControls(c);
+                        } else if (dlnaSession == c) {
+                            endDlnaSession();
+                        } else {
+                            c.disconnect(); // yükleme düştü ya da sayfa değişti: abonelik açık kalmasın
+                        }
+                        loaded(loadPage, "DLNA", e);
+                    }));
+            return true;
+        }
+        return chooseTarget(stream);
+    }
+
+    /**
+     * Keşfedilen cihazlardan hedef seçtirir: Cast cihazında oturum açılınca, DLNA renderer’ında hemen
+     * oynatılır. Liste boşsa false.
+     */
+    private boolean chooseTarget(MediaSniffer.Stream stream) {
+        List<UnifiedDevice> devices = TargetDeviceRegistry.get().snapshot();
+        if (devices.isEmpty()) return false;
+        CharSequence[] names = new CharSequence[devices.size()];
+        for (int i = 0; i < names.length; i++) names[i] = devices.get(i).getName();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.media_route_menu_title)
+                .setItems(names, (d, which) -> {
+                    UnifiedDevice target = devices.get(which);
+                    VideoCastManager cast = RouteReconnector.castManager();
+                    if (target.getType() == TargetDevice.DeviceType.CAST && cast != null
+                            && cast.select(target.getCast(), () -> playOnTv(stream))) {
+                        return;
+                    }
+                    DlnaDevice dlna = target.getDlna();
+                    if (dlna != null && dlna.getControlUrl() != null) {
+                        dlnaTarget = dlna;
+                        playOnTv(stream);
+                    } else {
+                        openSmartViewSettings(); // yalnızca taramayla bulunan, oynatma servisi olmayan cihaz
+                    }
+                })
+                .setNeutralButton("Smart View", (d, which) -> openSmartViewSettings())
+                .show();
+        return true;
+    }
+
+    /**
+     * Akışı ancak yakalanan başlıklarla açan kaynaklar (çerez/yetki ya da başlıksız yoklamada reddeden
+     * Referer/Origin/User-Agent kontrolü) için HLS akışı HlsRelay üzerinden verilir (TV bu başlıkları
+     * gönderemez; röle yakalananlarla çeker); diğerleri doğrudan. targetHost röle adresinin hangi
+     * arayüzden verileceği için. Yoklama ve yayın PUBLISH thread’inde; dönen future ana thread’de
+     * tamamlanır. Bu arada sayfa değiştiyse yayın hemen kapatılır.
+     */
+    private CompletableFuture<String> tvUrl(MediaSniffer.Stream stream, String targetHost, int loadPage) {
+        stopRelay(); // önceki akışın yayını; TV yenisini yükleyecek
+        if (!stream.needsCredentials() && !stream.sentPageHeaders(defaultUserAgent)) {
+            return CompletableFuture.completedFuture(stream.url);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            if (!stream.needsHeaders(defaultUserAgent)) return stream.url; // kaynak başlıklara bakmıyor
+            if (stream.kind != MediaSniffer.Kind.HLS || targetHost == null) return direct(stream);
+            try {
+                relay = HlsRelay.get();
+                return relay.publish(stream.url, stream.headers, targetHost);
+            } catch (IOException e) {
+                Log.w(TAG, "relay error: " + e.getMessage());
+                return direct(stream);
+            }
+        }, PUBLISH).thenApplyAsync(url -> {
+            if (url.equals(stream.url)) return url; // röle yok
+            if (loadPage != page) {
+                relay.unpublish(url);
+                throw new IllegalStateException("page changed");
+            }
+            stopRelay(); // arada başka bir yükleme yayın açtıysa
+            relayUrl = url;
+            return url;
+        }, ui);
+    }
+
+    /** Varsayılan alıcı/renderer sayfa başlıklarını göndermez; özel alıcı customData’dakileri kullanabilir. */
+    private static String direct(MediaSniffer.Stream stream) {
+        Log.w(TAG, "stream needs page headers " + stream.headers.keySet() + ", TV may be refused: " + stream.url);
+        return stream.url;
+    }
+
+    /** Ana thread’de; TV yükleme sonucu. Bu arada sayfa değiştiyse yok sayılır. */
+    private void loaded(int loadPage, String target, Throwable e) {
+        if (loadPage != page) return;
+        if (e == null) {
+            startedOnTv();
+            return;
+        }
+        Log.w(TAG, target + " load error: " + e.getMessage());
+        streamingDirect = false;
+        stopRelay();
+        btnSmartView.setText("TV’de Oynat");
         requestVideoFullscreenAndPlay();
+        openSmartViewSettings();
+    }
+
+    /** Telefondaki oynatmayı durdurur (çift ses olmasın, boşuna kod çözülmesin); röle varsa durumu gösterilir. */
+    private void startedOnTv() {
+        streamingDirect = true;
+        webView.evaluateJavascript("(function(){var v=document.querySelector('video');if(v)v.pause();})();", null);
+        if (relayUrl != null) {
+            main.removeCallbacks(relayStats);
+            main.post(relayStats);
+        }
+    }
+
+    /** Ana thread’de; Cast oturumu bitti: röle kapanır, sayfa yeniden telefonda oynar. */
+    private void tvSessionEnded() {
+        if (dlnaSession == null) tvBar.detach(); // Cast aynası bırakıldı
+        if (!streamingDirect && relayUrl == null) return;
+        streamingDirect = false;
+        stopRelay();
+        btnSmartView.setText("TV’de Oynat");
+        requestVideoFullscreenAndPlay();
+    }
+
+    /** Yüklenen DLNA oturumunu tvBar’a bağlar; konum GENA olayları + seyrek yoklamayla yürür. */
+    private void showDlnaControls(DlnaController c) {
+        if (dlnaSession != c) endDlnaSession();
+        dlnaSession = c;
+        if (dlnaMirror != null) {
+            dlnaMirror.resync(); // aynı renderer’a yeni medya
+            return;
+        }
+        DlnaPlaybackMirror m = new DlnaPlaybackMirror(c);
+        dlnaMirror = m;
+        m.start();
+        tvBar.attach(m.getClock(), m::seek, m::play, m::pause);
+    }
+
+    /** Cast alıcısının aynası (oturuma bağlı tek örnek) tvBar’a bağlanır. */
+    private void showCastControls(VideoCastManager cast) {
+        CastPlaybackMirror m = cast.getPlaybackMirror();
+        if (m == null || tvBar.isAttachedTo(m.getClock())) return;
+        tvBar.attach(m.getClock(), m::seek, m::play, m::pause);
+    }
+
+    /** DLNA oturumunu kapatır: renderer’daki GENA aboneliği iptal edilir, yoklama durur. */
+    private void endDlnaSession() {
+        if (dlnaSession == null) return;
+        dlnaMirror.stop();
+        tvBar.detach();
+        dlnaMirror = null;
+        dlnaSession.disconnect();
+        dlnaSession = null;
+    }
+
+    /** Röledeki yayını kapatır (kaynak istekleri durur); son sayaçlar log’a yazılır. */
+    private void stopRelay() {
+        main.removeCallbacks(relayStats);
+        if (relayUrl == null) return;
+        relay.unpublish(relayUrl);
+        relayUrl = null;
     }
 
     // Android 11+ ve önceki için kesintisiz (sticky) immersive tam ekran
@@ -0,0 +1,241 @@
+package com.example.minicast;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import com.example.minicast.devices.MediaVariant;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sayfanın yüklediği medya adreslerini (m3u8, mpd, mp4, webm) yakalayan WebViewClient.
+ * - shouldInterceptRequest yalnızca izler; isteği kendisi yapmaz, WebView yüklemeye devam eder
+ * - Akışın istediği başlıklar (Referer, Origin, User-Agent) ve CookieManager’daki çerezler saklanır
+ * - Yakalanan adres Cast/DLNA’ya verilir: TV orijinal akışı kendisi çeker, telefon ekran kodlamaz
+ * HLS’te ilk gelen playlist (master) önerilir; ardından gelen varyant playlist’leri ve segmentler eklenmez.
+ */
+public class MediaSniffer extends WebViewClient {
+
+    private static final String TAG = "MediaSniffer";
+    /** Akışa taşınan istek başlıkları; Range vb. tek isteğe özgü olanlar alınmaz. */
+    private static final String[] FORWARDED_HEADERS = {"Referer", "Origin", "User-Agent", "Authorization"};
+    private static final int PROBE_TIMEOUT_MS = 3000;
+
+    public enum Kind {
+        HLS("application/x-mpegURL"),
+        DASH("application/dash+xml"),
+        MP4("video/mp4"),
+        WEBM("video/webm");
+
+        public final String mimeType;
+
+        Kind(String mimeType) { this.mimeType = mimeType; }
+
+        public boolean isManifest() { return this == HLS || this == DASH; }
+    }
+
+    /** Yakalanan akış; başlıklar (Cookie dahil) oynatıcının aynı isteği yapabilmesi için. */
+    public static final class Stream {
+        public final String url;
+        public final Kind kind;
+        public final String pageUrl;
+        public final Map<String, String> headers;
+        public final long detectedAt;
+        private final Set<String> sent; // sayfanın isteğinde gerçekten olan başlıklar (Referer yedeği hariç)
+        private volatile Boolean probedNeedsHeaders; // needsHeaders yoklamasının sonucu; henüz yoksa null
+
+        Stream(String url, Kind kind, String pageUrl, Map<String, String> headers, Set<String> sent) {
+            this.url = url;
+            this.kind = kind;
+            this.pageUrl = pageUrl;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.sent = sent;
+            this.detectedAt = System.currentTimeMillis();
+        }
+
+        /** Çerez/yetki başlığı olmadan açılmayabilir (varsayılan Cast alıcısı ve DLNA renderer’lar başlık göndermez). */
+        public boolean needsCredentials() {
+            return headers.containsKey("Cookie") || headers.containsKey("Authorization");
+        }
+
+        /**
+         * Sayfa TV’nin isteğinde olmayacak bir başlık gönderdi mi: Referer/Origin ya da WebView
+         * varsayılanından farklı User-Agent. Çoğu kaynak bunlara bakmaz; gerekip gerekmediğini needsHeaders söyler.
+         */
+        public boolean sentPageHeaders(String defaultUserAgent) {
+            if (sent.contains("Referer") || sent.contains("Origin")) return true;
+            String ua = headers.get("User-Agent");
+            return ua != null && !ua.equals(defaultUserAgent);
+        }
+
+        /**
+         * Akış TV’ye ancak yakalanan başlıklarla (röle üzerinden) açılır mı: çerez/yetki varsa evet, sayfa
+         * başlığı yoksa hayır; yalnızca sayfa başlıkları varsa adres bir kez başlıksız (TV gibi) denenir,
+         * açılmazsa evet. Ağ isteği yapabilir, ana thread’den çağrılmaz; sonuç akış başına saklanır.
+         */
+        public boolean needsHeaders(String defaultUserAgent) {
+            if (needsCredentials()) return true;
+            if (!sentPageHeaders(defaultUserAgent)) return false;
+            Boolean probed = probedNeedsHeaders;
+            if (probed == null) {
+                probed = !opensWithoutHeaders(url);
+                probedNeedsHeaders = probed;
+                Log.d(TAG, (probed ? "origin wants page headers: " : "opens without page headers: ") + url);
+            }
+            return probed;
+        }
+
+        public MediaVariant toVariant() {
+            return new MediaVariant(url, kind.mimeType);
+        }
+
+        /**
+         * Özel Cast alıcısının kullanabileceği biçimde: {"headers": {...}, "page": "..."}.
+         * Cookie/Authorization konmaz: customData alıcıdaki her uygulamaya ve oturum durumuna açıktır;
+         * kimlik isteyen akış HlsRelay üzerinden verilir.
+         */
+        public JSONObject toCustomData() {
+            JSONObject o = new JSONObject();
+            try {
+                Map<String, String> safe = new LinkedHashMap<>(headers);
+                safe.remove("Cookie");
+                safe.remove("Authorization");
+                o.put("headers", new JSONObject(safe));
+                if (pageUrl != null) o.put("page", pageUrl);
+            } catch (Exception e) {
+                Log.w(TAG, "customData error: " + e.getMessage());
+            }
+            return o;
+        }
+
+        @Override public String toString() { return kind + " " + url; }
+    }
+
+    public interface Listener {
+        /** Ana thread’de; sayfada yeni bir akış bulundu. */
+        void onStreamDetected(Stream stream);
+
+        /** Ana thread’de; yeni sayfa yüklenmeye başladı, önceki akışlar geçersiz. */
+        void onPageChanged(String url);
+    }
+
+    private final Listener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    // url -> akış, bulunma sırasıyla; sayfa değişince temizlenir
+    private final Map<String, Stream> streams = new LinkedHashMap<>();
+    private String pageUrl;
+    private boolean hlsSeen = false;
+
+    public MediaSniffer(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        super.onPageStarted(view, url, favicon);
+        synchronized (this) {
+            pageUrl = url;
+            streams.clear();
+            hlsSeen = false;
+        }
+        listener.onPageChanged(url);
+    }
+
+    /** WebView’in IO thread’inde; her alt kaynak için çağrılır, bloklamamalı. */
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        String url = request.getUrl().toString();
+        Kind kind = classify(request.getUrl().getPath());
+        if (kind == null) return null;
+
+        Stream stream;
+        synchronized (this) {
+            if (streams.containsKey(url)) return null; // mp4 Range istekleri aynı adrese tekrar gelir
+            if (kind == Kind.HLS && hlsSeen) return null; // master’dan sonra gelen varyant/medya playlist’i
+            Map<String, String> headers = new LinkedHashMap<>();
+            Map<String, String> sent = request.getRequestHeaders();
+            if (sent != null) {
+                for (Map.Entry<String, String> e : sent.entrySet()) {
+                    for (String name : FORWARDED_HEADERS) {
+                        if (name.equalsIgnoreCase(e.getKey())) headers.put(name, e.getValue());
+                    }
+                }
+            }
+            Set<String> captured = new HashSet<>(headers.keySet());
+            String cookie = CookieManager.getInstance().getCookie(url);
+            if (cookie != null && !cookie.isEmpty()) headers.put("Cookie", cookie);
+            if (!headers.containsKey("Referer") && pageUrl != null) headers.put("Referer", pageUrl);
+            stream = new Stream(url, kind, pageUrl, headers, captured);
+            streams.put(url, stream);
+            if (kind == Kind.HLS) hlsSeen = true;
+        }
+        Log.d(TAG, "detected " + stream);
+        main.post(() -> listener.onStreamDetected(stream));
+        return null;
+    }
+
+    /** Bu sayfada bulunan akışlar, bulunma sırasıyla. */
+    public synchronized List<Stream> getStreams() {
+        return new ArrayList<>(streams.values());
+    }
+
+    /** TV’ye verilecek en iyi aday: ilk manifest (HLS/DASH), yoksa son dosya; hiç yoksa null. */
+    public synchronized Stream best() {
+        Stream file = null;
+        for (Stream s : streams.values()) {
+            if (s.kind.isManifest()) return s;
+            file = s;
+        }
+        return file;
+    }
+
+    /**
+     * Sayfa başlıkları olmadan GET (TV’nin isteği gibi; yönlendirme izlenir). 4xx/5xx ya da ağ hatası:
+     * açılmıyor sayılır. Range ile yalnızca ilk bayt istenir.
+     */
+    static boolean opensWithoutHeaders(String url) {
+        HttpURLConnection c = null;
+        try {
+            c = (HttpURLConnection) new URL(url).openConnection();
+            c.setConnectTimeout(PROBE_TIMEOUT_MS);
+            c.setReadTimeout(PROBE_TIMEOUT_MS);
+            c.setRequestProperty("Range", "bytes=0-0");
+            return c.getResponseCode() < 400;
+        } catch (IOException e) {
+            Log.w(TAG, "probe error: " + e.getMessage());
+            return false;
+        } finally {
+            if (c != null) c.disconnect();
+        }
+    }
+
+    /** Yol uzantısına göre; sorgu dizgisi (imza, token) dikkate alınmaz. */
+    static Kind classify(String path) {
+        if (path == null) return null;
+        String p = path.toLowerCase(Locale.US);
+        if (p.endsWith(".m3u8")) return Kind.HLS;
+        if (p.endsWith(".mpd")) return Kind.DASH;
+        if (p.endsWith(".mp4") || p.endsWith(".m4v")) return Kind.MP4;
+        if (p.endsWith(".webm")) return Kind.WEBM;
+        return null;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.minicast;
+
+import android.util.Log;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Host bazlı uyarlanır tarama planı.
+ * 1) Canlılık: her host’a önce en çok cihaz bulduran port denenir.
+ *    OPEN/REFUSED = host ayakta; UNREACHABLE (ARP yanıtsız) = host bırakılır.
+ * 2) Kalan portlar önce ayakta olan host’larda, sonra ilk portu zaman aşımına uğrayanlarda
+ *    denenir: yalnızca o portu filtreleyen TV kaçmasın, host ancak tüm portları susunca bırakılır.
+ * 3) Açık portlarda PATHS, başarı sırasına göre denenir; ilk eşleşmede veya
+ *    bağlantı reddi geldiğinde o portun kalan path’leri atlanır.
+ * Connect timeout’ları alt ağda ölçülen RTT’ye göre daralır (RttEstimator).
+ * KnownHostCache verilirse bilinen uç noktalar sweep’ten önce doğrudan denenir,
+ * her cihaz (ip:port ve UDN) listener’a yalnızca bir kez bildirilir.
+ */
+final class ProbeScheduler {
+
+    private static final String TAG = "MiniCast-IPScan";
+
+    private static final long MIN_TIMEOUT_MS = 150;
+    private static final long MAX_TIMEOUT_MS = 800;
+    private static final int READ_TIMEOUT_MS = 800;
+    private static final int FETCH_THREADS = 4;
+
+    // Süreç boyunca biriken isabet sayıları: hangi port/path gerçekten cihaz buldurdu
+    private static final ConcurrentHashMap<Integer, AtomicInteger> portHits = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicInteger> pathHits = new ConcurrentHashMap<>();
+
+    private final int maxConcurrent;
+    private final IpRangeScanner.ResultListener listener;
+    private final int[] ports = rankedPorts();
+    private final String[] paths = rankedPaths();
+    private final RttEstimator rtt = new RttEstimator(MIN_TIMEOUT_MS, MAX_TIMEOUT_MS);
+    private final ExecutorService fetchers = Executors.newFixedThreadPool(FETCH_THREADS);
+    private final Set<InetAddress> alive = ConcurrentHashMap.newKeySet();
+    private final Set<InetAddress> unreachable = ConcurrentHashMap.newKeySet();
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+    private final Set<String> reportedUdns = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connects = new AtomicInteger();
+
+    private final KnownHostCache cache; // null olabilir
+
+    ProbeScheduler(int maxConcurrent, KnownHostCache cache, IpRangeScanner.ResultListener listener) {
+        this.maxConcurrent = maxConcurrent;
+        this.cache = cache;
+        this.listener = listener;
+    }
+
+    void run(List<InetAddress> hosts) {
+        run(hosts, Collections.<InetAddress>emptySet());
+    }
+
+    /**
+     * Taramayı çağıran thread’de yürütür; tüm description GET’ler bitince döner.
+     * knownLive (ör. ARP tablosu) içindeki host’lar canlılık turunu atlayıp tüm portlarıyla ilk turda denenir.
+     */
+    void run(List<InetAddress> hosts, Set<InetAddress> knownLive) {
+        Set<String> scannedIps = new HashSet<>();
+        for (InetAddress h : hosts) scannedIps.add(h.getHostAddress());
+
+        // 0) Önbellekteki uç noktalar: sweep’i beklemeden doğrudan description GET
+        if (cache != null) {
+            for (KnownHostCache.Entry e : cache.entries()) {
+                if (!scannedIps.contains(e.ip)) continue;
+                fetchers.execute(() -> probe(e.ip, e.port, e.path));
+            }
+        }
+
+        try {
+            // 1) Canlılık turu (bilinen canlılar doğrudan tüm portlarla)
+            List<InetSocketAddress> first = new ArrayList<>(hosts.size());
+            for (InetAddress h : hosts) {
+                if (knownLive.contains(h)) {
+                    alive.add(h);
+                    for (int port : ports) first.add(new InetSocketAddress(h, port));
+                } else {
+                    first.add(new InetSocketAddress(h, ports[0]));
+                }
+            }
+            sweep(first);
+
+            // 2) Kalan portlar: önce ayakta çıkanlar, sonra ilk portu susanlar
+            List<InetSocketAddress> rest = new ArrayList<>();
+            List<InetSocketAddress> silent = new ArrayList<>();
+            for (InetAddress h : hosts) {
+                if (knownLive.contains(h) || unreachable.contains(h)) continue;
+                List<InetSocketAddress> to = alive.contains(h) ? rest : silent;
+                for (int i = 1; i < ports.length; i++) to.add(new InetSocketAddress(h, ports[i]));
+            }
+            rest.addAll(silent);
+            sweep(rest);
+        } catch (Exception e) {
+            Log.w(TAG, "sweep error: " + e.getMessage());
+        }
+
+        fetchers.shutdown();
+        try {
+            fetchers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ignore) {
+            Thread.currentThread().interrupt();
+        }
+        if (cache != null) {
+            cache.expire(scannedIps, reported);
+            cache.save();
+        }
+        Log.d(TAG, "hosts=" + hosts.size() + " alive=" + alive.size() + " found=" + reported.size()
+                + " connects=" + connects.get() + " timeout=" + rtt.timeoutMs() + "ms");
+    }
+
+    private void sweep(List<InetSocketAddress> targets) throws Exception {
+        if (targets.isEmpty()) return;
+        connects.addAndGet(targets.size());
+        new ConnectSweep(targets, maxConcurrent, rtt, (target, outcome) -> {
+            if (outcome == ConnectSweep.Outcome.OPEN || outcome == ConnectSweep.Outcome.REFUSED) {
+                alive.add(target.getAddress());
+            } else if (outcome == ConnectSweep.Outcome.UNREACHABLE) {
+                unreachable.add(target.getAddress());
+            }
+            if (outcome == ConnectSweep.Outcome.OPEN) {
+                fetchers.execute(() -> probePaths(target.getAddress().getHostAddress(), target.getPort()));
+            }
+        }).run();
+    }
+
+    /** Açık bulunan port için description path’lerini başarı sırasına göre dener. */
+    private void probePaths(String ip, int port) {
+        if (reported.contains(KnownHostCache.key(ip, port))) return; // önbellekten zaten bildirildi
+        for (String path : paths) {
+            Probe r = probe(ip, port, path);
+            if (r != Probe.MISS) return;
+        }
+    }
+
+    private enum Probe { FOUND, MISS, CLOSED }
+
+    /** Tek bir description URL’ini dener; bulursa listener’a (cihaz başına bir kez) bildirir. */
+    private Probe probe(String ip, int port, String path) {
+        connects.incrementAndGet();
+        try {
+            DescriptionSniffer.Result r = DescriptionSniffer.fetch(
+                    ip, port, path, (int) rtt.timeoutMs(), READ_TIMEOUT_MS);
+            if (r != null) {
+                deliver(ip, port, path, r);
+                return Probe.FOUND;
+            }
+        } catch (ConnectException e) {
+            // Bağlantı reddi: bu portta başka path denemenin anlamı yok (yarıda RST ise sonraki path denenir)
+            return Probe.CLOSED;
+        } catch (Exception ignore) {
+        }
+        return Probe.MISS;
+    }
+
+    private void deliver(String ip, int port, String path, DescriptionSniffer.Result r) {
+        // Aynı TV birden çok portta yanıt verebilir: UDN varsa onunla da tekilleştir
+        boolean first = reported.add(KnownHostCache.key(ip, port));
+        if (r.udn != null) first = reportedUdns.add(r.udn) && first;
+        if (!first) return;
+        recordHit(port, path);
+        if (cache != null) cache.hit(ip, port, path, r.friendlyName);
+        String url = "http://" + ip + ":" + port + path;
+        synchronized (listener) {
+            listener.onDeviceFound(ip, port, url, r.friendlyName);
+        }
+    }
+
+    private static void recordHit(int port, String path) {
+        portHits.computeIfAbsent(port, k -> new AtomicInteger()).incrementAndGet();
+        pathHits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static int hits(ConcurrentHashMap<?, AtomicInteger> map, Object key) {
+        AtomicInteger n = map.get(key);
+        return n != null ? n.get() : 0;
+    }
+
+    /** PORTS, isabet sayısına göre azalan (eşitlikte orijinal) sırada. */
+    static int[] rankedPorts() {
+        Integer[] boxed = new Integer[IpRangeScanner.PORTS.length];
+        for (int i = 0; i < boxed.length; i++) boxed[i] = IpRangeScanner.PORTS[i];
+        Arrays.sort(boxed, (a, b) -> Integer.compare(hits(portHits, b), hits(portHits, a)));
+        int[] out = new int[boxed.length];
+        for (int i = 0; i < out.length; i++) out[i] = boxed[i];
+        return out;
+    }
+
+    /** PATHS, isabet sayısına göre azalan (eşitlikte orijinal) sırada. */
+    static String[] rankedPaths() {
+        String[] out = IpRangeScanner.PATHS.clone();
+        Arrays.sort(out, (a, b) -> Integer.compare(hits(pathHits, b), hits(pathHits, a)));
+        return out;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.minicast;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.minicast.devices.DlnaDevice;
+import com.example.minicast.devices.LastRoute;
+import com.example.minicast.devices.TargetDevice;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Açılışta son rotaya arka planda yeniden bağlanma; SplashActivity başlatır, splash süresince biter.
+ * - Cast: VideoCastManager (oturum sürdürme, olmazsa rotayı doğrudan seçme)
+ * - DLNA: LastRoute.reconnectDlna (control URL doğrulaması; keşif yok)
+ * Cast oturumu süreç boyunca tek VideoCastManager’da tutulur (castManager()).
+ */
+public final class RouteReconnector {
+
+    private static final String TAG = "RouteReconnector";
+
+    public interface Listener {
+        /** Ana thread’de; son DLNA renderer’ı cevap verdi, doğrudan komut gönderilebilir. */
+        void onDlnaReconnected(DlnaDevice device);
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static VideoCastManager castManager;
+    private static volatile DlnaDevice dlnaDevice;
+
+    private RouteReconnector() {}
+
+    /** Ana thread’den, bir kez (sonraki çağrılar etkisiz). */
+    public static synchronized void start(Context ctx) {
+        if (castManager != null) return;
+        Context app = ctx.getApplicationContext();
+        LastRoute.init(app);
+        castManager = new VideoCastManager(app);
+
+        LastRoute last = LastRoute.load(app);
+        if (last == null) return;
+        if (last.type == TargetDevice.DeviceType.CAST) {
+            castManager.reconnectLastRoute(last);
+            return;
+        }
+        Handler main = new Handler(Looper.getMainLooper());
+        last.reconnectDlna(app).whenComplete((device, e) -> {
+            if (e != null) {
+                Log.d(TAG, "DLNA route not reachable: " + e.getMessage());
+                return;
+            }
+            dlnaDevice = device;
+            main.post(() -> {
+                for (Listener l : listeners) l.onDlnaReconnected(device);
+            });
+        });
+    }
+
+    public static synchronized VideoCastManager castManager() {
+        return castManager;
+    }
+
+    /** Yeniden bağlanılan DLNA renderer’ı; henüz yoksa null. */
+    public static DlnaDevice dlnaDevice() {
+        return dlnaDevice;
+    }
+
+    /** Bağlantı zaten kurulduysa hemen (ana thread’de) bildirilir. */
+    public static void addListener(Listener l) {
+        listeners.add(l);
+        DlnaDevice d = dlnaDevice;
+        if (d != null) new Handler(Looper.getMainLooper()).post(() -> l.onDlnaReconnected(d));
+    }
+
+    public static void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+}
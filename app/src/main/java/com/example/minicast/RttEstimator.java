@@ -0,0 +1,39 @@
+package com.example.minicast;
+
+/**
+ * Alt ağ için Jacobson/Karels tarzı RTT tahmini (TCP RTO hesabının aynısı).
+ * timeout = SRTT + 4 * RTTVAR, [minMs, maxMs] aralığına sıkıştırılır.
+ * Hiç örnek yokken maxMs döner; birden çok thread’den güvenle beslenebilir.
+ */
+final class RttEstimator {
+
+    private final long minMs;
+    private final long maxMs;
+
+    private boolean hasSample = false;
+    private double srttMs;
+    private double rttvarMs;
+
+    RttEstimator(long minMs, long maxMs) {
+        this.minMs = minMs;
+        this.maxMs = maxMs;
+    }
+
+    synchronized void sample(long rttNanos) {
+        double r = rttNanos / 1_000_000.0;
+        if (!hasSample) {
+            srttMs = r;
+            rttvarMs = r / 2;
+            hasSample = true;
+        } else {
+            rttvarMs = 0.75 * rttvarMs + 0.25 * Math.abs(srttMs - r);
+            srttMs = 0.875 * srttMs + 0.125 * r;
+        }
+    }
+
+    synchronized long timeoutMs() {
+        if (!hasSample) return maxMs;
+        long t = (long) Math.ceil(srttMs + 4 * rttvarMs);
+        return Math.min(maxMs, Math.max(minMs, t));
+    }
+}
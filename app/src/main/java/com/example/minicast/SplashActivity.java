@@ -20,6 +20,9 @@ public class SplashActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        // Son rotaya bağlanma splash süresince arka planda sürer (seçici diyalog ve keşif olmadan)
+        RouteReconnector.start(this);
+
         ImageView logo = findViewById(R.id.splashLogo);
 
         // Fade-in
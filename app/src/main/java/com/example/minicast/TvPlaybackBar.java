@@ -0,0 +1,116 @@
+package com.example.minicast;
+
+import android.view.View;
+import android.widget.Button;
+import android.widget.SeekBar;
+import android.widget.TextView;
+
+import com.example.minicast.devices.PlaybackClock;
+
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+/**
+ * TV’de oynayan yayının telefondaki çubuğu: oynat/duraklat, seek çubuğu, konum yazısı.
+ * - Konum ağdan değil aynanın PlaybackClock’undan okunur (CastPlaybackMirror / DlnaPlaybackMirror)
+ * - FrameTicker: çubuk her karede, yazı saniyede bir; saat durunca kare istenmez
+ * - Sürüklenirken çubuk saatle güncellenmez, bırakınca tek seek gider
+ * Ana thread’de kullanılır.
+ */
+final class TvPlaybackBar {
+
+    private final View root;
+    private final Button playPause;
+    private final SeekBar seek;
+    private final TextView position;
+
+    private PlaybackClock clock; // bağlı değilse null
+    private LongConsumer seekTo;
+    private Runnable play;
+    private Runnable pause;
+    private boolean dragging = false;
+
+    private final FrameTicker.Listener bar = this::showBar;
+    private final FrameTicker.Listener text = this::showText;
+
+    TvPlaybackBar(View root) {
+        this.root = root;
+        playPause = root.findViewById(R.id.btnTvPlayPause);
+        seek = root.findViewById(R.id.tvSeek);
+        position = root.findViewById(R.id.tvPosition);
+        playPause.setOnClickListener(v -> {
+            if (clock == null) return;
+            if (clock.isPlaying()) pause.run();
+            else play.run();
+        });
+        seek.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override public void onProgressChanged(SeekBar s, int progress, boolean fromUser) {
+                if (fromUser) position.setText(label(progress, s.getMax()));
+            }
+
+            @Override public void onStartTrackingTouch(SeekBar s) {
+                dragging = true;
+            }
+
+            @Override public void onStopTrackingTouch(SeekBar s) {
+                dragging = false;
+                if (clock != null) seekTo.accept(s.getProgress());
+            }
+        });
+    }
+
+    /** Çubuğu bir aynaya bağlar (öncekini bırakır) ve gösterir. */
+    void attach(PlaybackClock clock, LongConsumer seekTo, Runnable play, Runnable pause) {
+        detach();
+        this.clock = clock;
+        this.seekTo = seekTo;
+        this.play = play;
+        this.pause = pause;
+        FrameTicker.get().add(clock, bar);
+        FrameTicker.get().add(clock, text, 1000);
+        root.setVisibility(View.VISIBLE);
+    }
+
+    boolean isAttachedTo(PlaybackClock clock) {
+        return this.clock == clock;
+    }
+
+    /** Oturum bitti / yayın değişti. */
+    void detach() {
+        if (clock == null) return;
+        FrameTicker.get().remove(bar);
+        FrameTicker.get().remove(text);
+        clock = null;
+        seekTo = null;
+        play = null;
+        pause = null;
+        dragging = false;
+        root.setVisibility(View.GONE);
+    }
+
+    private void showBar(long positionMs, long durationMs, boolean playing) {
+        seek.setEnabled(durationMs > 0); // canlı yayında süre yok: seek yok
+        if (dragging) return;
+        seek.setMax(durationMs > 0 ? (int) durationMs : 0);
+        seek.setProgress((int) positionMs);
+    }
+
+    private void showText(long positionMs, long durationMs, boolean playing) {
+        playPause.setText(playing ? "❚❚" : "▶");
+        if (!dragging) position.setText(label(positionMs, durationMs));
+    }
+
+    /** "1:02:03 / 1:30:00", "04:05 / 45:00"; süre bilinmiyorsa yalnızca konum. */
+    static String label(long positionMs, long durationMs) {
+        String p = time(positionMs, durationMs);
+        return durationMs > 0 ? p + " / " + time(durationMs, durationMs) : p;
+    }
+
+    private static String time(long ms, long durationMs) {
+        long s = ms / 1000;
+        if (Math.max(ms, durationMs) >= 3_600_000L) {
+            return String.format(Locale.US, "%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+        }
+        return String.format(Locale.US, "%02d:%02d", s / 60, s % 60);
+    }
+}
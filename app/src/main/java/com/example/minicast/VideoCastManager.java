@@ -1,11 +1,20 @@
 package com.example.minicast;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.Menu;
 import android.view.MenuInflater;
 
 import androidx.mediarouter.app.MediaRouteButton;
+import androidx.mediarouter.media.MediaRouter;
 
+import com.example.minicast.devices.CastDeviceWrapper;
+import com.example.minicast.devices.CastDiscovery;
+import com.example.minicast.devices.LastRoute;
+import com.example.minicast.devices.TargetDevice;
+import com.example.minicast.devices.TargetDeviceRegistry;
+import com.google.android.gms.cast.CastDevice;
 import com.google.android.gms.cast.framework.CastButtonFactory;
 import com.google.android.gms.cast.framework.CastContext;
 import com.google.android.gms.cast.framework.CastSession;
@@ -14,30 +23,66 @@ import com.google.android.gms.cast.framework.SessionManagerListener;
 
 public class VideoCastManager {
 
+    // SessionManager kayıtlı oturumu kendisi sürdürür; bu süre içinde başlamazsa rota doğrudan seçilir
+    private static final long RESUME_GRACE_MS = 1500L;
+    private static final long ROUTE_SEARCH_MS = 10_000L;
+
     private final Context context;
     private CastContext castContext;
     private CastSession castSession;
+    private CastQueue queue; // queueSession’a bağlı; oturum bitince bırakılır
+    private CastSession queueSession;
+    private CastPlaybackMirror mirror; // mirrorSession’a bağlı; oturum bitince bırakılır
+    private CastSession mirrorSession;
+    private boolean resuming = false;
+    private Runnable onSelectedStarted; // select() ile seçilen rotanın oturumu başlayınca bir kez
+    private Runnable onSessionEnded;
     private final SessionManagerListener<CastSession> sessionManagerListener =
             new SessionManagerListener<CastSession>() {
                 @Override
                 public void onSessionStarted(CastSession session, String sessionId) {
                     castSession = session;
+                    remember(session);
+                    Runnable r = onSelectedStarted;
+                    onSelectedStarted = null;
+                    if (r != null) r.run();
+                }
+
+                @Override
+                public void onSessionResuming(CastSession session, String sessionId) {
+                    resuming = true; // reconnectLastRoute rota seçip bu oturumu ezmesin
+                }
+
+                @Override
+                public void onSessionResumed(CastSession session, boolean wasSuspended) {
+                    resuming = false;
+                    castSession = session;
+                    remember(session);
+                }
+
+                @Override
+                public void onSessionResumeFailed(CastSession session, int error) {
+                    resuming = false;
                 }
 
                 @Override
                 public void onSessionEnded(CastSession session, int error) {
                     if (castSession == session) {
                         castSession = null;
+                        releaseQueue();
+                        releaseMirror();
+                        if (onSessionEnded != null) onSessionEnded.run();
                     }
                 }
 
+                @Override
+                public void onSessionStartFailed(CastSession session, int error) {
+                    onSelectedStarted = null;
+                }
+
                 // Other callbacks can remain empty
                 @Override public void onSessionStarting(CastSession session) {}
-                @Override public void onSessionStartFailed(CastSession session, int error) {}
                 @Override public void onSessionEnding(CastSession session) {}
-                @Override public void onSessionResuming(CastSession session, String s) {}
-                @Override public void onSessionResumed(CastSession session, boolean b) {}
-                @Override public void onSessionResumeFailed(CastSession session, int error) {}
                 @Override public void onSessionSuspended(CastSession session, int reason) {}
             };
 
@@ -45,6 +90,75 @@ public class VideoCastManager {
         this.context = context;
         this.castContext = CastContext.getSharedInstance(context);
         this.castContext.getSessionManager().addSessionManagerListener(sessionManagerListener, CastSession.class);
+        // Listener eklenmeden önce sürdürülmüş bir oturum olabilir
+        this.castSession = castContext.getSessionManager().getCurrentCastSession();
+    }
+
+    /**
+     * Açılışta son Cast rotasına seçici diyalogsuz dönüş.
+     * Önce SessionManager’ın kayıtlı oturumu sürdürmesi beklenir (onSessionResuming/Resumed);
+     * RESUME_GRACE_MS içinde oturum yoksa rota MediaRouter’da aranıp doğrudan seçilir.
+     */
+    public void reconnectLastRoute(LastRoute last) {
+        if (last == null || last.type != TargetDevice.DeviceType.CAST) return;
+        Handler main = new Handler(Looper.getMainLooper());
+        main.postDelayed(() -> {
+            if (castSession != null || resuming) return;
+            CastSession current = castContext.getSessionManager().getCurrentCastSession();
+            if (current != null) {
+                castSession = current;
+                return;
+            }
+            selectRoute(last, main);
+        }, RESUME_GRACE_MS);
+    }
+
+    private void selectRoute(LastRoute last, Handler main) {
+        MediaRouter router = MediaRouter.getInstance(context);
+        CastDiscovery[] discovery = new CastDiscovery[1];
+        discovery[0] = new CastDiscovery(context, TargetDeviceRegistry.get(), new CastDiscovery.Listener() {
+            @Override
+            public void onDeviceFound(TargetDevice device) {
+                CastDeviceWrapper w = (CastDeviceWrapper) device;
+                if (w.getRoute() == null || !matches(w, last)) return;
+                discovery[0].stop();
+                if (castSession == null && !resuming) router.selectRoute(w.getRoute());
+            }
+
+            @Override
+            public void onDone() {}
+        });
+        discovery[0].start();
+        main.postDelayed(discovery[0]::stop, ROUTE_SEARCH_MS);
+    }
+
+    /**
+     * Seçiciden (MainActivity) gelen Cast cihazına bağlanır; oturum başlayınca onStarted ana thread’de
+     * çalışır. Rota bilinmiyorsa false.
+     */
+    public boolean select(CastDeviceWrapper device, Runnable onStarted) {
+        if (device == null || device.getRoute() == null) return false;
+        onSelectedStarted = onStarted;
+        MediaRouter.getInstance(context).selectRoute(device.getRoute());
+        return true;
+    }
+
+    /** Aktif oturum bitince ana thread’de çağrılır (ör. MainActivity röleyi kapatır); null kaldırır. */
+    public void setOnSessionEnded(Runnable r) {
+        onSessionEnded = r;
+    }
+
+    private static boolean matches(CastDeviceWrapper w, LastRoute last) {
+        CastDevice d = w.getDevice();
+        if (last.castDeviceId != null && d != null) return last.castDeviceId.equals(d.getDeviceId());
+        return last.castRouteId != null && last.castRouteId.equals(w.getRoute().getId());
+    }
+
+    private void remember(CastSession session) {
+        CastDevice d = session.getCastDevice();
+        MediaRouter.RouteInfo route = MediaRouter.getInstance(context).getSelectedRoute();
+        LastRoute.rememberCast(context, d != null ? d.getDeviceId() : null,
+                route != null ? route.getId() : null, d != null ? d.getFriendlyName() : null);
     }
 
     public void addCastButton(Menu menu, MenuInflater inflater, int menuResourceId, int buttonId) {
@@ -57,9 +171,53 @@ public class VideoCastManager {
         if (castContext != null) {
             castContext.getSessionManager().removeSessionManagerListener(sessionManagerListener, CastSession.class);
         }
+        releaseQueue();
+        releaseMirror();
     }
 
     public CastSession getCastSession() {
         return castSession;
     }
+
+    /**
+     * Aktif oturumun kuyruğu (preload’lı, boşluksuz geçişli); oturum ya da medya kanalı yoksa null.
+     * Oturum değişince yeni örnek döner.
+     */
+    public CastQueue getQueue() {
+        CastSession session = castSession;
+        if (session == null || session.getRemoteMediaClient() == null) return null;
+        if (queue == null || queueSession != session) {
+            releaseQueue();
+            queue = new CastQueue(session.getRemoteMediaClient());
+            queueSession = session;
+        }
+        return queue;
+    }
+
+    private void releaseQueue() {
+        if (queue != null) queue.release();
+        queue = null;
+        queueSession = null;
+    }
+
+    /**
+     * Aktif oturumun oynatma aynası (yerelde yürüyen konum, FrameTicker’a bağlanır);
+     * oturum ya da medya kanalı yoksa null. Oturum değişince yeni örnek döner.
+     */
+    public CastPlaybackMirror getPlaybackMirror() {
+        CastSession session = castSession;
+        if (session == null || session.getRemoteMediaClient() == null) return null;
+        if (mirror == null || mirrorSession != session) {
+            releaseMirror();
+            mirror = new CastPlaybackMirror(session.getRemoteMediaClient());
+            mirrorSession = session;
+        }
+        return mirror;
+    }
+
+    private void releaseMirror() {
+        if (mirror != null) mirror.release();
+        mirror = null;
+        mirrorSession = null;
+    }
 }
@@ -10,15 +10,16 @@ import androidx.mediarouter.media.MediaRouter.RouteInfo;
 import com.google.android.gms.cast.CastDevice;
 import com.google.android.gms.cast.CastMediaControlIntent;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Chromecast keşfi (MediaRouter tabanlı).
  * - RouteInfo + CastDevice birlikte sarılır (CastDeviceWrapper).
  * - Tekrarlayan bildirimleri engellemek için deviceId/routeId ile de-dupe yapılır.
  * - start() anında mevcut rotalar da işlenir (yalnızca callback’e bel bağlamaz).
+ * - Verildiyse TargetDeviceRegistry’ye yazar; kaldırılan rotalar oradan da düşer.
  */
 public class CastDiscovery {
 
@@ -31,12 +32,19 @@ public class CastDiscovery {
     private final MediaRouteSelector selector;
     private final MediaRouter.Callback cb;
     private final Listener listener;
+    private final TargetDeviceRegistry registry;
 
-    private boolean running = false;
-    private final Set<String> seenIds = new HashSet<>();
+    private volatile boolean running = false;
+    private final Set<String> seenIds = ConcurrentHashMap.newKeySet();
 
     public CastDiscovery(Context ctx, Listener listener) {
+        this(ctx, null, listener);
+    }
+
+    /** registry null değilse bulunan/kaldırılan Cast cihazları ortak listeye de yansır. */
+    public CastDiscovery(Context ctx, TargetDeviceRegistry registry, Listener listener) {
         this.listener = listener;
+        this.registry = registry;
         this.router = MediaRouter.getInstance(ctx.getApplicationContext());
         this.selector = new MediaRouteSelector.Builder()
                 .addControlCategory(CastMediaControlIntent.categoryForCast("*"))
@@ -56,9 +64,14 @@ public class CastDiscovery {
             @Override
             public void onRouteRemoved(MediaRouter router, RouteInfo route) {
                 // Silinen route'u tekrar keşfetmeye izin vermek için de-dupe setinden çıkar.
-                if (route != null && route.getId() != null) {
+                if (route == null) return;
+                if (route.getId() != null) {
                     seenIds.remove(route.getId());
                 }
+                // de-dupe anahtarı çoğunlukla deviceId’dir
+                CastDeviceWrapper gone = wrap(route);
+                seenIds.remove(gone.getId());
+                if (registry != null) registry.remove(gone);
             }
         };
     }
@@ -68,20 +81,28 @@ public class CastDiscovery {
         if (!running || route == null) return;
         if (!route.matchesSelector(selector)) return;
 
-        // CastDevice'i extras'tan al
-        Bundle extras = route.getExtras();
-        CastDevice cd = (extras != null) ? CastDevice.getFromBundle(extras) : null;
+        // RouteInfo'yu da sarmala koyuyoruz ki selectRoute yapabilelim
+        CastDeviceWrapper dev = wrap(route);
+
+        // Kayıt değişmeyen güncellemeleri kendisi yutar; ad/IP değişimi oraya da yansısın
+        if (registry != null) registry.put(dev);
 
         // Tekillik anahtarı: öncelik deviceId, yoksa routeId
-        String uniqueId = (cd != null && cd.getDeviceId() != null) ? cd.getDeviceId() : route.getId();
+        String uniqueId = dev.getDevice() != null && dev.getDevice().getDeviceId() != null
+                ? dev.getDevice().getDeviceId() : route.getId();
         if (uniqueId == null) return;
         if (!seenIds.add(uniqueId)) return; // zaten bildirilmiş
 
-        // RouteInfo'yu da sarmala koyuyoruz ki selectRoute yapabilelim
-        TargetDevice dev = new CastDeviceWrapper(cd, route);
         if (listener != null) listener.onDeviceFound(dev);
     }
 
+    /** CastDevice'i extras'tan alıp route ile sarar. */
+    private static CastDeviceWrapper wrap(RouteInfo route) {
+        Bundle extras = route.getExtras();
+        CastDevice cd = (extras != null) ? CastDevice.getFromBundle(extras) : null;
+        return new CastDeviceWrapper(cd, route);
+    }
+
     /** Keşfi başlatır; mevcut rotaları da ilk anda işler. */
     public void start() {
         if (running) return;
@@ -0,0 +1,239 @@
+package com.example.minicast.devices;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parse edilmiş description’ların diskteki önbelleği (cacheDir/dlna_descriptions.json).
+ * - Anahtar: SSDP USN’inin uuid kısmı + LOCATION
+ * - Taze kayıt (BOOTID/CONFIGID aynı, max-age dolmamış) HTTP’siz döner
+ * - Bayat kayıt ETag / Last-Modified ile koşullu GET’le doğrulanır; 304 ise parse atlanır
+ */
+final class DescriptionCache {
+
+    private static final String TAG = "DlnaDiscovery";
+    private static final String FILE = "dlna_descriptions.json";
+    private static final int MAX_ENTRIES = 64;
+
+    private static DescriptionCache instance;
+
+    static synchronized DescriptionCache get(Context ctx) {
+        if (instance == null) instance = new DescriptionCache(new File(ctx.getApplicationContext().getCacheDir(), FILE));
+        return instance;
+    }
+
+    private static final class Entry {
+        final DlnaDevice device;
+        final long bootId;
+        final long configId;
+        final long expiresAt;
+        final String etag;
+        final String lastModified;
+
+        Entry(DlnaDevice device, long bootId, long configId, long expiresAt, String etag, String lastModified) {
+            this.device = device;
+            this.bootId = bootId;
+            this.configId = configId;
+            this.expiresAt = expiresAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    private DescriptionCache(File file) {
+        this.file = file;
+        load();
+    }
+
+    /** USN’in uuid kısmı + LOCATION; aynı cihazın farklı ST yanıtları tek kayda düşer. */
+    static String key(String usn, String location) {
+        String uuid = usn;
+        if (uuid != null) {
+            int i = uuid.indexOf("::");
+            if (i > 0) uuid = uuid.substring(0, i);
+        }
+        return uuid + "|" + location;
+    }
+
+    /**
+     * Taze kayıt varsa HTTP’siz döner ve ömrünü max-age kadar uzatır; yoksa null.
+     * bootId/configId -1 ise (cihaz göndermiyor) yalnızca max-age’e bakılır.
+     */
+    DlnaDevice fresh(String usn, String location, long bootId, long configId, long maxAgeSec) {
+        String k = key(usn, location);
+        Entry e = entries.get(k);
+        if (e == null) return null;
+        long now = System.currentTimeMillis();
+        if (now >= e.expiresAt || bootId != e.bootId || configId != e.configId) return null;
+        entries.put(k, new Entry(e.device, bootId, configId, now + maxAgeSec * 1000L, e.etag, e.lastModified));
+        dirty = true;
+        return e.device;
+    }
+
+    /** Tazeliğe bakmadan önbellekteki cihaz (son rotayı hızlı kurmak için; çağıran doğrular); yoksa null. */
+    DlnaDevice cached(String usn, String location) {
+        Entry e = entries.get(key(usn, location));
+        return e != null ? e.device : null;
+    }
+
+    /** Description’ı (varsa koşullu) çeker, parse eder ve önbelleği günceller. */
+    DlnaDevice fetch(String usn, String location, long bootId, long configId, long maxAgeSec) throws Exception {
+        String k = key(usn, location);
+        Entry old = entries.get(k);
+        URL locUrl = new URL(location);
+
+        HttpURLConnection c = (HttpURLConnection) locUrl.openConnection();
+        c.setConnectTimeout(3000);
+        c.setReadTimeout(3000);
+        c.setUseCaches(false);
+        c.setRequestProperty("Connection", "close");
+        if (old != null) {
+            if (old.etag != null) c.setRequestProperty("If-None-Match", old.etag);
+            if (old.lastModified != null) c.setRequestProperty("If-Modified-Since", old.lastModified);
+        }
+        try {
+            int code = c.getResponseCode();
+            long expiresAt = System.currentTimeMillis() + maxAgeSec * 1000L;
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && old != null) {
+                entries.put(k, new Entry(old.device, bootId, configId, expiresAt, old.etag, old.lastModified));
+                dirty = true;
+                return old.device;
+            }
+            DlnaDevice dev;
+            try (InputStream in = c.getInputStream()) {
+                dev = DescriptionParser.parse(in, locUrl);
+            }
+            if (dev != null) {
+                if (entries.size() >= MAX_ENTRIES && old == null) evictOldest();
+                entries.put(k, new Entry(dev, bootId, configId, expiresAt,
+                        c.getHeaderField("ETag"), c.getHeaderField("Last-Modified")));
+                dirty = true;
+            }
+            return dev;
+        } finally {
+            c.disconnect();
+        }
+    }
+
+    private void evictOldest() {
+        String oldest = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            if (me.getValue().expiresAt < min) {
+                min = me.getValue().expiresAt;
+                oldest = me.getKey();
+            }
+        }
+        if (oldest != null) entries.remove(oldest);
+    }
+
+    /** Değişiklik varsa diske yazar (keşif sonunda çağrılır). */
+    synchronized void save() {
+        if (!dirty) return;
+        dirty = false;
+        try {
+            JSONArray arr = new JSONArray();
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                JSONObject o = new JSONObject();
+                o.put("key", me.getKey());
+                o.put("device", toJson(e.device));
+                o.put("boot", e.bootId);
+                o.put("config", e.configId);
+                o.put("expires", e.expiresAt);
+                if (e.etag != null) o.put("etag", e.etag);
+                if (e.lastModified != null) o.put("lastModified", e.lastModified);
+                arr.put(o);
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                os.write(arr.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (!tmp.renameTo(file)) Log.w(TAG, "cache rename failed");
+        } catch (Exception e) {
+            Log.w(TAG, "cache save error: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            String ln;
+            while ((ln = br.readLine()) != null) sb.append(ln);
+            JSONArray arr = new JSONArray(sb.toString());
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                DlnaDevice dev = fromJson(o.getJSONObject("device"));
+                entries.put(o.getString("key"), new Entry(dev, o.optLong("boot", -1), o.optLong("config", -1),
+                        o.optLong("expires", 0), o.optString("etag", null), o.optString("lastModified", null)));
+            }
+        } catch (Exception e) {
+            // Bozuk dosya: boş önbellekle devam
+            Log.w(TAG, "cache load error: " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    private static JSONObject toJson(DlnaDevice d) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("usn", d.getUsn());
+        o.put("name", d.getFriendlyName());
+        o.put("location", d.getLocationUrl().toString());
+        if (d.getControlUrl() != null) o.put("control", d.getControlUrl().toString());
+        if (d.getDeviceType() != null) o.put("type", d.getDeviceType());
+        JSONArray services = new JSONArray();
+        for (DlnaService s : d.getServices()) {
+            JSONObject so = new JSONObject();
+            if (s.getServiceType() != null) so.put("type", s.getServiceType());
+            if (s.getServiceId() != null) so.put("id", s.getServiceId());
+            if (s.getControlUrl() != null) so.put("control", s.getControlUrl().toString());
+            if (s.getEventSubUrl() != null) so.put("event", s.getEventSubUrl().toString());
+            if (s.getScpdUrl() != null) so.put("scpd", s.getScpdUrl().toString());
+            services.put(so);
+        }
+        o.put("services", services);
+        return o;
+    }
+
+    private static DlnaDevice fromJson(JSONObject o) throws Exception {
+        List<DlnaService> services = new ArrayList<>();
+        JSONArray arr = o.optJSONArray("services");
+        for (int i = 0; arr != null && i < arr.length(); i++) {
+            JSONObject so = arr.getJSONObject(i);
+            services.add(new DlnaService(so.optString("type", null), so.optString("id", null),
+                    url(so.optString("control", null)), url(so.optString("event", null)),
+                    url(so.optString("scpd", null))));
+        }
+        return new DlnaDevice(o.getString("usn"), o.optString("name", null),
+                new URL(o.getString("location")), url(o.optString("control", null)),
+                o.optString("type", null), services);
+    }
+
+    private static URL url(String s) throws Exception {
+        return s != null ? new URL(s) : null;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * UPnP description’ı tek geçişte, akıştan okuyan pull parser.
+ * - Etiketler yerel adla eşleşir: &lt;friendlyName&gt;, &lt;dev:friendlyName&gt;, bildirilmemiş önekler dahil
+ * - deviceList altındaki gömülü cihazlar gezilir; her cihazın tüm servisleri (control/event/SCPD) toplanır
+ * - Renderer seçimi: deviceType MediaRenderer olan, yoksa AVTransport’u olan, yoksa kök cihaz
+ * - Göreli URL’ler URLBase’e (yoksa LOCATION’a) göre çözülür
+ */
+final class DescriptionParser {
+
+    private static final String TAG = "DlnaDiscovery";
+
+    private DescriptionParser() {}
+
+    private static final class ServiceNode {
+        String type, id, control, event, scpd;
+    }
+
+    private static final class DeviceNode {
+        String type, friendlyName, udn;
+        final List<ServiceNode> services = new ArrayList<>();
+    }
+
+    static DlnaDevice parse(InputStream in, URL locationUrl) throws Exception {
+        XmlPullParser p = Xml.newPullParser();
+        // Önekleri kendimiz atıyoruz: bazı TV’ler xmlns bildirmeden "device:" öneki kullanıyor
+        p.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        p.setInput(in, null);
+
+        String urlBase = null;
+        List<DeviceNode> devices = new ArrayList<>(); // belge sırasıyla (kök önce)
+        List<DeviceNode> stack = new ArrayList<>();
+        ServiceNode svc = null;
+
+        for (int ev = p.next(); ev != XmlPullParser.END_DOCUMENT; ev = p.next()) {
+            if (ev == XmlPullParser.END_TAG) {
+                String name = local(p.getName());
+                if (name.equals("device") && !stack.isEmpty()) stack.remove(stack.size() - 1);
+                else if (name.equals("service")) svc = null;
+                continue;
+            }
+            if (ev != XmlPullParser.START_TAG) continue;
+
+            String name = local(p.getName());
+            DeviceNode dev = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+            switch (name) {
+                case "URLBase":
+                case "baseURL":
+                    urlBase = text(p);
+                    break;
+                case "device":
+                    DeviceNode d = new DeviceNode();
+                    devices.add(d);
+                    stack.add(d);
+                    break;
+                case "service":
+                    if (dev != null) {
+                        svc = new ServiceNode();
+                        dev.services.add(svc);
+                    }
+                    break;
+                case "deviceType":
+                    if (dev != null && svc == null) dev.type = text(p);
+                    break;
+                case "friendlyName":
+                    if (dev != null && svc == null) dev.friendlyName = text(p);
+                    break;
+                case "UDN":
+                    if (dev != null && svc == null) dev.udn = text(p);
+                    break;
+                case "serviceType":
+                    if (svc != null) svc.type = text(p);
+                    break;
+                case "serviceId":
+                    if (svc != null) svc.id = text(p);
+                    break;
+                case "controlURL":
+                    if (svc != null) svc.control = text(p);
+                    break;
+                case "eventSubURL":
+                    if (svc != null) svc.event = text(p);
+                    break;
+                case "SCPDURL":
+                    if (svc != null) svc.scpd = text(p);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (devices.isEmpty()) return null;
+
+        DeviceNode root = devices.get(0);
+        DeviceNode chosen = choose(devices);
+
+        String friendly = chosen.friendlyName;
+        if (friendly == null || friendly.isEmpty()) friendly = root.friendlyName;
+        if (friendly == null || friendly.isEmpty()) friendly = "DLNA Cihazı";
+
+        String udn = chosen.udn;
+        if (udn == null || udn.isEmpty()) udn = locationUrl.toString();
+
+        List<DlnaService> services = new ArrayList<>(chosen.services.size());
+        URL avTransport = null;
+        for (ServiceNode s : chosen.services) {
+            DlnaService ds = new DlnaService(s.type, s.id,
+                    resolve(locationUrl, urlBase, s.control),
+                    resolve(locationUrl, urlBase, s.event),
+                    resolve(locationUrl, urlBase, s.scpd));
+            services.add(ds);
+            if (avTransport == null && ds.is(DlnaDevice.AV_TRANSPORT)) avTransport = ds.getControlUrl();
+        }
+
+        Log.d(TAG, "Found device: " + friendly + " (" + udn + ")");
+        Log.d(TAG, "AVTransport controlURL: " + (avTransport != null ? avTransport : "NONE"));
+
+        return new DlnaDevice(udn, friendly, locationUrl, avTransport, chosen.type, services);
+    }
+
+    private static DeviceNode choose(List<DeviceNode> devices) {
+        for (DeviceNode d : devices) {
+            if (d.type != null && d.type.toLowerCase(Locale.US).contains("mediarenderer")) return d;
+        }
+        for (DeviceNode d : devices) {
+            for (ServiceNode s : d.services) {
+                String t = (s.type != null ? s.type : "") + (s.id != null ? s.id : "");
+                if (t.toLowerCase(Locale.US).contains("avtransport")) return d;
+            }
+        }
+        return devices.get(0);
+    }
+
+    /** "dev:friendlyName" → "friendlyName" */
+    private static String local(String name) {
+        int i = name.indexOf(':');
+        return i >= 0 ? name.substring(i + 1) : name;
+    }
+
+    private static String text(XmlPullParser p) throws Exception {
+        String t = p.nextText();
+        return t != null ? t.trim() : null;
+    }
+
+    private static URL resolve(URL locationUrl, String base, String path) {
+        if (path == null || path.isEmpty()) return null;
+        if (base != null && !base.isEmpty()) {
+            try {
+                return new URL(new URL(base), path);
+            } catch (Exception ignore) {
+                // base hatalıysa locationUrl’e göre çöz
+            }
+        }
+        try {
+            return new URL(locationUrl, path);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
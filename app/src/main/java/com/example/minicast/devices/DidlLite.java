@@ -0,0 +1,61 @@
+package com.example.minicast.devices;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SetAVTransportURI için CurrentURIMetaData (DIDL-Lite) üretimi ve Sink listesine göre sürüm seçimi.
+ * Boş metadata’yı reddeden ya da akışı koklamak için saniyelerce bekleyen TV’ler doğru
+ * mime + DLNA bayraklarını görünce ilk denemede oynatır.
+ */
+final class DidlLite {
+
+    private DidlLite() {}
+
+    /** Sink’in kabul ettiği ilk sürüm; liste bilinmiyorsa (boş) ya da hiçbiri uymuyorsa ilk sürüm. */
+    static MediaVariant choose(List<MediaVariant> variants, List<ProtocolInfo> sink) {
+        if (sink.isEmpty()) return variants.get(0);
+        for (MediaVariant v : variants) {
+            if (match(sink, v.getMimeType()) != null) return v;
+        }
+        return variants.get(0);
+    }
+
+    /** Mime’ı kabul eden ilk Sink girdisi; yoksa null. */
+    static ProtocolInfo match(List<ProtocolInfo> sink, String mimeType) {
+        for (ProtocolInfo p : sink) {
+            if (p.accepts(mimeType)) return p;
+        }
+        return null;
+    }
+
+    /** Tek &lt;item&gt;’lı DIDL-Lite; SoapEnvelope değeri escape ederek gönderir. */
+    static String build(String title, MediaVariant v, List<ProtocolInfo> sink) {
+        ProtocolInfo p = match(sink, v.getMimeType());
+        // Sink’in mime yazımı kullanılır: bazı TV’ler birebir karşılaştırır. PN ise Sink’ten kopyalanmaz;
+        // yalnızca sürümün gerçek profili biliniyorsa yazılır (yanlış PN’i reddeden TV’ler var)
+        String mime = p != null && !p.getContentFormat().contains("*") ? p.getContentFormat() : v.getMimeType();
+        String protocolInfo = ProtocolInfo.forResource(mime, v.getProfile());
+
+        StringBuilder sb = new StringBuilder(512)
+                .append("<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\"")
+                .append(" xmlns:dc=\"http://purl.org/dc/elements/1.1/\"")
+                .append(" xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\"")
+                .append(" xmlns:dlna=\"urn:schemas-dlna-org:metadata-1-0/\">")
+                .append("<item id=\"0\" parentID=\"-1\" restricted=\"1\">")
+                .append("<dc:title>").append(SoapEnvelope.xmlEscape(title != null ? title : "MiniCast")).append("</dc:title>")
+                .append("<upnp:class>").append(upnpClass(mime)).append("</upnp:class>")
+                .append("<res protocolInfo=\"").append(SoapEnvelope.xmlEscape(protocolInfo)).append('"');
+        if (v.getSizeBytes() >= 0) sb.append(" size=\"").append(v.getSizeBytes()).append('"');
+        sb.append('>').append(SoapEnvelope.xmlEscape(v.getUrl())).append("</res>")
+                .append("</item></DIDL-Lite>");
+        return sb.toString();
+    }
+
+    private static String upnpClass(String mime) {
+        String m = mime.toLowerCase(Locale.US);
+        if (m.startsWith("audio/")) return "object.item.audioItem.musicTrack";
+        if (m.startsWith("image/")) return "object.item.imageItem.photo";
+        return "object.item.videoItem";
+    }
+}
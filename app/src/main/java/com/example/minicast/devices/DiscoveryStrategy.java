@@ -0,0 +1,124 @@
+package com.example.minicast.devices;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DlnaDiscovery.discover için arama planı.
+ * - budgetMs: SSDP dinleme süresi (sonrasında yalnızca süren description çekimleri beklenir)
+ * - firstRenderer: AVTransport’u olan ilk cihaz parse edilince keşif biter
+ * - mx / retransmits: M-SEARCH turları MX penceresine yayılır, her aralığa jitter eklenir
+ * - narrowOnSsdpAll: ağ ssdp:all’a yanıt veriyorsa sonraki turlarda yalnızca o ST gönderilir
+ */
+public final class DiscoveryStrategy {
+
+    static final String SSDP_ALL = "ssdp:all";
+
+    private static final List<String> DEFAULT_TARGETS = Collections.unmodifiableList(Arrays.asList(
+            "urn:schemas-upnp-org:device:MediaRenderer:1",
+            "urn:schemas-upnp-org:device:MediaRenderer:2",
+            "urn:schemas-upnp-org:device:MediaRenderer:3",
+            "urn:schemas-upnp-org:service:AVTransport:1",
+            "upnp:rootdevice",
+            SSDP_ALL
+    ));
+
+    private static final Random JITTER = new Random();
+
+    final long budgetMs;
+    final boolean firstRenderer;
+    final int mx;
+    final int retransmits;
+    final double jitter;
+    final boolean narrowOnSsdpAll;
+    final List<String> targets;
+
+    private DiscoveryStrategy(Builder b) {
+        this.budgetMs = b.budgetMs;
+        this.firstRenderer = b.firstRenderer;
+        this.mx = b.mx;
+        this.retransmits = b.retransmits;
+        this.jitter = b.jitter;
+        this.narrowOnSsdpAll = b.narrowOnSsdpAll;
+        this.targets = b.targets;
+    }
+
+    /** Eski davranış: 8 sn, 3 tur, tüm ST’ler. */
+    public static DiscoveryStrategy defaults() {
+        return new Builder().build();
+    }
+
+    /** "Her zamanki TV’ye yansıt": MX=1, ilk renderer bulununca biter, en fazla 3 sn. */
+    public static DiscoveryStrategy firstRenderer() {
+        return new Builder()
+                .setBudgetMs(3_000)
+                .setFirstRenderer(true)
+                .setMx(1)
+                .setRetransmits(3)
+                .build();
+    }
+
+    /** Tur aralığı: MX penceresi tur sayısına bölünür, ±jitter ile kaydırılır. */
+    long nextRoundDelayMs() {
+        long base = Math.max(100, mx * 1000L / Math.max(1, retransmits));
+        double j = (JITTER.nextDouble() * 2 - 1) * jitter;
+        return Math.max(50, Math.round(base * (1 + j)));
+    }
+
+    boolean isTarget(String st) {
+        return targets.contains(st);
+    }
+
+    public static final class Builder {
+        private long budgetMs = 8_000;
+        private boolean firstRenderer = false;
+        private int mx = 2;
+        private int retransmits = 3;
+        private double jitter = 0.25;
+        private boolean narrowOnSsdpAll = true;
+        private List<String> targets = DEFAULT_TARGETS;
+
+        public Builder setBudgetMs(long budgetMs) {
+            this.budgetMs = Math.max(100, budgetMs);
+            return this;
+        }
+
+        public Builder setFirstRenderer(boolean firstRenderer) {
+            this.firstRenderer = firstRenderer;
+            return this;
+        }
+
+        /** SSDP MX (1–5 sn): cihazlar yanıtı bu pencereye rastgele yayar. */
+        public Builder setMx(int mx) {
+            this.mx = Math.min(5, Math.max(1, mx));
+            return this;
+        }
+
+        public Builder setRetransmits(int retransmits) {
+            this.retransmits = Math.max(1, retransmits);
+            return this;
+        }
+
+        /** 0–1 arası oran; 0.25 → aralık ±%25 kaydırılır. */
+        public Builder setJitter(double jitter) {
+            this.jitter = Math.min(1, Math.max(0, jitter));
+            return this;
+        }
+
+        public Builder setNarrowOnSsdpAll(boolean narrow) {
+            this.narrowOnSsdpAll = narrow;
+            return this;
+        }
+
+        public Builder setTargets(List<String> targets) {
+            this.targets = Collections.unmodifiableList(targets);
+            return this;
+        }
+
+        public DiscoveryStrategy build() {
+            return new DiscoveryStrategy(this);
+        }
+    }
+}
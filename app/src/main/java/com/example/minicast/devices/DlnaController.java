@@ -0,0 +1,470 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renderer başına asenkron AVTransport / RenderingControl komut motoru.
+ * - Her komut CompletableFuture döner; UI thread’i bloklanmaz
+ * - Cihaz başına sıralı kuyruk, ortak ve sınırlı bir havuzda işlenir (cihaz başına en fazla bir iş)
+ * - Üst üste gelen Seek / SetVolume istekleri birleştirilir: kuyrukta bekleyen aynı komut
+ *   yalnızca son değerle gönderilir, önceki çağıranlar da aynı sonucu alır
+ * - Play/Pause/Stop/SetAVTransportURI sıralama bariyeridir; birleştirme bunların ötesine geçmez
+ * - Yanıtlar SoapResponseParser ile akıştan ayrıştırılır, SOAP hataları SoapFaultException olur
+ * - Oturum (prepare → disconnect) boyunca renderer durumu GENA ile gelir (GenaSubscriber); durum
+ *   dinleyicileri addStateListener ile bağlanır, yoklama gerekmez
+ */
+public final class DlnaController {
+
+    private static final String TAG = "DlnaController";
+    private static final String AV_TRANSPORT_1 = "urn:schemas-upnp-org:service:AVTransport:1";
+    private static final String RENDERING_CONTROL_1 = "urn:schemas-upnp-org:service:RenderingControl:1";
+    private static final String CONNECTION_MANAGER_1 = "urn:schemas-upnp-org:service:ConnectionManager:1";
+
+    private static final int WORKERS = 8; // grup yayınında onlarca renderer’a yayılım için
+    private static final int WORK_QUEUE = 64;
+
+    /** Tüm cihazlar için ortak işçi havuzu; kuyruk sınırlı, boşta thread’ler kapanır. */
+    private static final ThreadPoolExecutor EXECUTOR;
+    static {
+        EXECUTOR = new ThreadPoolExecutor(WORKERS, WORKERS, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORK_QUEUE), r -> new Thread(r, "minicast-dlna-ctl"));
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final long RETRY_MS = 50;
+
+    /** Havuz kuyruğu doluyken cihaz kuyruğunu kısa süre sonra yeniden sıraya koyar; I/O yapmaz. */
+    private static final ScheduledExecutorService RETRY = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minicast-dlna-retry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Map<String, DlnaController> CONTROLLERS = new ConcurrentHashMap<>();
+
+    /** GetPositionInfo sonucu; süreler ms, bilinmiyorsa -1. */
+    public static final class PositionInfo {
+        public final int track;
+        public final long durationMs;
+        public final long positionMs;
+        public final String trackUri;
+
+        PositionInfo(int track, long durationMs, long positionMs, String trackUri) {
+            this.track = track;
+            this.durationMs = durationMs;
+            this.positionMs = positionMs;
+            this.trackUri = trackUri;
+        }
+    }
+
+    /** GetTransportInfo sonucu: PLAYING, PAUSED_PLAYBACK, STOPPED, TRANSITIONING, NO_MEDIA_PRESENT... */
+    public static final class TransportInfo {
+        public final String state;
+        public final String status;
+        public final String speed;
+
+        TransportInfo(String state, String status, String speed) {
+            this.state = state;
+            this.status = status;
+            this.speed = speed;
+        }
+
+        public boolean isPlaying() { return "PLAYING".equals(state); }
+    }
+
+    private interface Mapper<T> {
+        T map(Map<String, String> out) throws IOException;
+    }
+
+    private static final class Command<T> {
+        final String key;      // birleştirme anahtarı; null = bariyer
+        final boolean query;   // Get* sorguları yalnızca kuyruk sonundaki eşiyle birleşir
+        final URL url;
+        final SoapEnvelope envelope;
+        final Mapper<T> mapper;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        String[] args;         // pending kilidi altında değişir
+
+        Command(String key, boolean query, URL url, SoapEnvelope envelope, Mapper<T> mapper, String[] args) {
+            this.key = key;
+            this.query = query;
+            this.url = url;
+            this.envelope = envelope;
+            this.mapper = mapper;
+            this.args = args;
+        }
+    }
+
+    private final DlnaDevice device;
+    private final URL avtUrl;
+    private final URL rcUrl;
+    private final URL cmUrl;
+
+    private final SoapEnvelope setUri, play, pause, stop, seek, getPosition, getTransport;
+    private final SoapEnvelope setVolume, getVolume;
+    private final SoapEnvelope getProtocolInfo;
+
+    /** Sink protocolInfo listesi cihaz başına bir kez sorulur; hata olursa sonraki load’da tekrar. */
+    private volatile CompletableFuture<List<ProtocolInfo>> sinkProtocols;
+
+    /** Oturumun GENA aboneliği; prepare başlatır, disconnect kapatır (this kilidiyle). */
+    private GenaSubscriber events;
+    private final List<GenaSubscriber.Listener> stateListeners = new CopyOnWriteArrayList<>();
+    private final GenaSubscriber.Listener fanOut = new GenaSubscriber.Listener() {
+        @Override public void onStateChanged(DlnaDevice d, Map<String, String> changed) {
+            for (GenaSubscriber.Listener l : stateListeners) l.onStateChanged(d, changed);
+        }
+
+        @Override public void onSubscriptionLost(DlnaDevice d, String service) {
+            for (GenaSubscriber.Listener l : stateListeners) l.onSubscriptionLost(d, service);
+        }
+    };
+
+    private final ArrayDeque<Command<?>> pending = new ArrayDeque<>();
+    private boolean draining = false;
+    private boolean retired = false; // control URL değişti: yerine yenisi kuruldu
+
+    private DlnaController(DlnaDevice device) {
+        this.device = device;
+        DlnaService avt = device.getService(DlnaDevice.AV_TRANSPORT);
+        DlnaService rc = device.getService(DlnaDevice.RENDERING_CONTROL);
+        String avtType = avt != null && avt.getServiceType() != null ? avt.getServiceType() : AV_TRANSPORT_1;
+        String rcType = rc != null && rc.getServiceType() != null ? rc.getServiceType() : RENDERING_CONTROL_1;
+        DlnaService cm = device.getService(DlnaDevice.CONNECTION_MANAGER);
+        String cmType = cm != null && cm.getServiceType() != null ? cm.getServiceType() : CONNECTION_MANAGER_1;
+        this.avtUrl = avt != null && avt.getControlUrl() != null ? avt.getControlUrl() : device.getControlUrl();
+        this.rcUrl = rc != null ? rc.getControlUrl() : null;
+        this.cmUrl = cm != null ? cm.getControlUrl() : null;
+
+        // Zarflar cihazın gerçek servis tipiyle (ör. AVTransport:2) bir kez derlenir
+        setUri = SoapEnvelope.compile(avtType, "SetAVTransportURI", "InstanceID", "CurrentURI", "CurrentURIMetaData");
+        play = SoapEnvelope.compile(avtType, "Play", "InstanceID", "Speed");
+        pause = SoapEnvelope.compile(avtType, "Pause", "InstanceID");
+        stop = SoapEnvelope.compile(avtType, "Stop", "InstanceID");
+        seek = SoapEnvelope.compile(avtType, "Seek", "InstanceID", "Unit", "Target");
+        getPosition = SoapEnvelope.compile(avtType, "GetPositionInfo", "InstanceID");
+        getTransport = SoapEnvelope.compile(avtType, "GetTransportInfo", "InstanceID");
+        setVolume = SoapEnvelope.compile(rcType, "SetVolume", "InstanceID", "Channel", "DesiredVolume");
+        getVolume = SoapEnvelope.compile(rcType, "GetVolume", "InstanceID", "Channel");
+        getProtocolInfo = SoapEnvelope.compile(cmType, "GetProtocolInfo");
+    }
+
+    /**
+     * Cihaz başına tek controller (USN ile); control URL değiştiyse yenisi kurulur ve eskisi emekliye
+     * ayrılır: kuyrukta bekleyen komutları eski adrese gitmez, hata ile tamamlanır.
+     */
+    public static DlnaController of(DlnaDevice device) {
+        DlnaController[] replaced = new DlnaController[1];
+        DlnaController c = CONTROLLERS.compute(device.getUsn(), (usn, old) -> {
+            if (old != null && sameUrl(old.device.getControlUrl(), device.getControlUrl())) return old;
+            replaced[0] = old;
+            return new DlnaController(device);
+        });
+        if (replaced[0] != null) {
+            // Dinleyiciler ve açık oturum yeni adrese taşınır
+            c.stateListeners.addAll(replaced[0].stateListeners);
+            if (replaced[0].retire()) c.startEvents();
+        }
+        return c;
+    }
+
+    public DlnaDevice getDevice() { return device; }
+
+    // ---- oturum / GENA ----
+
+    /** Durum değişimleri (TransportState, Volume...) GenaEventServer thread’inde gelir. */
+    public void addStateListener(GenaSubscriber.Listener l) { stateListeners.add(l); }
+
+    public void removeStateListener(GenaSubscriber.Listener l) { stateListeners.remove(l); }
+
+    /** GENA aboneliği çalışıyorsa true; değilse (oturum yok, eventSubURL yok) durum yoklamayla alınır. */
+    public synchronized boolean hasEvents() {
+        return events != null && events.isRunning();
+    }
+
+    /** Olaylardan bilinen son durum; oturum yoksa boş. */
+    public synchronized Map<String, String> getState() {
+        return events != null ? events.getState() : Collections.<String, String>emptyMap();
+    }
+
+    /** Oturumu kapatır: GENA aboneliği iptal edilir. Komutlar kullanılabilir kalır; sonraki prepare yeniden abone olur. */
+    public synchronized void disconnect() {
+        if (events == null) return;
+        events.stop();
+        events = null;
+    }
+
+    /** prepare başarılı olunca; oturum zaten açıksa abonelik hemen yenilenir (TV onu unutmuş olabilir). */
+    private synchronized void startEvents() {
+        if (events != null) {
+            events.renewNow();
+            return;
+        }
+        events = new GenaSubscriber(device, fanOut);
+        events.start();
+    }
+
+    // ---- AVTransport ----
+
+    public CompletableFuture<Void> setAvTransportUri(String uri, String metadata) {
+        return submit(null, false, avtUrl, setUri, DlnaController::none, "0", uri, metadata != null ? metadata : "");
+    }
+
+    public CompletableFuture<Void> play() {
+        return submit(null, false, avtUrl, play, DlnaController::none, "0", "1");
+    }
+
+    public CompletableFuture<Void> pause() {
+        return submit(null, false, avtUrl, pause, DlnaController::none, "0");
+    }
+
+    public CompletableFuture<Void> stop() {
+        return submit(null, false, avtUrl, stop, DlnaController::none, "0");
+    }
+
+    /** REL_TIME hedefine atlar; sürükleme sırasında art arda çağrılar tek Seek’e iner. */
+    public CompletableFuture<Void> seek(long positionMs) {
+        return submit("Seek", false, avtUrl, seek, DlnaController::none, "0", "REL_TIME", formatTime(positionMs));
+    }
+
+    public CompletableFuture<PositionInfo> getPositionInfo() {
+        return submit("GetPositionInfo", true, avtUrl, getPosition, out -> new PositionInfo(
+                parseInt(out.get("Track"), 0),
+                parseTime(out.get("TrackDuration")),
+                parseTime(out.get("RelTime")),
+                out.get("TrackURI")), "0");
+    }
+
+    public CompletableFuture<TransportInfo> getTransportInfo() {
+        return submit("GetTransportInfo", true, avtUrl, getTransport, out -> new TransportInfo(
+                out.get("CurrentTransportState"),
+                out.get("CurrentTransportStatus"),
+                out.get("CurrentSpeed")), "0");
+    }
+
+    /**
+     * Sink’in kabul ettiği ilk sürümü seçer, eşleşen DIDL-Lite metadata ile SetAVTransportURI + Play gönderir.
+     * Seçilen sürümle tamamlanır.
+     */
+    public CompletableFuture<MediaVariant> load(List<MediaVariant> variants, String title) {
+        return prepare(variants, title).thenCompose(v -> play().thenApply(ignore -> v));
+    }
+
+    /** load()’un Play’siz hali: sürüm seçimi + SetAVTransportURI; başarılıysa oturum (GENA) açılır. */
+    public CompletableFuture<MediaVariant> prepare(List<MediaVariant> variants, String title) {
+        return prepare(variants, title, true);
+    }
+
+    /** session false: grup üyesi (DlnaGroupCast Play’i ayrıca gönderir); GENA açılmaz, son rota yazılmaz. */
+    CompletableFuture<MediaVariant> prepare(List<MediaVariant> variants, String title, boolean session) {
+        if (variants.isEmpty()) {
+            CompletableFuture<MediaVariant> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalArgumentException("no variants"));
+            return f;
+        }
+        return getSinkProtocols()
+                .exceptionally(e -> Collections.emptyList()) // ConnectionManager yoksa tahminle devam
+                .thenCompose(sink -> {
+                    MediaVariant v = DidlLite.choose(variants, sink);
+                    if (!sink.isEmpty() && DidlLite.match(sink, v.getMimeType()) == null) {
+                        Log.w(TAG, device + " advertises no sink for " + v.getMimeType() + ", trying anyway");
+                    }
+                    return setAvTransportUri(v.getUrl(), DidlLite.build(title, v, sink))
+                            .thenApply(ignore -> {
+                                if (session) {
+                                    // Yalnızca tek hedefli oturum: grup üyelerinden biri son rota olmasın
+                                    LastRoute.rememberDlna(device); // sonraki açılışta doğrudan bağlanılsın
+                                    startEvents();
+                                }
+                                return v;
+                            });
+                });
+    }
+
+    /** Kuyruğu atlayan ham Play çağrısı (DlnaGroupCast hepsini tek thread’den aynı anda yazar). */
+    SoapClient.Call playCall() {
+        return avtUrl != null ? new SoapClient.Call(avtUrl, play, "0", "1") : null;
+    }
+
+    // ---- ConnectionManager ----
+
+    /** GetProtocolInfo Sink listesi (önbellekli). */
+    public CompletableFuture<List<ProtocolInfo>> getSinkProtocols() {
+        CompletableFuture<List<ProtocolInfo>> f = sinkProtocols;
+        if (f != null && !f.isCompletedExceptionally()) return f;
+        f = submit("GetProtocolInfo", true, cmUrl, getProtocolInfo,
+                out -> ProtocolInfo.parseList(out.get("Sink")));
+        sinkProtocols = f;
+        return f;
+    }
+
+    // ---- RenderingControl ----
+
+    /** 0-100; art arda ses tıklamaları tek SetVolume’a iner. */
+    public CompletableFuture<Void> setVolume(int volume) {
+        int v = Math.max(0, Math.min(100, volume));
+        return submit("SetVolume", false, rcUrl, setVolume, DlnaController::none, "0", "Master", String.valueOf(v));
+    }
+
+    public CompletableFuture<Integer> getVolume() {
+        return submit("GetVolume", true, rcUrl, getVolume,
+                out -> parseInt(out.get("CurrentVolume"), -1), "0", "Master");
+    }
+
+    // ---- kuyruk ----
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(String key, boolean query, URL url, SoapEnvelope env,
+                                            Mapper<T> mapper, String... args) {
+        if (url == null) {
+            CompletableFuture<T> f = new CompletableFuture<>();
+            f.completeExceptionally(new IOException(env.getAction() + ": service not available"));
+            return f;
+        }
+        synchronized (pending) {
+            if (retired) {
+                CompletableFuture<T> f = new CompletableFuture<>();
+                f.completeExceptionally(new IOException(env.getAction() + ": control URL changed"));
+                return f;
+            }
+            if (key != null) {
+                Iterator<Command<?>> it = pending.descendingIterator();
+                while (it.hasNext()) {
+                    Command<?> c = it.next();
+                    if (key.equals(c.key)) {
+                        c.args = args; // önceki değer artık geçersiz: yalnızca sonuncusu gider
+                        return (CompletableFuture<T>) c.future;
+                    }
+                    if (query || c.key == null) break;
+                }
+            }
+            Command<T> cmd = new Command<>(key, query, url, env, mapper, args);
+            pending.addLast(cmd);
+            if (!draining) {
+                draining = true;
+                schedule();
+            }
+            return cmd.future;
+        }
+    }
+
+    /**
+     * Yeni controller geldiğinde: bekleyen komutlar düşer, çalışan komut kendi sonucunu alır, GENA
+     * aboneliği kapanır. Açık oturum varsa true (yenisi devralır).
+     */
+    private boolean retire() {
+        IOException e = new IOException(device + ": control URL changed");
+        synchronized (pending) {
+            retired = true;
+            Command<?> c;
+            while ((c = pending.pollFirst()) != null) c.future.completeExceptionally(e);
+        }
+        synchronized (this) {
+            boolean open = events != null;
+            disconnect();
+            return open;
+        }
+    }
+
+    /**
+     * pending kilidi altında çağrılır. Havuz kuyruğu doluysa (ör. büyük grup yayını) komutlar
+     * düşürülmez: draining açık kalır ve iş RETRY_MS sonra yeniden sıraya konur.
+     */
+    private void schedule() {
+        try {
+            EXECUTOR.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "command queue full, retrying " + device + " in " + RETRY_MS + " ms");
+            RETRY.schedule(() -> {
+                synchronized (pending) {
+                    schedule();
+                }
+            }, RETRY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Tek komut çalıştırır, kalan varsa kendini yeniden kuyruğa koyar (cihazlar arası adalet). */
+    private void runNext() {
+        Command<?> c;
+        String[] args;
+        synchronized (pending) {
+            c = pending.pollFirst();
+            if (c == null) {
+                draining = false;
+                return;
+            }
+            args = c.args;
+        }
+        execute(c, args);
+        synchronized (pending) {
+            if (pending.isEmpty()) draining = false;
+            else schedule();
+        }
+    }
+
+    private <T> void execute(Command<T> c, String[] args) {
+        try {
+            HttpResponse r = SoapClient.forUrl(c.url).execute(c.url, c.envelope, args);
+            c.future.complete(c.mapper.map(SoapResponseParser.parse(r)));
+        } catch (Exception e) {
+            Log.w(TAG, device + " " + c.envelope.getAction() + " failed: " + e.getMessage());
+            c.future.completeExceptionally(e);
+        }
+    }
+
+    // ---- yardımcılar ----
+
+    private static Void none(Map<String, String> out) { return null; }
+
+    private static boolean sameUrl(URL a, URL b) {
+        return a == null ? b == null : b != null && a.toString().equals(b.toString());
+    }
+
+    private static int parseInt(String s, int def) {
+        if (s == null) return def;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /** ms → "H:MM:SS" (UPnP REL_TIME). */
+    static String formatTime(long ms) {
+        long s = Math.max(0, ms) / 1000;
+        return String.format(Locale.US, "%d:%02d:%02d", s / 3600, (s / 60) % 60, s % 60);
+    }
+
+    /** "H+:MM:SS[.F+]" → ms; "NOT_IMPLEMENTED" veya bozuksa -1. */
+    static long parseTime(String s) {
+        if (s == null) return -1;
+        String[] parts = s.trim().split(":");
+        if (parts.length != 3) return -1;
+        try {
+            long h = Long.parseLong(parts[0]);
+            long m = Long.parseLong(parts[1]);
+            double sec = Double.parseDouble(parts[2]);
+            return (h * 3600 + m * 60) * 1000 + Math.round(sec * 1000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
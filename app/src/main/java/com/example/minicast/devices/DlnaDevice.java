@@ -1,24 +1,70 @@
 package com.example.minicast.devices;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+/** Değişmez DLNA cihaz modeli: kimlik + seçilen (renderer) cihazın tüm servisleri. */
+public class DlnaDevice implements TargetDevice {
+    public static final String AV_TRANSPORT = "AVTransport";
+    public static final String RENDERING_CONTROL = "RenderingControl";
+    public static final String CONNECTION_MANAGER = "ConnectionManager";
 
-public class DlnaDevice {
     private final String usn;
     private final String friendlyName;
     private final URL locationUrl;
     private final URL controlUrl;
+    private final String deviceType;
+    private final List<DlnaService> services;
+    private final String networkInterface;
 
     public DlnaDevice(String usn, String friendlyName, URL locationUrl, URL controlUrl) {
+        this(usn, friendlyName, locationUrl, controlUrl, null, Collections.<DlnaService>emptyList());
+    }
+
+    public DlnaDevice(String usn, String friendlyName, URL locationUrl, URL controlUrl,
+                      String deviceType, List<DlnaService> services) {
+        this(usn, friendlyName, locationUrl, controlUrl, deviceType, services, null);
+    }
+
+    private DlnaDevice(String usn, String friendlyName, URL locationUrl, URL controlUrl,
+                       String deviceType, List<DlnaService> services, String networkInterface) {
         this.usn = usn;
         this.friendlyName = friendlyName;
         this.locationUrl = locationUrl;
         this.controlUrl = controlUrl;
+        this.deviceType = deviceType;
+        this.services = Collections.unmodifiableList(services);
+        this.networkInterface = networkInterface;
+    }
+
+    /** Aynı cihaz, bulunduğu arayüzle etiketli (ör. "wlan0", "eth0"); null ise bilinmiyor. */
+    public DlnaDevice withNetworkInterface(String name) {
+        if (name == null ? networkInterface == null : name.equals(networkInterface)) return this;
+        return new DlnaDevice(usn, friendlyName, locationUrl, controlUrl, deviceType, services, name);
     }
 
     public String getUsn() { return usn; }
     public String getFriendlyName() { return friendlyName; }
     public URL getLocationUrl() { return locationUrl; }
+    /** AVTransport controlURL (SetURI/Play için). */
     public URL getControlUrl() { return controlUrl; }
+    public String getDeviceType() { return deviceType; }
+    public List<DlnaService> getServices() { return services; }
+    /** Keşifte cihaza ulaşılan ağ arayüzü; önbellekten/NOTIFY’dan geldiyse null olabilir. */
+    public String getNetworkInterface() { return networkInterface; }
+
+    /** Kısa adla (ör. DlnaDevice.RENDERING_CONTROL) servis; yoksa null. */
+    public DlnaService getService(String shortType) {
+        for (DlnaService s : services) {
+            if (s.is(shortType)) return s;
+        }
+        return null;
+    }
+
+    @Override public String getId() { return usn; }
+    @Override public String getName() { return friendlyName != null ? friendlyName : usn; }
+    @Override public DeviceType getType() { return DeviceType.DLNA; }
 
-    @Override public String toString() { return friendlyName != null ? friendlyName : usn; }
+    @Override public String toString() { return getName(); }
 }
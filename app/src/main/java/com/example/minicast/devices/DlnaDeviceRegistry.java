@@ -0,0 +1,168 @@
+package com.example.minicast.devices;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * SSDP ile canlı tutulan DLNA cihaz listesi.
+ * - Anahtar: cihaz UUID’i (USN’nin "::" öncesi)
+ * - Kök cihaz ile gömülü MediaRenderer farklı UUID’lerle aynı LOCATION’ı duyurur; ikisi tek kayda
+ *   (aynı Entry’ye iki anahtar) bağlanır, listede TV bir kez görünür
+ * - Her kayıt CACHE-CONTROL max-age kadar yaşar; ssdp:alive süreyi yeniler, ssdp:byebye siler
+ * - snapshot() hazır, değişmez bir liste döner (UI her çağrıda kopya/tarama ödemez)
+ */
+public class DlnaDeviceRegistry {
+
+    public interface Listener {
+        void onDeviceAdded(DlnaDevice device);
+        void onDeviceRemoved(DlnaDevice device);
+    }
+
+    private static final class Entry {
+        final DlnaDevice device;
+        final String location;
+        final long locationHash;
+        volatile long expiresAt;
+
+        Entry(DlnaDevice device, long expiresAt) {
+            this.device = device;
+            this.location = device.getLocationUrl() != null ? device.getLocationUrl().toString() : null;
+            this.locationHash = location != null ? SsdpPacket.hash(location) : 0;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // UUID özeti -> kayıt; NOTIFY tekrarları String oluşturmadan buradan yenilenir (rebuild’de kurulur)
+    private final LongObjectMap<Entry> byHash = new LongObjectMap<>(32);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<DlnaDevice> snapshot = Collections.emptyList();
+
+    public void addListener(Listener l) { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    /** Süresi dolmamış cihazlar; değişmez liste. */
+    public List<DlnaDevice> snapshot() { return snapshot; }
+
+    public boolean contains(String uuid) { return entries.containsKey(uuid); }
+
+    /** SsdpPacket.uuidHash() ile; bu UUID kayıtlı mı (byebye’de String’siz ön kontrol). */
+    synchronized boolean containsHash(long uuidHash) { return byHash.get(uuidHash) != null; }
+
+    /**
+     * Kayıt varsa ömrünü uzatır; yoksa false (çağıran description’ı çekip put etmeli).
+     * Özetlerle çalışır: bilinen cihazın tekrar eden NOTIFY’ı allocation yapmaz.
+     */
+    synchronized boolean touch(long uuidHash, long locationHash, long maxAgeMs) {
+        Entry e = byHash.get(uuidHash);
+        if (e == null) return false;
+        // LOCATION değiştiyse (IP/port değişimi) yeniden çekilmeli
+        if (locationHash != 0 && locationHash != e.locationHash) return false;
+        e.expiresAt = System.currentTimeMillis() + maxAgeMs;
+        return true;
+    }
+
+    void put(String uuid, DlnaDevice device, long maxAgeMs) {
+        long expiresAt = System.currentTimeMillis() + maxAgeMs;
+        Entry old;
+        boolean added;
+        synchronized (this) {
+            Entry twin = twinOf(uuid, device);
+            if (twin != null) {
+                // Aynı description’ın başka UUID’i: yeni cihaz değil, mevcut kayda ikinci anahtar
+                if (twin.expiresAt < expiresAt) twin.expiresAt = expiresAt;
+                old = entries.put(uuid, twin);
+                added = false;
+            } else {
+                Entry fresh = new Entry(device, expiresAt);
+                old = entries.put(uuid, fresh);
+                // Eski kaydın diğer UUID’leri de yeni description’a geçer (LOCATION birlikte değişir)
+                if (old != null) {
+                    for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                        if (me.getValue() == old) me.setValue(fresh);
+                    }
+                }
+                added = true;
+            }
+            if (old != null && entries.containsValue(old)) old = null; // diğer UUID’i hâlâ bağlı
+            rebuild();
+        }
+        if (old != null) fireRemoved(old.device);
+        if (added) fireAdded(device);
+    }
+
+    void remove(String uuid) {
+        Entry old;
+        synchronized (this) {
+            old = entries.remove(uuid);
+            if (old == null || entries.containsValue(old)) return; // diğer UUID’i hâlâ canlı
+            rebuild();
+        }
+        fireRemoved(old.device);
+    }
+
+    /** Süresi dolanları siler. */
+    void expire() {
+        long now = System.currentTimeMillis();
+        Set<Entry> gone = null;
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (e.expiresAt <= now) {
+                    it.remove();
+                    if (gone == null) gone = Collections.newSetFromMap(new IdentityHashMap<>());
+                    gone.add(e);
+                }
+            }
+            if (gone == null) return;
+            rebuild();
+        }
+        for (Entry e : gone) fireRemoved(e.device);
+    }
+
+    void clear() {
+        List<DlnaDevice> gone = new ArrayList<>(snapshot);
+        synchronized (this) {
+            entries.clear();
+            rebuild();
+        }
+        for (DlnaDevice d : gone) fireRemoved(d);
+    }
+
+    /** Başka bir UUID altında aynı LOCATION’dan gelmiş kayıt; yoksa null. */
+    private Entry twinOf(String uuid, DlnaDevice device) {
+        if (device.getLocationUrl() == null) return null;
+        String location = device.getLocationUrl().toString();
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            if (!me.getKey().equals(uuid) && location.equals(me.getValue().location)) return me.getValue();
+        }
+        return null;
+    }
+
+    private synchronized void rebuild() {
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<DlnaDevice> list = new ArrayList<>(entries.size());
+        byHash.clear();
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            byHash.put(SsdpPacket.hash(me.getKey()), me.getValue());
+            if (seen.add(me.getValue())) list.add(me.getValue().device);
+        }
+        snapshot = Collections.unmodifiableList(list);
+    }
+
+    private void fireAdded(DlnaDevice d) {
+        for (Listener l : listeners) l.onDeviceAdded(d);
+    }
+
+    private void fireRemoved(DlnaDevice d) {
+        for (Listener l : listeners) l.onDeviceRemoved(d);
+    }
+}
@@ -4,19 +4,23 @@ import android.content.Context;
 import android.net.wifi.WifiManager;
 import android.util.Log;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.HttpURLConnection;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
-import java.util.Locale;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * DLNA/UPnP SSDP keşfi + AVTransport (SetURI + Play).
@@ -24,8 +28,12 @@ import java.util.Set;
  * - MulticastLock
  * - Geniş ST (MediaRenderer v1/2/3, AVTransport, upnp:rootdevice, ssdp:all)
  * - URLBase/baseURL desteği (controlURL absolute çözümleme)
+ * - Tek geçişli pull parser: gömülü cihazlar ve tüm servisler (DescriptionParser)
  * - USN/UDN bazlı de-dupe
- * - Sağlam HTTP/SOAP (Connection: close, error stream tüketimi)
+ * - Alıcı döngüsü HTTP’de beklemez; description’lar paralel çekilir
+ * - Description önbelleği (BOOTID/CONFIGID, max-age, ETag/Last-Modified)
+ * - Her multicast arayüzünden M-SEARCH, tek Selector’la alım; cihaz arayüzüyle etiketlenir
+ * - Kalıcı bağlantılı SOAP (SoapClient)
  */
 public class DlnaDiscovery {
 
@@ -47,9 +55,36 @@ public class DlnaDiscovery {
                 "ST: " + st + "\r\n\r\n";
     }
 
+    // Description GET + parse için sınırlı worker havuzu
+    private static final int FETCH_THREADS = 4;
+    private static final int FETCH_QUEUE = 64;
+    private static final long FETCH_DRAIN_MS = 7_000; // connect + read timeout’tan biraz fazla
+    static final long DEFAULT_MAX_AGE_SEC = 1800;
+
+    private static final String AV_TRANSPORT_1 = "urn:schemas-upnp-org:service:AVTransport:1";
+    private static final SoapEnvelope SET_AV_TRANSPORT_URI = SoapEnvelope.compile(AV_TRANSPORT_1,
+            "SetAVTransportURI", "InstanceID", "CurrentURI", "CurrentURIMetaData");
+    private static final SoapEnvelope PLAY = SoapEnvelope.compile(AV_TRANSPORT_1, "Play", "InstanceID", "Speed");
+    private static final SoapEnvelope STOP = SoapEnvelope.compile(AV_TRANSPORT_1, "Stop", "InstanceID");
+
     /** Parametresiz, statik ve thread’li keşif — MainActivity burayı çağırıyor. */
     public static void discover(Context ctx, Listener listener) {
+        discover(ctx, DiscoveryStrategy.defaults(), listener);
+    }
+
+    /**
+     * Stratejiye göre keşif. Aşamalar:
+     * - alıcı thread: M-SEARCH turlarını her arayüzden gönderir, tüm kanalları tek Selector’la boşaltır (HTTP beklemez)
+     * - worker havuzu: yeni LOCATION’ların description’ını paralel çeker ve parse eder
+     * - teslim thread’i: Listener çağrılarını tek sırada yapar; onDone her zaman en sonda gelir
+     * firstRenderer modunda AVTransport’lu ilk cihaz teslim edilince keşif hemen biter.
+     */
+    public static void discover(Context ctx, DiscoveryStrategy strategy, Listener listener) {
         new Thread(() -> {
+            ExecutorService delivery = Executors.newSingleThreadExecutor();
+            ThreadPoolExecutor fetchers = new ThreadPoolExecutor(FETCH_THREADS, FETCH_THREADS,
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(FETCH_QUEUE));
+            AtomicBoolean finished = new AtomicBoolean(false);
             WifiManager.MulticastLock lock = null;
             try {
                 WifiManager wm = (WifiManager) ctx.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
@@ -60,264 +95,172 @@ public class DlnaDiscovery {
                 }
 
                 // Daha geniş arama: bazı TV’ler sadece device/2 veya rootdevice yanıtlar
-                final String[] targets = new String[] {
-                        "urn:schemas-upnp-org:device:MediaRenderer:1",
-                        "urn:schemas-upnp-org:device:MediaRenderer:2",
-                        "urn:schemas-upnp-org:device:MediaRenderer:3",
-                        "urn:schemas-upnp-org:service:AVTransport:1",
-                        "upnp:rootdevice",
-                        "ssdp:all"
-                };
+                List<String> targets = strategy.targets;
+                boolean narrowed = false;
 
-                // Aynı cihaz/yanıtı tekrar eklememek için hem LOCATION hem USN takibi
-                Set<String> seenLocation = new HashSet<>();
-                Set<String> seenUsn = new HashSet<>();
+                DescriptionCache cache = DescriptionCache.get(ctx);
 
-                try (DatagramSocket sock = new DatagramSocket()) {
-                    sock.setReuseAddress(true);
-                    sock.setBroadcast(true);
-                    sock.setSoTimeout(1500);
+                // Aynı cihazı tekrar eklememek için uuid + LOCATION takibi (String’siz özetler). USN’in
+                // tamamı olmaz: ssdp:all’a bir renderer kök, cihaz tipi ve her servis için ayrı USN’le
+                // (aynı uuid, aynı LOCATION) 5-8 yanıt verir; her biri ayrı description çekerdi
+                LongHashSet seen = new LongHashSet(64);
+                SsdpPacket pkt = new SsdpPacket();
 
-                    byte[] buf = new byte[8192];
+                try (SsdpInterfaces ifs = SsdpInterfaces.open()) {
+                    InetSocketAddress group = new InetSocketAddress(InetAddress.getByName(SSDP_ADDR), SSDP_PORT);
+                    ByteBuffer buf = ByteBuffer.allocate(8192);
 
-                    long end = System.currentTimeMillis() + 8_000;
+                    long now = System.currentTimeMillis();
+                    long end = now + strategy.budgetMs;
+                    long nextSend = now;
                     int round = 0;
-                    while (System.currentTimeMillis() < end) {
-                        // İlk 3 turda M-SEARCH yayınla
-                        if (round < 3) {
+                    while (!finished.get() && (now = System.currentTimeMillis()) < end) {
+                        // M-SEARCH turları MX penceresine jitter’lı aralıklarla yayılır; her arayüzden
+                        if (round < strategy.retransmits && now >= nextSend) {
                             for (String st : targets) {
-                                byte[] req = msearch(st, 2).getBytes(StandardCharsets.UTF_8);
-                                DatagramPacket dp = new DatagramPacket(
-                                        req, req.length, InetAddress.getByName(SSDP_ADDR), SSDP_PORT);
-                                sock.send(dp);
+                                ifs.sendAll(msearch(st, strategy.mx).getBytes(StandardCharsets.UTF_8), group);
                             }
                             round++;
+                            nextSend = now + strategy.nextRoundDelayMs();
                         }
 
-                        // Cevapları topla
-                        DatagramPacket resp = new DatagramPacket(buf, buf.length);
-                        try {
-                            sock.receive(resp);
-                            String msg = new String(resp.getData(), 0, resp.getLength());
-                            String location = headerValue(msg, "location");
-                            String usn = headerValue(msg, "usn");
-
-                            if (location == null) continue;
-                            boolean firstTime = seenLocation.add(location);
-                            if (usn != null) firstTime = seenUsn.add(usn) || firstTime;
-                            if (!firstTime) continue;
-
-                            try {
-                                URL locUrl = new URL(location);
-                                String xml = httpGet(locUrl);
-                                DlnaDevice dev = parseDevice(xml, locUrl);
-                                if (dev != null && listener != null) listener.onDeviceFound(dev);
-                            } catch (Exception ex) {
-                                Log.w(TAG, "parse error: " + ex.getMessage());
+                        // Cevapları topla: bir sonraki tur veya deadline’a kadar tüm kanalları bekle
+                        long wake = round < strategy.retransmits ? Math.min(nextSend, end) : end;
+                        if (ifs.selector.select(Math.max(10, Math.min(250, wake - now))) == 0) continue;
+
+                        Iterator<SelectionKey> keys = ifs.selector.selectedKeys().iterator();
+                        while (keys.hasNext()) {
+                            SelectionKey key = keys.next();
+                            keys.remove();
+                            SsdpInterfaces.Endpoint ep = (SsdpInterfaces.Endpoint) key.attachment();
+                            // Kanalı boşalt: tek select’te birden çok yanıt birikmiş olabilir
+                            while (!finished.get()) {
+                                buf.clear();
+                                if (ep.channel.receive(buf) == null) break;
+                                pkt.parse(buf.array(), 0, buf.position());
+
+                                // Listede olmayan bir ST geldiyse ağ ssdp:all’a yanıt veriyor: diğer ST’ler gereksiz
+                                if (!narrowed && strategy.narrowOnSsdpAll
+                                        && strategy.isTarget(DiscoveryStrategy.SSDP_ALL)
+                                        && pkt.has(SsdpPacket.ST) && !pkt.valueIn(SsdpPacket.ST, strategy.targets)) {
+                                    targets = Collections.singletonList(DiscoveryStrategy.SSDP_ALL);
+                                    narrowed = true;
+                                }
+
+                                if (!pkt.has(SsdpPacket.LOCATION)) continue;
+                                long deviceKey = deviceKey(pkt);
+                                if (!seen.add(deviceKey)) continue;
+
+                                // Yalnızca yeni cihaz için String oluşturulur
+                                String location = pkt.string(SsdpPacket.LOCATION);
+                                String usn = pkt.string(SsdpPacket.USN);
+                                long bootId = pkt.number(SsdpPacket.BOOTID);
+                                long configId = pkt.number(SsdpPacket.CONFIGID);
+                                long maxAge = pkt.maxAgeSeconds(DEFAULT_MAX_AGE_SEC);
+                                String iface = ep.name;
+
+                                // Önbellekte taze ise HTTP’siz, SSDP yanıtı anında teslim
+                                DlnaDevice cached = cache.fresh(usn, location, bootId, configId, maxAge);
+                                if (cached != null) {
+                                    offer(cached.withNetworkInterface(iface), strategy, finished, delivery, listener);
+                                    continue;
+                                }
+                                try {
+                                    fetchers.execute(() -> {
+                                        try {
+                                            DlnaDevice dev = cache.fetch(usn, location, bootId, configId, maxAge);
+                                            if (dev != null) {
+                                                offer(dev.withNetworkInterface(iface), strategy, finished, delivery, listener);
+                                            }
+                                        } catch (Exception ex) {
+                                            Log.w(TAG, "parse error: " + ex.getMessage());
+                                        }
+                                    });
+                                } catch (RejectedExecutionException full) {
+                                    // Kuyruk dolu: sonraki yanıtta tekrar denensin
+                                    seen.remove(deviceKey);
+                                }
                             }
-                        } catch (Exception ignore) {
-                            // timeout vb.
                         }
                     }
                 }
-                if (listener != null) listener.onDone();
+                if (finished.get()) {
+                    fetchers.shutdownNow(); // ilk renderer bulundu: kalan çekimlere gerek yok
+                } else {
+                    fetchers.shutdown();
+                    fetchers.awaitTermination(FETCH_DRAIN_MS, TimeUnit.MILLISECONDS);
+                }
+                cache.save();
+                // finished kilidi: onDone’dan sonra hiçbir onDeviceFound kuyruğa giremez
+                synchronized (finished) {
+                    finished.set(true);
+                    if (listener != null) delivery.execute(listener::onDone);
+                }
             } catch (Exception e) {
-                if (listener != null) listener.onError(e);
+                fetchers.shutdownNow();
+                synchronized (finished) {
+                    finished.set(true);
+                    if (listener != null) delivery.execute(() -> listener.onError(e));
+                }
             } finally {
+                delivery.shutdown();
                 try { if (lock != null && lock.isHeld()) lock.release(); } catch (Throwable ignore) {}
             }
         }).start();
     }
 
-    private static String headerValue(String raw, String keyLower) {
-        if (raw == null) return null;
-        String[] lines = raw.split("\r?\n");
-        for (String line : lines) {
-            int i = line.indexOf(':');
-            if (i > 0) {
-                String k = line.substring(0, i).trim().toLowerCase(Locale.US);
-                if (k.equals(keyLower)) return line.substring(i + 1).trim();
-            }
-        }
-        return null;
-    }
-
-    private static String httpGet(URL url) throws Exception {
-        HttpURLConnection c = (HttpURLConnection) url.openConnection();
-        c.setConnectTimeout(3000);
-        c.setReadTimeout(3000);
-        c.setRequestProperty("Connection", "close");
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(c.getInputStream()))) {
-            StringBuilder sb = new StringBuilder();
-            String ln;
-            while ((ln = br.readLine()) != null) sb.append(ln).append('\n');
-            return sb.toString();
-        } finally {
-            try { c.getInputStream().close(); } catch (Throwable ignore) {}
-            c.disconnect();
-        }
-    }
-
-    /** Philips-dostu parse: AVTransport controlURL’ü esnek yakalar, absolute URL’e çevirir. */
-    private static DlnaDevice parseDevice(String xml, URL locationUrl) {
-        if (xml == null) return null;
-
-        // FriendlyName
-        String friendly = extract(xml, "<friendlyName>", "</friendlyName>");
-        if (friendly == null) friendly = extract(xml, "<device:friendlyName>", "</device:friendlyName>");
-        if (friendly == null || friendly.isEmpty()) friendly = "DLNA Cihazı";
-
-        // UDN
-        String udn = extract(xml, "<UDN>", "</UDN>");
-        if (udn == null) udn = extract(xml, "<device:UDN>", "</device:UDN>");
-        if (udn == null || udn.isEmpty()) udn = locationUrl.toString();
-
-        // URLBase/baseURL (bazı cihazlar relative path’i buraya göre çözümler)
-        String base = extract(xml, "<URLBase>", "</URLBase>");
-        if (base == null) base = extract(xml, "<baseURL>", "</baseURL>");
-
-        // AVTransport controlURL bul
-        String controlUrl = null;
-        int idx = 0;
-        while (true) {
-            int a = xml.indexOf("<service", idx);
-            if (a < 0) break;
-            int b = xml.indexOf("</service>", a);
-            if (b < 0) break;
-            String svc = xml.substring(a, b);
-            String type = extract(svc, "<serviceType>", "</serviceType>");
-            if (type == null) type = extract(svc, "<service:serviceType>", "</service:serviceType>");
-            String cUrl = extract(svc, "<controlURL>", "</controlURL>");
-            if (cUrl == null) cUrl = extract(svc, "<service:controlURL>", "</service:controlURL>");
-
-            if (type != null && type.toLowerCase(Locale.US).contains("avtransport")) {
-                controlUrl = (cUrl != null ? cUrl.trim() : null);
-                break;
-            }
-            idx = b + 10;
-        }
-        if (controlUrl == null) {
-            controlUrl = findLooseControlUrlForAvTransport(xml);
-        }
-
-        URL abs = null;
-        if (controlUrl != null && !controlUrl.isEmpty()) {
-            try { abs = resolveUrl(locationUrl, base, controlUrl); } catch (Exception ignore) {}
-        }
-
-        Log.d(TAG, "Found device: " + friendly + " (" + udn + ")");
-        Log.d(TAG, "AVTransport controlURL: " + (abs != null ? abs : "NONE"));
-
-        return new DlnaDevice(udn, friendly, locationUrl, abs);
-    }
-
-    private static URL resolveUrl(URL locationUrl, String base, String control) throws Exception {
-        if (base != null && !base.trim().isEmpty()) {
-            try {
-                URL baseUrl = new URL(base.trim());
-                return new URL(baseUrl, control);
-            } catch (Exception ignore) {
-                // base hatalıysa locationUrl’e göre çöz
-            }
-        }
-        return new URL(locationUrl, control);
+    /** USN’in uuid kısmı + LOCATION özeti (DescriptionCache.key ile aynı kimlik); 0 olmaz. */
+    static long deviceKey(SsdpPacket pkt) {
+        long key = pkt.hash(SsdpPacket.LOCATION) * 31 + pkt.uuidHash();
+        return key == 0 ? 1 : key;
     }
 
-    private static String findLooseControlUrlForAvTransport(String xml) {
-        int pos = 0;
-        while (true) {
-            int a = xml.indexOf("<service", pos);
-            if (a < 0) break;
-            int b = xml.indexOf("</service>", a);
-            if (b < 0) break;
-            String svc = xml.substring(a, b);
-            if (svc.toLowerCase(Locale.US).contains("avtransport")) {
-                String cUrl = extract(svc, "<controlURL>", "</controlURL>");
-                if (cUrl == null) cUrl = extract(svc, "<service:controlURL>", "</service:controlURL>");
-                if (cUrl != null && !cUrl.trim().isEmpty()) return cUrl.trim();
-            }
-            pos = b + 10;
+    /** Bulunan cihazı teslim thread’ine bırakır (önbellekten veya worker’dan). */
+    private static void offer(DlnaDevice dev, DiscoveryStrategy strategy, AtomicBoolean finished,
+                              ExecutorService delivery, Listener listener) {
+        if (strategy.firstRenderer && dev.getControlUrl() == null) return;
+        synchronized (finished) {
+            if (finished.get()) return; // keşif bitti veya başka worker önce davrandı
+            if (strategy.firstRenderer) finished.set(true);
+            if (listener != null) delivery.execute(() -> listener.onDeviceFound(dev));
         }
-        return null;
-    }
-
-    private static String extract(String xml, String a, String b) {
-        int i = xml.indexOf(a);
-        if (i < 0) return null;
-        int j = xml.indexOf(b, i + a.length());
-        if (j < 0) return null;
-        return xml.substring(i + a.length(), j).trim();
     }
 
-    /** Basit AVTransport SetURI + Play */
+    /**
+     * AVTransport SetURI + Play. İkisi aynı bağlantıda art arda (pipelined) gider; yani Play,
+     * SetAVTransportURI’nin sonucunu beklemeden cihaza ulaşır. SetURI reddedilirse Play önceki
+     * medyayı başlatmış olabilir: bu durumda ayrıca Stop gönderilir ve false döner.
+     */
     public static boolean setUriAndPlay(URL controlUrl, String mediaUrl) {
         if (controlUrl == null || mediaUrl == null || mediaUrl.isEmpty()) return false;
         try {
-            // SetAVTransportURI
-            String setBody =
-                    "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
-                  + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
-                  + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\">"
-                  + "<s:Body>"
-                  + "<u:SetAVTransportURI xmlns:u=\"urn:schemas-upnp-org:service:AVTransport:1\">"
-                  + "<InstanceID>0</InstanceID>"
-                  + "<CurrentURI>" + xmlEscape(mediaUrl) + "</CurrentURI>"
-                  + "<CurrentURIMetaData></CurrentURIMetaData>"
-                  + "</u:SetAVTransportURI>"
-                  + "</s:Body></s:Envelope>";
-
-            if (!soapPost(controlUrl, "urn:schemas-upnp-org:service:AVTransport:1#SetAVTransportURI", setBody))
+            // Mime URL’den tahmin edilebiliyorsa DIDL-Lite gönder: boş metadata’yı reddeden TV’ler var
+            String mime = LocalMediaServer.guessMimeType(new URL(mediaUrl).getPath());
+            String metadata = mime.equals("application/octet-stream") ? ""
+                    : DidlLite.build(null, new MediaVariant(mediaUrl, mime), Collections.<ProtocolInfo>emptyList());
+            SoapClient soap = SoapClient.forUrl(controlUrl);
+            List<HttpResponse> rs = soap.pipeline(Arrays.asList(
+                    new SoapClient.Call(controlUrl, SET_AV_TRANSPORT_URI, "0", mediaUrl, metadata),
+                    new SoapClient.Call(controlUrl, PLAY, "0", "1")));
+            HttpResponse set = rs.get(0);
+            if (!set.isSuccess()) {
+                Log.w(TAG, "DLNA SetAVTransportURI HTTP " + set.status + ", stopping renderer");
+                try {
+                    soap.execute(controlUrl, STOP, "0");
+                } catch (Exception e) {
+                    Log.w(TAG, "DLNA Stop after failed SetAVTransportURI: " + e.getMessage());
+                }
                 return false;
-
-            // Play
-            String playBody =
-                    "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
-                  + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
-                  + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\">"
-                  + "<s:Body>"
-                  + "<u:Play xmlns:u=\"urn:schemas-upnp-org:service:AVTransport:1\">"
-                  + "<InstanceID>0</InstanceID>"
-                  + "<Speed>1</Speed>"
-                  + "</u:Play>"
-                  + "</s:Body></s:Envelope>";
-
-            return soapPost(controlUrl, "urn:schemas-upnp-org:service:AVTransport:1#Play", playBody);
-
+            }
+            HttpResponse play = rs.get(1);
+            if (!play.isSuccess()) {
+                Log.w(TAG, "DLNA Play HTTP " + play.status);
+                return false;
+            }
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "DLNA play failed: " + e.getMessage());
             return false;
         }
     }
-
-    private static boolean soapPost(URL controlUrl, String action, String body) throws Exception {
-        HttpURLConnection c = (HttpURLConnection) controlUrl.openConnection();
-        c.setConnectTimeout(3000);
-        c.setReadTimeout(3000);
-        c.setRequestMethod("POST");
-        c.setDoOutput(true);
-        c.setRequestProperty("Content-Type", "text/xml; charset=\"utf-8\"");
-        c.setRequestProperty("SOAPAction", "\"" + action + "\"");
-        c.setRequestProperty("Connection", "close");
-        try (OutputStream os = c.getOutputStream()) {
-            os.write(body.getBytes(StandardCharsets.UTF_8));
-        }
-        int code = c.getResponseCode();
-        // Akışı mutlaka tüket (bazı cihazlar bağlantıyı açık tutar)
-        try (InputStream is = (code >= 200 && code < 300) ? c.getInputStream() : c.getErrorStream()) {
-            if (is != null) {
-                byte[] tmp = new byte[256];
-                while (is.read(tmp) > 0) { /* discard */ }
-            }
-        } catch (Throwable ignore) {}
-        c.disconnect();
-        return code >= 200 && code < 300;
-    }
-
-    private static String xmlEscape(String s) {
-        return s.replace("&","&amp;")
-                .replace("<","&lt;")
-                .replace(">","&gt;")
-                .replace("\"","&quot;")
-                .replace("'","&apos;");
-    }
 }
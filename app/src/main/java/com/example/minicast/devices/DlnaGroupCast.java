@@ -0,0 +1,242 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Aynı yayını birden çok DLNA ekranına eşzamanlı başlatır.
+ * 1) Her cihaza DlnaController.prepare (protocolInfo + DIDL-Lite + SetAVTransportURI) paralel gider
+ * 2) GetTransportInfo ile "hazır" durum (STOPPED / PAUSED_PLAYBACK / PLAYING) beklenir; süre sınırlı
+ * 3) Play tek thread’den tüm renderer’lara art arda yazılır (ms içinde), yanıtlar sonra paralel okunur
+ * Cihaz başına thread yok: SOAP işleri controller’ın ortak havuzunda, yoklamalar tek zamanlayıcıda,
+ * Play yanıtları controller havuzunu tıkamamak için ayrı ve sınırlı bir okuma havuzunda.
+ */
+public final class DlnaGroupCast {
+
+    private static final String TAG = "DlnaGroupCast";
+    private static final long POLL_MS = 200;
+    private static final int READERS = 16;
+    private static final int READ_QUEUE = 128;
+
+    /** Hazır-durum yoklamaları için ortak zamanlayıcı (yalnızca gecikme üretir, I/O yapmaz). */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minicast-group-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Play yanıtlarını okuyan sınırlı havuz. Doluysa iş koordinatör thread’inde çalışır
+     * (reddedilmez): en kötü ihtimalle o yanıtlar sırayla okunur.
+     */
+    private static final ThreadPoolExecutor READER;
+    static {
+        READER = new ThreadPoolExecutor(READERS, READERS, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(READ_QUEUE), r -> {
+                    Thread t = new Thread(r, "minicast-group-read");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        READER.allowCoreThreadTimeOut(true);
+    }
+
+    /** Bir renderer’ın sonucu; süreler ms, ulaşılmadıysa -1. */
+    public static final class Member {
+        public final DlnaDevice device;
+        public final MediaVariant variant;
+        public final long prepareMs;
+        public final long playMs;
+        public final boolean preparedInTime;
+        public final Throwable error;
+
+        Member(DlnaDevice device, MediaVariant variant, long prepareMs, long playMs,
+               boolean preparedInTime, Throwable error) {
+            this.device = device;
+            this.variant = variant;
+            this.prepareMs = prepareMs;
+            this.playMs = playMs;
+            this.preparedInTime = preparedInTime;
+            this.error = error;
+        }
+
+        public boolean isPlaying() { return error == null && playMs >= 0; }
+    }
+
+    public static final class Result {
+        public final List<Member> members;
+        /** İlk ve son Play isteğinin yazılması arasındaki süre. */
+        public final long playSpreadMs;
+
+        Result(List<Member> members, long playSpreadMs) {
+            this.members = Collections.unmodifiableList(members);
+            this.playSpreadMs = playSpreadMs;
+        }
+
+        public int playingCount() {
+            int n = 0;
+            for (Member m : members) if (m.isPlaying()) n++;
+            return n;
+        }
+    }
+
+    private DlnaGroupCast() {}
+
+    /**
+     * Tüm cihazlara yayını hazırlar ve birlikte başlatır.
+     * prepareTimeoutMs dolunca SetAVTransportURI’yi kabul etmiş ama hazır durumu bildirmemiş
+     * cihazlara da Play gönderilir (preparedInTime=false).
+     */
+    public static CompletableFuture<Result> start(List<DlnaDevice> devices, List<MediaVariant> variants,
+                                                  String title, long prepareTimeoutMs) {
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        // Tek koordinatör thread’i (cihaz başına değil): bekleme + Play yazma/okuma
+        new Thread(() -> {
+            try {
+                result.complete(run(devices, variants, title, prepareTimeoutMs));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, "minicast-group").start();
+        return result;
+    }
+
+    private static final class Slot {
+        final DlnaController controller;
+        CompletableFuture<Void> prepared;
+        volatile MediaVariant variant;      // SetAVTransportURI kabul edildiyse
+        volatile long preparedAtNanos = -1;
+
+        Slot(DlnaController controller) {
+            this.controller = controller;
+        }
+    }
+
+    private static Result run(List<DlnaDevice> devices, List<MediaVariant> variants, String title,
+                              long prepareTimeoutMs) throws InterruptedException {
+        long t0 = System.nanoTime();
+        long deadline = t0 + TimeUnit.MILLISECONDS.toNanos(prepareTimeoutMs);
+
+        List<Slot> slots = new ArrayList<>(devices.size());
+        for (DlnaDevice d : devices) {
+            DlnaController c = DlnaController.of(d);
+            Slot s = new Slot(c);
+            s.prepared = c.prepare(variants, title, false).thenCompose(v -> {
+                s.variant = v;
+                return awaitPrepared(c, deadline);
+            });
+            s.prepared.thenRun(() -> s.preparedAtNanos = System.nanoTime());
+            slots.add(s);
+        }
+
+        CompletableFuture<?>[] all = new CompletableFuture<?>[slots.size()];
+        for (int i = 0; i < all.length; i++) all[i] = slots.get(i).prepared;
+        try {
+            CompletableFuture.allOf(all).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Log.w(TAG, "prepare timeout, starting anyway");
+        } catch (Exception ignore) {
+            // tek tek hatalar aşağıda üyeye yazılır
+        }
+
+        // Play: önce hepsine yaz, sonra yanıtları topla — başlangıç farkı yazma döngüsü kadar
+        int n = slots.size();
+        SoapClient.Sent[] sent = new SoapClient.Sent[n];
+        Throwable[] errors = new Throwable[n];
+        long firstSend = -1, lastSend = -1;
+        for (int i = 0; i < n; i++) {
+            Slot s = slots.get(i);
+            if (s.variant == null) {
+                // SetAVTransportURI başarısız ya da hâlâ yolda: Play onu geçmesin
+                errors[i] = s.prepared.isCompletedExceptionally() ? cause(s.prepared)
+                        : new TimeoutException("SetAVTransportURI not acknowledged");
+                continue;
+            }
+            SoapClient.Call call = s.controller.playCall();
+            try {
+                sent[i] = SoapClient.forUrl(call.controlUrl).send(call);
+                if (firstSend < 0) firstSend = sent[i].sentAtNanos;
+                lastSend = sent[i].sentAtNanos;
+            } catch (Exception e) {
+                errors[i] = e;
+            }
+        }
+
+        // Yanıtlar paralel beklenir: toplam süre en yavaş renderer kadar (n × okuma zaman aşımı değil)
+        long[] playMs = new long[n];
+        CompletableFuture<?>[] reads = new CompletableFuture<?>[n];
+        for (int i = 0; i < n; i++) {
+            playMs[i] = -1;
+            if (sent[i] == null) {
+                reads[i] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            SoapClient.Sent out = sent[i];
+            int k = i;
+            reads[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    SoapResponseParser.parse(out.receive());
+                    playMs[k] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - out.sentAtNanos);
+                } catch (Exception e) {
+                    errors[k] = e;
+                }
+            }, READER);
+        }
+        CompletableFuture.allOf(reads).join(); // her okuma kendi zaman aşımıyla biter
+
+        List<Member> members = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Slot s = slots.get(i);
+            long prepareMs = s.preparedAtNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(s.preparedAtNanos - t0) : -1;
+            boolean inTime = s.prepared.isDone() && !s.prepared.isCompletedExceptionally();
+            members.add(new Member(s.controller.getDevice(), s.variant, prepareMs, playMs[i], inTime, errors[i]));
+        }
+        long spread = firstSend >= 0 ? TimeUnit.NANOSECONDS.toMillis(lastSend - firstSend) : 0;
+        Result result = new Result(members, spread);
+        Log.d(TAG, "group start: " + result.playingCount() + "/" + n + " playing, spread " + spread + " ms");
+        return result;
+    }
+
+    /** TRANSITIONING / NO_MEDIA_PRESENT bittiğinde tamamlanır; süre dolarsa TimeoutException. */
+    private static CompletableFuture<Void> awaitPrepared(DlnaController c, long deadlineNanos) {
+        return c.getTransportInfo()
+                .handle((ti, e) -> e != null || isPrepared(ti.state)) // GetTransportInfo yoksa SetURI yeterli
+                .thenCompose(ready -> {
+                    if (ready) return CompletableFuture.completedFuture((Void) null);
+                    if (System.nanoTime() >= deadlineNanos) {
+                        CompletableFuture<Void> f = new CompletableFuture<>();
+                        f.completeExceptionally(new TimeoutException(c.getDevice() + " not prepared"));
+                        return f;
+                    }
+                    return delay(POLL_MS).thenCompose(ignore -> awaitPrepared(c, deadlineNanos));
+                });
+    }
+
+    private static boolean isPrepared(String state) {
+        return "STOPPED".equals(state) || "PAUSED_PLAYBACK".equals(state) || "PLAYING".equals(state);
+    }
+
+    private static CompletableFuture<Void> delay(long ms) {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        TIMER.schedule(() -> f.complete(null), ms, TimeUnit.MILLISECONDS);
+        return f;
+    }
+
+    private static Throwable cause(CompletableFuture<?> f) {
+        try {
+            f.join();
+            return null;
+        } catch (Exception e) {
+            return e.getCause() != null ? e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DLNA renderer’ın oynatma durumunun yerel aynası; konum PlaybackClock ile yerelde yürür.
+ * - GetPositionInfo + GetTransportInfo seyrek sorulur: başlangıç/durum değişimi/seek sonrası 1 sn,
+ *   tahmin tuttukça aralık ikiye katlanarak MAX_INTERVAL_MS’e çıkar
+ * - Ölçüm anı isteğin gidiş-dönüşünün ortası kabul edilir (RelTime o arada okunmuştur)
+ * - Oturumun GENA olayları (DlnaController.addStateListener) dinlenir: TransportState değişince
+ *   saat hemen durur/yürür ve konum beklemeden yeniden sorulur
+ */
+public final class DlnaPlaybackMirror {
+
+    private static final String TAG = "DlnaPlaybackMirror";
+    private static final long MIN_INTERVAL_MS = 1_000;
+    private static final long MAX_INTERVAL_MS = 15_000;
+    private static final long DRIFT_TOLERANCE_MS = 1_000; // RelTime saniye çözünürlüklü
+
+    /** Tüm aynaların yoklamaları için ortak tek thread (işin kendisi DlnaController’da). */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minicast-mirror");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final DlnaController controller;
+    private final PlaybackClock clock = new PlaybackClock();
+
+    private volatile boolean running = false;
+    private ScheduledFuture<?> next;
+    private long intervalMs = MIN_INTERVAL_MS;
+    private boolean inFlight = false;
+    private String transportState;
+    private final GenaSubscriber.Listener events = new GenaSubscriber.Listener() {
+        @Override public void onStateChanged(DlnaDevice device, Map<String, String> changed) {
+            String state = changed.get("TransportState");
+            if (state == null) return;
+            clock.setPlaying("PLAYING".equals(state));
+            resync();
+        }
+
+        @Override public void onSubscriptionLost(DlnaDevice device, String service) {
+            resync(); // olay gelmeyebilir: yoklama en kısa aralıktan yeniden başlar
+        }
+    };
+
+    public DlnaPlaybackMirror(DlnaController controller) {
+        this.controller = controller;
+    }
+
+    public DlnaPlaybackMirror(DlnaDevice device) {
+        this(DlnaController.of(device));
+    }
+
+    public PlaybackClock getClock() { return clock; }
+
+    public DlnaController getController() { return controller; }
+
+    /** Son bilinen CurrentTransportState (PLAYING, PAUSED_PLAYBACK, STOPPED...); henüz yoksa null. */
+    public synchronized String getTransportState() { return transportState; }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        intervalMs = MIN_INTERVAL_MS;
+        controller.addStateListener(events);
+        schedule(0);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        controller.removeStateListener(events);
+        if (next != null) next.cancel(false);
+        next = null;
+    }
+
+    /** Durumu hemen yeniden sorar; aralık en kısaya döner (örn. GENA TransportState olayında). */
+    public synchronized void resync() {
+        if (!running) return;
+        intervalMs = MIN_INTERVAL_MS;
+        schedule(0);
+    }
+
+    /** Saati hemen hedefe alır, Seek gönderir; onaydan sonra konum yeniden okunur. */
+    public CompletableFuture<Void> seek(long positionMs) {
+        clock.jump(positionMs);
+        return controller.seek(positionMs).whenComplete((v, e) -> resync());
+    }
+
+    public CompletableFuture<Void> play() {
+        clock.setPlaying(true);
+        return controller.play().whenComplete((v, e) -> resync());
+    }
+
+    public CompletableFuture<Void> pause() {
+        clock.setPlaying(false);
+        return controller.pause().whenComplete((v, e) -> resync());
+    }
+
+    private void schedule(long delayMs) {
+        if (next != null) next.cancel(false);
+        next = SCHEDULER.schedule(this::poll, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        synchronized (this) {
+            if (!running || inFlight) return;
+            inFlight = true;
+        }
+        long sentAt = System.nanoTime();
+        CompletableFuture<DlnaController.PositionInfo> position = controller.getPositionInfo();
+        CompletableFuture<DlnaController.TransportInfo> transport = controller.getTransportInfo();
+        position.thenCombine(transport, (p, t) -> {
+            long measuredAt = sentAt + (System.nanoTime() - sentAt) / 2;
+            apply(p, t, measuredAt);
+            return null;
+        }).whenComplete((v, e) -> {
+            synchronized (this) {
+                inFlight = false;
+                if (e != null) {
+                    Log.w(TAG, controller.getDevice() + " status error: " + e.getMessage());
+                    intervalMs = Math.min(MAX_INTERVAL_MS, intervalMs * 2);
+                }
+                if (running) schedule(intervalMs);
+            }
+        });
+    }
+
+    private void apply(DlnaController.PositionInfo p, DlnaController.TransportInfo t, long measuredAt) {
+        boolean playing = t.isPlaying();
+        double rate = playing ? parseSpeed(t.speed) : 1.0;
+        long predicted = clock.positionMs(measuredAt);
+        boolean wasPlaying = clock.isPlaying();
+        boolean stateChanged;
+        synchronized (this) {
+            stateChanged = transportState == null || !transportState.equals(t.state);
+            transportState = t.state;
+        }
+        if (p.positionMs >= 0) {
+            clock.sync(p.positionMs, p.durationMs, rate, playing, measuredAt, true);
+        } else {
+            clock.setPlaying(playing);
+        }
+        // Tahmin tuttuysa daha seyrek sor; durum değiştiyse ya da saat kaydıysa sık sormaya dön
+        boolean consistent = !stateChanged && wasPlaying == playing && p.positionMs >= 0
+                && Math.abs(predicted - p.positionMs) <= DRIFT_TOLERANCE_MS;
+        synchronized (this) {
+            intervalMs = consistent ? Math.min(MAX_INTERVAL_MS, intervalMs * 2) : MIN_INTERVAL_MS;
+        }
+    }
+
+    /** CurrentSpeed: "1", "2", "-1", "1/2"; okunamazsa 1. */
+    static double parseSpeed(String speed) {
+        if (speed == null || speed.isEmpty()) return 1.0;
+        try {
+            int slash = speed.indexOf('/');
+            if (slash < 0) return Double.parseDouble(speed.trim());
+            double num = Double.parseDouble(speed.substring(0, slash).trim());
+            double den = Double.parseDouble(speed.substring(slash + 1).trim());
+            return den != 0 ? num / den : 1.0;
+        } catch (NumberFormatException ignore) {
+            return 1.0;
+        }
+    }
+}
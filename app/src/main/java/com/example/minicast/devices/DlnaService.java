@@ -0,0 +1,37 @@
+package com.example.minicast.devices;
+
+import java.net.URL;
+import java.util.Locale;
+
+/** Description’daki tek bir &lt;service&gt;: tip, id ve mutlak control/event/SCPD URL’leri. */
+public final class DlnaService {
+    private final String serviceType;
+    private final String serviceId;
+    private final URL controlUrl;
+    private final URL eventSubUrl;
+    private final URL scpdUrl;
+
+    public DlnaService(String serviceType, String serviceId, URL controlUrl, URL eventSubUrl, URL scpdUrl) {
+        this.serviceType = serviceType;
+        this.serviceId = serviceId;
+        this.controlUrl = controlUrl;
+        this.eventSubUrl = eventSubUrl;
+        this.scpdUrl = scpdUrl;
+    }
+
+    public String getServiceType() { return serviceType; }
+    public String getServiceId() { return serviceId; }
+    public URL getControlUrl() { return controlUrl; }
+    public URL getEventSubUrl() { return eventSubUrl; }
+    public URL getScpdUrl() { return scpdUrl; }
+
+    /** "AVTransport", "RenderingControl" gibi kısa adla eşleşme (sürümden bağımsız). */
+    public boolean is(String shortType) {
+        if (serviceType != null && serviceType.toLowerCase(Locale.US).contains(shortType.toLowerCase(Locale.US))) {
+            return true;
+        }
+        return serviceId != null && serviceId.toLowerCase(Locale.US).contains(shortType.toLowerCase(Locale.US));
+    }
+
+    @Override public String toString() { return serviceType + " @ " + controlUrl; }
+}
@@ -0,0 +1,159 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Telefonda GENA NOTIFY geri çağrılarını alan küçük HTTP sunucusu.
+ * - Tek paylaşılan örnek, rastgele portta; son abonelik kalkınca kapanır
+ * - İstekler callback yoluna (/gena/N) göre yönlendirilir: ilk NOTIFY, SUBSCRIBE yanıtı
+ *   (SID) gelmeden ulaşabildiği için SID’e değil yola bakılır
+ * - Keep-alive’lı NOTIFY’lar aynı bağlantıda sırayla işlenir
+ */
+final class GenaEventServer {
+
+    private static final String TAG = "GenaEventServer";
+    private static final int HANDLERS = 2;
+    private static final int HANDLER_QUEUE = 16;
+    private static final int READ_TIMEOUT_MS = 5000;
+    private static final String PATH_PREFIX = "/gena/";
+
+    /** NOTIFY işleyicisi; çağrı sunucu thread’inde yapılır. */
+    interface Handler {
+        /** false dönerse 412 Precondition Failed yanıtlanır (bilinmeyen SID). */
+        boolean onNotify(String sid, long seq, byte[] body);
+    }
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+    private static GenaEventServer instance;
+
+    /** Yeni callback yolu ayırır ("/gena/N"). */
+    static String newPath() {
+        return PATH_PREFIX + NEXT_ID.getAndIncrement();
+    }
+
+    /** Yolu kaydeder; sunucu çalışmıyorsa başlatır. Dönen sunucunun portu CALLBACK’e yazılır. */
+    static synchronized GenaEventServer register(String path, Handler h) throws IOException {
+        if (instance == null) instance = new GenaEventServer();
+        instance.routes.put(path, h);
+        return instance;
+    }
+
+    /** Son yol da kalkınca sunucu kapanır. */
+    static synchronized void unregister(String path) {
+        if (instance == null) return;
+        instance.routes.remove(path);
+        if (instance.routes.isEmpty()) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private final ServerSocket server;
+    private final ThreadPoolExecutor handlers;
+    private final Map<String, Handler> routes = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    private GenaEventServer() throws IOException {
+        server = new ServerSocket(0);
+        handlers = new ThreadPoolExecutor(HANDLERS, HANDLERS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(HANDLER_QUEUE));
+        new Thread(this::acceptLoop, "minicast-gena").start();
+    }
+
+    int getPort() { return server.getLocalPort(); }
+
+    private void close() {
+        running = false;
+        try { server.close(); } catch (IOException ignore) {}
+        handlers.shutdown();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket s = server.accept();
+                try {
+                    handlers.execute(() -> serve(s));
+                } catch (RejectedExecutionException e) {
+                    // Yoğunluk: cihaz NOTIFY’ı tekrar dener ya da SEQ boşluğunda yeniden abone oluruz
+                    try { s.close(); } catch (IOException ignore) {}
+                }
+            } catch (IOException e) {
+                if (running) Log.w(TAG, "accept error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket s) {
+        try {
+            s.setSoTimeout(READ_TIMEOUT_MS);
+            InputStream in = new BufferedInputStream(s.getInputStream(), 4096);
+            OutputStream out = s.getOutputStream();
+            while (true) {
+                String requestLine;
+                try {
+                    requestLine = HttpResponse.readLine(in);
+                } catch (IOException closedOrIdle) {
+                    return;
+                }
+                if (requestLine.isEmpty()) continue;
+                String[] parts = requestLine.split(" ");
+                Map<String, String> headers = HttpResponse.readHeaders(in);
+                byte[] body = HttpResponse.readBody(in, headers);
+                if (body == null) body = new byte[0];
+
+                int status = dispatch(parts, headers, body);
+                boolean close = "close".equalsIgnoreCase(headers.get("connection"))
+                        || (parts.length > 2 && parts[2].equals("HTTP/1.0"));
+                String resp = "HTTP/1.1 " + status + (status == 200 ? " OK" : status == 412
+                        ? " Precondition Failed" : " Bad Request") + "\r\n"
+                        + "Content-Length: 0\r\n"
+                        + (close ? "Connection: close\r\n" : "")
+                        + "\r\n";
+                out.write(resp.getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                if (close) return;
+            }
+        } catch (SocketTimeoutException ignore) {
+            // boşta keep-alive bağlantısı
+        } catch (Exception e) {
+            Log.w(TAG, "notify error: " + e.getMessage());
+        } finally {
+            try { s.close(); } catch (IOException ignore) {}
+        }
+    }
+
+    private int dispatch(String[] requestLine, Map<String, String> headers, byte[] body) {
+        if (requestLine.length < 2 || !requestLine[0].equals("NOTIFY")) return 400;
+        String nt = headers.get("nt");
+        String nts = headers.get("nts");
+        if (!"upnp:event".equals(nt) || !"upnp:propchange".equals(nts)) return 400;
+
+        Handler h = routes.get(requestLine[1]);
+        String sid = headers.get("sid");
+        if (h == null || sid == null) return 412;
+        long seq = -1;
+        try {
+            seq = Long.parseLong(headers.get("seq").trim());
+        } catch (Exception ignore) {
+            // SEQ yoksa sıra kontrolü yapılmaz
+        }
+        return h.onNotify(sid, seq, body) ? 200 : 412;
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renderer durumunu GENA olaylarıyla (push) izler; GetPositionInfo/GetTransportInfo yoklamasına gerek kalmaz.
+ * - AVTransport ve RenderingControl eventSubURL’lerine SUBSCRIBE, süre dolmadan yenileme
+ * - NOTIFY’lar GenaEventServer üzerinden gelir; LastChange yalnızca değişen değişkenleri taşır,
+ *   bunlar cihaz durumuna işlenip Listener’a bildirilir
+ * - SEQ boşluğu veya reddedilen yenilemede sıfırdan abone olunur (ilk olay tüm durumu taşır)
+ */
+public final class GenaSubscriber {
+
+    private static final String TAG = "GenaSubscriber";
+    private static final int REQUESTED_TIMEOUT_SEC = 1800;
+    private static final int RETRY_DELAY_SEC = 30;
+    private static final int HTTP_TIMEOUT_MS = 3000;
+
+    /** Abonelik/yenileme işleri için ortak tek thread. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minicast-gena-renew");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public interface Listener {
+        /**
+         * Bu olayda değişen durum değişkenleri (TransportState, RelativeTimePosition, Volume, Mute...).
+         * GenaEventServer thread’inden çağrılır.
+         */
+        void onStateChanged(DlnaDevice device, Map<String, String> changed);
+
+        /** Abonelik yenilenemedi; arka planda yeniden denenir. */
+        void onSubscriptionLost(DlnaDevice device, String service);
+    }
+
+    private final DlnaDevice device;
+    private final Listener listener;
+    private final Map<String, String> state = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private volatile boolean running = false;
+
+    public GenaSubscriber(DlnaDevice device, Listener listener) {
+        this.device = device;
+        this.listener = listener;
+        for (String type : new String[]{DlnaDevice.AV_TRANSPORT, DlnaDevice.RENDERING_CONTROL}) {
+            DlnaService s = device.getService(type);
+            if (s != null && s.getEventSubUrl() != null) subscriptions.add(new Subscription(type, s.getEventSubUrl()));
+        }
+    }
+
+    public DlnaDevice getDevice() { return device; }
+
+    /** Bilinen son durum (tüm değişkenler). */
+    public Map<String, String> getState() {
+        return Collections.unmodifiableMap(new HashMap<>(state));
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        if (subscriptions.isEmpty()) {
+            Log.w(TAG, device + " has no eventSubURL");
+            return;
+        }
+        running = true;
+        for (Subscription s : subscriptions) SCHEDULER.execute(s::subscribe);
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        for (Subscription s : subscriptions) SCHEDULER.execute(s::unsubscribe);
+    }
+
+    public boolean isRunning() { return running; }
+
+    /**
+     * Süreyi beklemeden yeniler (ör. aynı oturumda yeni medya yüklenirken: TV bekleme modunda aboneliği
+     * unutmuş olabilir). Cihaz SID’i tanımazsa sıfırdan abone olunur.
+     */
+    public void renewNow() {
+        if (!running) return;
+        for (Subscription s : subscriptions) SCHEDULER.execute(s::renew);
+    }
+
+    private final class Subscription implements GenaEventServer.Handler {
+        final String service;
+        final URL eventUrl;
+        final String path = GenaEventServer.newPath();
+
+        volatile String sid;
+        private long nextSeq = 0;
+        private boolean lost = false;
+        private ScheduledFuture<?> timer;
+
+        Subscription(String service, URL eventUrl) {
+            this.service = service;
+            this.eventUrl = eventUrl;
+        }
+
+        /** Sıfırdan SUBSCRIBE (SCHEDULER thread’inde). */
+        void subscribe() {
+            if (!running) return;
+            String old = sid;
+            if (old != null) {
+                // SEQ boşluğu sonrası: eski aboneliği cihazda bırakma
+                try { request("UNSUBSCRIBE", "SID: " + old); } catch (Exception ignore) {}
+            }
+            try {
+                GenaEventServer server = GenaEventServer.register(path, this);
+                String callback = "http://" + LocalRoute.to(eventUrl.getHost()).getHostAddress()
+                        + ":" + server.getPort() + path;
+                synchronized (this) {
+                    sid = null;
+                    nextSeq = 0;
+                }
+                HttpResponse r = request("SUBSCRIBE",
+                        "CALLBACK: <" + callback + ">",
+                        "NT: upnp:event",
+                        "TIMEOUT: Second-" + REQUESTED_TIMEOUT_SEC);
+                if (!r.isSuccess() || r.header("sid") == null) throw new IOException("SUBSCRIBE HTTP " + r.status);
+                sid = r.header("sid");
+                lost = false;
+                scheduleRenewal(timeoutSeconds(r.header("timeout")));
+            } catch (Exception e) {
+                failed(e);
+            }
+        }
+
+        void renew() {
+            if (!running) return;
+            String current = sid;
+            if (current == null) {
+                subscribe();
+                return;
+            }
+            try {
+                HttpResponse r = request("SUBSCRIBE",
+                        "SID: " + current,
+                        "TIMEOUT: Second-" + REQUESTED_TIMEOUT_SEC);
+                if (!r.isSuccess()) {
+                    // 412: cihaz aboneliği unutmuş (ör. yeniden başladı) → sıfırdan
+                    subscribe();
+                    return;
+                }
+                scheduleRenewal(timeoutSeconds(r.header("timeout")));
+            } catch (Exception e) {
+                failed(e);
+            }
+        }
+
+        void unsubscribe() {
+            synchronized (this) {
+                if (timer != null) timer.cancel(false);
+                timer = null;
+            }
+            String current = sid;
+            sid = null;
+            GenaEventServer.unregister(path);
+            if (current == null) return;
+            try {
+                request("UNSUBSCRIBE", "SID: " + current);
+            } catch (Exception ignore) {
+                // cihaz zaten gitmiş olabilir; abonelik süre dolunca düşer
+            }
+        }
+
+        private void failed(Exception e) {
+            if (!running) return;
+            Log.w(TAG, device + " " + service + " subscription error: " + e.getMessage());
+            if (!lost) {
+                lost = true;
+                listener.onSubscriptionLost(device, service);
+            }
+            sid = null;
+            schedule(this::subscribe, RETRY_DELAY_SEC);
+        }
+
+        private void scheduleRenewal(long timeoutSec) {
+            // Süre dolmadan, ağ gecikmesine pay bırakarak yenile
+            schedule(this::renew, Math.max(timeoutSec / 2, timeoutSec - 60));
+        }
+
+        private synchronized void schedule(Runnable r, long delaySec) {
+            if (timer != null) timer.cancel(false);
+            timer = running ? SCHEDULER.schedule(r, delaySec, TimeUnit.SECONDS) : null;
+        }
+
+        @Override
+        public boolean onNotify(String notifySid, long seq, byte[] body) {
+            String current = sid;
+            // İlk olay SUBSCRIBE yanıtından önce gelebilir (sid henüz null)
+            if (current != null && !current.equals(notifySid)) return false;
+            synchronized (this) {
+                if (seq >= 0) {
+                    if (seq != 0 && seq != nextSeq) {
+                        // Olay kaçırıldı: artımlı durum güvenilmez, sıfırdan abone ol
+                        Log.w(TAG, device + " " + service + " SEQ gap " + nextSeq + " → " + seq);
+                        SCHEDULER.execute(this::subscribe);
+                        return true;
+                    }
+                    nextSeq = seq == Integer.MAX_VALUE * 2L + 1 ? 1 : seq + 1; // 32-bit sarma 0’a değil 1’e döner
+                }
+            }
+            Map<String, String> changed = apply(parseEvent(body));
+            if (!changed.isEmpty()) listener.onStateChanged(device, changed);
+            return true;
+        }
+
+        private HttpResponse request(String method, String... headers) throws IOException {
+            int port = eventUrl.getPort() > 0 ? eventUrl.getPort() : eventUrl.getDefaultPort();
+            String file = eventUrl.getFile();
+            StringBuilder sb = new StringBuilder(256)
+                    .append(method).append(' ').append(file.isEmpty() ? "/" : file).append(" HTTP/1.1\r\n")
+                    .append("HOST: ").append(eventUrl.getHost()).append(':').append(port).append("\r\n");
+            for (String h : headers) sb.append(h).append("\r\n");
+            sb.append("Content-Length: 0\r\nConnection: close\r\n\r\n");
+
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress(eventUrl.getHost(), port), HTTP_TIMEOUT_MS);
+                s.setSoTimeout(HTTP_TIMEOUT_MS);
+                OutputStream out = s.getOutputStream();
+                out.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                return HttpResponse.read(new BufferedInputStream(s.getInputStream()), false);
+            }
+        }
+    }
+
+    /** Değişenleri duruma işler ve yalnızca gerçekten farklı olanları döner. */
+    private Map<String, String> apply(Map<String, String> vars) {
+        Map<String, String> changed = new HashMap<>();
+        synchronized (state) {
+            for (Map.Entry<String, String> e : vars.entrySet()) {
+                String old = state.put(e.getKey(), e.getValue());
+                if (!e.getValue().equals(old)) changed.put(e.getKey(), e.getValue());
+            }
+        }
+        return changed;
+    }
+
+    /** &lt;e:propertyset&gt; gövdesi: LastChange içindeki InstanceID 0 değişkenleri + doğrudan property’ler. */
+    static Map<String, String> parseEvent(byte[] body) {
+        Map<String, String> vars = new HashMap<>();
+        try {
+            XmlPullParser p = newParser();
+            p.setInput(new ByteArrayInputStream(body), null);
+            boolean inProperty = false;
+            for (int ev = p.next(); ev != XmlPullParser.END_DOCUMENT; ev = p.next()) {
+                if (ev == XmlPullParser.END_TAG) {
+                    if (local(p.getName()).equals("property")) inProperty = false;
+                    continue;
+                }
+                if (ev != XmlPullParser.START_TAG) continue;
+                String name = local(p.getName());
+                if (name.equals("property")) {
+                    inProperty = true;
+                } else if (inProperty) {
+                    String text = p.nextText();
+                    if (name.equals("LastChange")) parseLastChange(text, vars);
+                    else vars.put(name, text != null ? text.trim() : "");
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "event parse error: " + e.getMessage());
+        }
+        return vars;
+    }
+
+    /** &lt;Event&gt;&lt;InstanceID val="0"&gt;&lt;TransportState val="PLAYING"/&gt;... (kanal varsa yalnızca Master). */
+    private static void parseLastChange(String xml, Map<String, String> vars) throws Exception {
+        if (xml == null || xml.trim().isEmpty()) return;
+        XmlPullParser p = newParser();
+        p.setInput(new StringReader(xml.trim()));
+        boolean instance0 = false;
+        for (int ev = p.next(); ev != XmlPullParser.END_DOCUMENT; ev = p.next()) {
+            if (ev != XmlPullParser.START_TAG) continue;
+            String name = local(p.getName());
+            if (name.equals("InstanceID")) {
+                instance0 = "0".equals(p.getAttributeValue(null, "val"));
+            } else if (instance0 && !name.equals("Event")) {
+                String channel = p.getAttributeValue(null, "channel");
+                if (channel != null && !channel.equalsIgnoreCase("Master")) continue;
+                String val = p.getAttributeValue(null, "val");
+                if (val != null) vars.put(name, val);
+            }
+        }
+    }
+
+    /** Cihazda android.util.Xml ile aynı KXmlParser; JVM birim testinde de (kxml2) çalışır. */
+    private static XmlPullParser newParser() throws XmlPullParserException {
+        XmlPullParser p = XmlPullParserFactory.newInstance().newPullParser();
+        p.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        return p;
+    }
+
+    /** "Second-1800" → 1800; "infinite" / bozuk → istenen süre. */
+    static long timeoutSeconds(String header) {
+        if (header != null) {
+            String h = header.trim().toLowerCase(Locale.US);
+            if (h.startsWith("second-")) {
+                try {
+                    return Math.max(30, Long.parseLong(h.substring(7).trim()));
+                } catch (NumberFormatException ignore) {
+                    // varsayılana düş
+                }
+            }
+        }
+        return REQUESTED_TIMEOUT_SEC;
+    }
+
+    private static String local(String name) {
+        int i = name.indexOf(':');
+        return i >= 0 ? name.substring(i + 1) : name;
+    }
+}
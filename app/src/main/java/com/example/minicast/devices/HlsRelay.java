@@ -0,0 +1,573 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Çerez/Referer/User-Agent isteyen HLS akışlarını TV’ye aktaran yerel HTTP rölesi.
+ * - Playlist’ler her istekte kaynaktan, yakalanan başlıklarla çekilir (canlı yayında değişir, önbelleğe alınmaz);
+ *   içindeki segment, varyant, anahtar ve init (EXT-X-MAP) URI’leri röleye göre yeniden yazılır; canlı
+ *   yayında pencereden düşen URI’lerin kimlikleri bir sonraki yenilemede silinir (yayın başına bellek sınırlı)
+ * - TV bir segment isteyince playlist sırasındaki sonraki DEFAULT_PREFETCH segment arka planda çekilir
+ * - Segmentler tüm yayınlarca paylaşılan, bayt sınırlı LRU önbellekte (SegmentCache); aynı segmente
+ *   eşzamanlı istekler tek kaynak isteğine iner. Geri sarma ve ikinci TV kaynağa gitmez
+ * - getStats(): kaynaktan çekme hızı, TV’ye aktarılan bayt, önbellek isabet oranı
+ */
+public final class HlsRelay {
+
+    private static final String TAG = "HlsRelay";
+    private static final int WORKERS = 8;
+    private static final int WORK_QUEUE = 32;
+    private static final int PREFETCH_WORKERS = 2;
+    private static final int PREFETCH_QUEUE = 16;
+    private static final int IDLE_TIMEOUT_MS = 15_000;
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+    private static final String PATH_PREFIX = "/r/";
+    private static final String MPEGURL = "application/vnd.apple.mpegurl";
+    private static final Pattern URI_ATTR = Pattern.compile("URI=\"([^\"]*)\"");
+
+    public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_PREFETCH = 3;
+
+    private static HlsRelay instance;
+
+    public static synchronized HlsRelay get() throws IOException {
+        if (instance == null) instance = new HlsRelay(DEFAULT_CACHE_BYTES, DEFAULT_PREFETCH);
+        return instance;
+    }
+
+    /** Sayaçların anlık görüntüsü; hızlar bayt/sn. */
+    public static final class Stats {
+        public final long originBytes;
+        public final long originNanos;
+        public final long servedBytes;
+        public final long hits;
+        public final long misses;
+        public final long prefetched;
+        public final long cachedBytes;
+        public final int cachedSegments;
+
+        Stats(long originBytes, long originNanos, long servedBytes, long hits, long misses, long prefetched,
+              long cachedBytes, int cachedSegments) {
+            this.originBytes = originBytes;
+            this.originNanos = originNanos;
+            this.servedBytes = servedBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.prefetched = prefetched;
+            this.cachedBytes = cachedBytes;
+            this.cachedSegments = cachedSegments;
+        }
+
+        /** Kaynaktan indirme hızı (bağlantı başına; indirme sürelerinin toplamına göre). */
+        public double originBytesPerSec() {
+            return originNanos > 0 ? originBytes * 1e9 / originNanos : 0;
+        }
+
+        /** TV isteklerinin kaynağa gitmeden (önbellek ya da süren prefetch) karşılanan oranı. */
+        public double hitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0;
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.US, "origin %.1f Mbit/s (%d KB), served %d KB, hit %.0f%% (%d/%d), "
+                            + "prefetched %d, cache %d KB in %d",
+                    originBytesPerSec() * 8 / 1e6, originBytes / 1024, servedBytes / 1024, hitRate() * 100,
+                    hits, hits + misses, prefetched, cachedBytes / 1024, cachedSegments);
+        }
+    }
+
+    /** Röledeki bir kaynak adresi: playlist’ler her seferinde çekilir, diğerleri önbelleğe girer. */
+    private static final class Ref {
+        final String url;
+        final boolean playlist;
+
+        Ref(String url, boolean playlist) {
+            this.url = url;
+            this.playlist = playlist;
+        }
+    }
+
+    private static final class Session {
+        final Map<String, String> headers;
+        final Map<String, Ref> refs = new ConcurrentHashMap<>();      // id -> kaynak
+        final Map<String, String> ids = new ConcurrentHashMap<>();    // kaynak url -> id
+        // media playlist url -> segment url’leri (son çekilen sırayla); prefetch sırası buradan
+        final Map<String, List<String>> segments = new ConcurrentHashMap<>();
+        // playlist url -> son sürümündeki URI’ler / bir önceki yenilemede düşenler (TV’nin elindeki eski
+        // playlist bir tur daha çözülebilsin diye hemen silinmez)
+        private final Map<String, Set<String>> listed = new HashMap<>();
+        private final Map<String, Set<String>> dropped = new HashMap<>();
+        final AtomicInteger nextId = new AtomicInteger(1);
+
+        Session(String manifestUrl, Map<String, String> headers) {
+            this.headers = headers;
+            refs.put("0", new Ref(manifestUrl, true));
+            ids.put(manifestUrl, "0");
+        }
+
+        /** Playlist içine yazılacak göreli yol ("12.ts"); TV bunu playlist adresine göre çözer. */
+        String path(String url, boolean playlist) {
+            String id = ids.computeIfAbsent(url, u -> {
+                String n = Integer.toString(nextId.getAndIncrement());
+                refs.put(n, new Ref(u, playlist));
+                return n;
+            });
+            return id + "." + (playlist ? "m3u8" : extensionOf(url));
+        }
+
+        /** Playlist yeniden yazıldı: iki yenilemedir hiçbir playlist’te olmayan URI’ler unutulur. */
+        synchronized void relisted(String playlistUrl, Set<String> uris) {
+            Set<String> before = listed.put(playlistUrl, uris);
+            Set<String> gone = new HashSet<>();
+            if (before != null) {
+                for (String u : before) if (!uris.contains(u)) gone.add(u);
+            }
+            Set<String> expired = dropped.put(playlistUrl, gone);
+            if (expired == null) return;
+            for (String u : expired) {
+                if (isListed(u) || "0".equals(ids.get(u))) continue; // manifest yayın boyunca kalır
+                String id = ids.remove(u);
+                if (id != null) refs.remove(id);
+            }
+        }
+
+        private boolean isListed(String url) {
+            for (Set<String> set : listed.values()) if (set.contains(url)) return true;
+            return false;
+        }
+
+        /** Segmentten sonra gelen en fazla n segment. */
+        List<String> after(String url, int n) {
+            for (List<String> list : segments.values()) {
+                int i = list.indexOf(url);
+                if (i >= 0) return list.subList(i + 1, Math.min(list.size(), i + 1 + n));
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor prefetcher;
+    private final SegmentCache cache;
+    private final int prefetch;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SegmentCache.Entry>> inFlight = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean running = true;
+
+    private final AtomicLong originBytes = new AtomicLong();
+    private final AtomicLong originNanos = new AtomicLong();
+    private final AtomicLong servedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong prefetched = new AtomicLong();
+
+    HlsRelay(long cacheBytes, int prefetch) throws IOException {
+        this.cache = new SegmentCache(cacheBytes);
+        this.prefetch = prefetch;
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(0));
+        workers = new ThreadPoolExecutor(WORKERS, WORKERS, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORK_QUEUE), r -> daemon(r, "minicast-relay"));
+        workers.allowCoreThreadTimeOut(true);
+        // Kuyruk doluysa prefetch atlanır; TV’nin kendi isteği yine de kaynağa gider
+        prefetcher = new ThreadPoolExecutor(PREFETCH_WORKERS, PREFETCH_WORKERS, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PREFETCH_QUEUE), r -> daemon(r, "minicast-relay-prefetch"),
+                new ThreadPoolExecutor.DiscardPolicy());
+        prefetcher.allowCoreThreadTimeOut(true);
+        daemon(this::acceptLoop, "minicast-relay-accept").start();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+
+    /**
+     * HLS manifest’ini başlıklarıyla (Cookie, Referer, User-Agent...) yayınlar; dönen URL targetHost’a
+     * (TV’nin IP’si) giden arayüzün adresini taşır ve Cast/DLNA’ya doğrudan verilebilir.
+     */
+    public String publish(String manifestUrl, Map<String, String> headers, String targetHost) throws IOException {
+        byte[] b = new byte[12];
+        random.nextBytes(b);
+        StringBuilder token = new StringBuilder(24);
+        for (byte x : b) token.append(String.format(Locale.US, "%02x", x));
+        sessions.put(token.toString(), new Session(manifestUrl, headers != null ? headers : Collections.emptyMap()));
+
+        String host = LocalRoute.to(targetHost).getHostAddress();
+        return "http://" + host + ":" + getPort() + PATH_PREFIX + token + "/0.m3u8";
+    }
+
+    /** Yayını kapatır; önbellekteki segmentler diğer yayınlar için kalır. */
+    public void unpublish(String url) {
+        String token = tokenOf(url);
+        if (token != null && sessions.remove(token) != null) Log.d(TAG, "unpublished, " + getStats());
+    }
+
+    public Stats getStats() {
+        return new Stats(originBytes.get(), originNanos.get(), servedBytes.get(), hits.get(), misses.get(),
+                prefetched.get(), cache.sizeBytes(), cache.count());
+    }
+
+    public synchronized void stop() {
+        running = false;
+        sessions.clear();
+        cache.clear();
+        try { server.close(); } catch (IOException ignore) {}
+        workers.shutdownNow();
+        prefetcher.shutdownNow();
+        synchronized (HlsRelay.class) {
+            if (instance == this) instance = null;
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel ch = server.accept();
+                try {
+                    workers.execute(() -> serve(ch));
+                } catch (RejectedExecutionException e) {
+                    close(ch);
+                }
+            } catch (IOException e) {
+                if (running) Log.w(TAG, "accept error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel ch) {
+        try {
+            ch.socket().setSoTimeout(IDLE_TIMEOUT_MS);
+            ch.socket().setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(ch.socket().getInputStream(), 4096);
+            while (running) {
+                String requestLine;
+                try {
+                    requestLine = HttpResponse.readLine(in);
+                } catch (IOException closedOrIdle) {
+                    return;
+                }
+                if (requestLine.isEmpty()) continue;
+                Map<String, String> headers = HttpResponse.readHeaders(in);
+                if (!handle(ch, requestLine.split(" "), headers)) return;
+            }
+        } catch (SocketTimeoutException ignore) {
+            // boşta keep-alive bağlantısı
+        } catch (IOException e) {
+            Log.d(TAG, "connection closed: " + e.getMessage());
+        } finally {
+            close(ch);
+        }
+    }
+
+    /** Bağlantı açık kalacaksa true. */
+    private boolean handle(SocketChannel ch, String[] req, Map<String, String> headers) throws IOException {
+        boolean close = "close".equalsIgnoreCase(headers.get("connection"))
+                || (req.length > 2 && req[2].equals("HTTP/1.0"));
+        if (req.length < 2 || !(req[0].equals("GET") || req[0].equals("HEAD"))) {
+            sendEmpty(ch, 405, "Method Not Allowed", true);
+            return false;
+        }
+        Session s = sessions.get(String.valueOf(tokenOf(req[1])));
+        Ref ref = s != null ? s.refs.get(String.valueOf(idOf(req[1]))) : null;
+        if (ref == null) {
+            sendEmpty(ch, 404, "Not Found", close);
+            return !close;
+        }
+        boolean head = req[0].equals("HEAD");
+
+        if (ref.playlist) {
+            byte[] body;
+            try {
+                body = playlist(s, ref.url).getBytes(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Log.w(TAG, "playlist error: " + e.getMessage());
+                sendEmpty(ch, 502, "Bad Gateway", close);
+                return !close;
+            }
+            sendHeaders(ch, 200, "OK", "Content-Type: " + MPEGURL + "\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Cache-Control: no-cache\r\n", close);
+            if (!head) write(ch, body, 0, body.length);
+            return !close;
+        }
+
+        for (String next : s.after(ref.url, prefetch)) schedulePrefetch(s, next);
+        SegmentCache.Entry e;
+        try {
+            e = resource(s, ref.url, false);
+        } catch (IOException ex) {
+            Log.w(TAG, "segment error: " + ex.getMessage());
+            sendEmpty(ch, 502, "Bad Gateway", close);
+            return !close;
+        }
+
+        int length = e.data.length;
+        int start = 0, end = length - 1;
+        boolean partial = false;
+        String range = headers.get("range");
+        if (range != null) {
+            long[] r = LocalMediaServer.parseRange(range, length);
+            if (r == null) {
+                sendHeaders(ch, 416, "Range Not Satisfiable", "Content-Range: bytes */" + length + "\r\n"
+                        + "Content-Length: 0\r\n", close);
+                return !close;
+            }
+            start = (int) r[0];
+            end = (int) r[1];
+            partial = true;
+        }
+        int count = length == 0 ? 0 : end - start + 1;
+        StringBuilder h = new StringBuilder(192)
+                .append("Content-Type: ").append(e.mimeType).append("\r\n")
+                .append("Content-Length: ").append(count).append("\r\n")
+                .append("Accept-Ranges: bytes\r\n");
+        if (partial) h.append("Content-Range: bytes ").append(start).append('-').append(end)
+                .append('/').append(length).append("\r\n");
+        if (partial) sendHeaders(ch, 206, "Partial Content", h.toString(), close);
+        else sendHeaders(ch, 200, "OK", h.toString(), close);
+        if (!head) {
+            write(ch, e.data, start, count);
+            servedBytes.addAndGet(count);
+        }
+        return !close;
+    }
+
+    /** Playlist’i kaynaktan çekip URI’leri röleye çevirir; media playlist’in segment sırasını saklar. */
+    private String playlist(Session s, String url) throws IOException {
+        String[] finalUrl = new String[1];
+        byte[] raw = download(s, url, finalUrl).data;
+        String base = finalUrl[0]; // yönlendirme sonrası adres; göreli URI’ler buna göre çözülür
+        String text = new String(raw, StandardCharsets.UTF_8);
+        if (text.startsWith("\uFEFF")) text = text.substring(1);
+        if (!text.startsWith("#EXTM3U")) throw new IOException("not a playlist: " + url);
+
+        StringBuilder out = new StringBuilder(text.length() + 256);
+        List<String> segs = new ArrayList<>();
+        Set<String> uris = new HashSet<>();
+        boolean nextIsPlaylist = false;
+        for (String line : text.split("\r?\n")) {
+            String t = line.trim();
+            if (t.isEmpty()) continue;
+            if (t.startsWith("#")) {
+                if (t.startsWith("#EXT-X-STREAM-INF")) nextIsPlaylist = true;
+                boolean playlistAttr = t.startsWith("#EXT-X-MEDIA:") || t.startsWith("#EXT-X-I-FRAME-STREAM-INF");
+                out.append(rewriteUriAttr(s, base, t, playlistAttr, uris)).append('\n');
+                continue;
+            }
+            String abs = resolve(base, t);
+            boolean isPlaylist = nextIsPlaylist || extensionOf(abs).equals("m3u8");
+            nextIsPlaylist = false;
+            if (!isPlaylist) segs.add(abs);
+            uris.add(abs);
+            out.append(s.path(abs, isPlaylist)).append('\n');
+        }
+        if (!segs.isEmpty()) s.segments.put(url, segs);
+        s.relisted(url, uris);
+        return out.toString();
+    }
+
+    private static String rewriteUriAttr(Session s, String base, String line, boolean playlist, Set<String> uris) {
+        Matcher m = URI_ATTR.matcher(line);
+        if (!m.find()) return line;
+        // data: URI’ler (gömülü anahtar) olduğu gibi kalır
+        if (m.group(1).startsWith("data:")) return line;
+        String abs = resolve(base, m.group(1));
+        uris.add(abs);
+        String rel = s.path(abs, playlist);
+        return line.substring(0, m.start(1)) + rel + line.substring(m.end(1));
+    }
+
+    private void schedulePrefetch(Session s, String url) {
+        if (cache.contains(url) || inFlight.containsKey(url)) return;
+        prefetcher.execute(() -> {
+            try {
+                resource(s, url, true);
+            } catch (IOException e) {
+                Log.d(TAG, "prefetch failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Önbellekten ya da kaynaktan (aynı URL için tek istek). prefetch ise sayaçlara TV isteği olarak
+     * yazılmaz ve başkası zaten çekiyorsa beklemeden null döner.
+     */
+    private SegmentCache.Entry resource(Session s, String url, boolean prefetch) throws IOException {
+        SegmentCache.Entry e = cache.get(url);
+        if (e != null) {
+            if (!prefetch) hits.incrementAndGet();
+            return e;
+        }
+        CompletableFuture<SegmentCache.Entry> mine = new CompletableFuture<>();
+        CompletableFuture<SegmentCache.Entry> pending = inFlight.putIfAbsent(url, mine);
+        if (pending != null) {
+            if (prefetch) return null;
+            hits.incrementAndGet(); // süren prefetch’e katıldı
+            return await(pending);
+        }
+        try {
+            e = cache.get(url); // get ile putIfAbsent arasında tamamlanmış olabilir
+            if (e == null) {
+                if (prefetch) prefetched.incrementAndGet();
+                else misses.incrementAndGet();
+                e = download(s, url, null);
+                cache.put(url, e);
+            } else if (!prefetch) {
+                hits.incrementAndGet();
+            }
+            mine.complete(e);
+            return e;
+        } catch (IOException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(url, mine);
+        }
+    }
+
+    private static SegmentCache.Entry await(CompletableFuture<SegmentCache.Entry> f) throws IOException {
+        try {
+            return f.get(CONNECT_TIMEOUT_MS + READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            throw c instanceof IOException ? (IOException) c : new IOException(c);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (TimeoutException e) {
+            throw new IOException("origin timeout");
+        }
+    }
+
+    /** Yakalanan başlıklarla GET; finalUrl verilirse yönlendirme sonrası adres yazılır. */
+    private SegmentCache.Entry download(Session s, String url, String[] finalUrl) throws IOException {
+        long t0 = System.nanoTime();
+        HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+        c.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        c.setReadTimeout(READ_TIMEOUT_MS);
+        c.setUseCaches(false);
+        c.setInstanceFollowRedirects(true);
+        for (Map.Entry<String, String> h : s.headers.entrySet()) c.setRequestProperty(h.getKey(), h.getValue());
+        try {
+            int code = c.getResponseCode();
+            if (code / 100 != 2) throw new IOException("origin " + code + " for " + url);
+            byte[] data;
+            try (InputStream in = c.getInputStream()) {
+                int len = c.getContentLength();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(len > 0 ? len : 64 * 1024);
+                byte[] buf = new byte[16 * 1024];
+                int r;
+                while ((r = in.read(buf)) > 0) out.write(buf, 0, r);
+                data = out.toByteArray();
+            }
+            originBytes.addAndGet(data.length);
+            originNanos.addAndGet(System.nanoTime() - t0);
+            if (finalUrl != null) finalUrl[0] = c.getURL().toString();
+            String type = c.getContentType();
+            return new SegmentCache.Entry(data, type != null ? type : LocalMediaServer.guessMimeType(url));
+        } finally {
+            c.disconnect();
+        }
+    }
+
+    static String resolve(String base, String ref) {
+        try {
+            return new URL(new URL(base), ref).toString();
+        } catch (IOException e) {
+            return ref;
+        }
+    }
+
+    /** URL yolunun uzantısı (sorgu hariç); yoksa "ts". */
+    static String extensionOf(String url) {
+        String path = url;
+        int q = path.indexOf('?');
+        if (q >= 0) path = path.substring(0, q);
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot <= slash || dot == path.length() - 1) return "ts";
+        return path.substring(dot + 1).toLowerCase(Locale.US);
+    }
+
+    private static String tokenOf(String pathOrUrl) {
+        int i = pathOrUrl.indexOf(PATH_PREFIX);
+        if (i < 0) return null;
+        int s = i + PATH_PREFIX.length();
+        int e = pathOrUrl.indexOf('/', s);
+        return e > s ? pathOrUrl.substring(s, e) : null;
+    }
+
+    /** "/r/<token>/<id>.<uzantı>" → id. */
+    private static String idOf(String path) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.indexOf('.', slash);
+        return slash >= 0 && dot > slash + 1 ? path.substring(slash + 1, dot) : null;
+    }
+
+    private static void sendEmpty(SocketChannel ch, int code, String reason, boolean close) throws IOException {
+        sendHeaders(ch, code, reason, "Content-Length: 0\r\n", close);
+    }
+
+    private static void sendHeaders(SocketChannel ch, int code, String reason, String headers, boolean close)
+            throws IOException {
+        String s = "HTTP/1.1 " + code + " " + reason + "\r\n"
+                + headers
+                + "Server: MiniCast\r\n"
+                + (close ? "Connection: close\r\n" : "Connection: keep-alive\r\n")
+                + "\r\n";
+        byte[] b = s.getBytes(StandardCharsets.ISO_8859_1);
+        write(ch, b, 0, b.length);
+    }
+
+    private static void write(SocketChannel ch, byte[] data, int off, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data, off, len);
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    private static void close(SocketChannel ch) {
+        try { ch.close(); } catch (IOException ignore) {}
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.minicast.devices;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ham soket üzerinden okunan HTTP/1.1 yanıtı (kalıcı bağlantılar için tam çerçeveleme).
+ * Content-Length, chunked ve kapanışa kadar okuma desteklenir; keepAlive bağlantının
+ * bir sonraki istek için kullanılıp kullanılamayacağını söyler.
+ */
+final class HttpResponse {
+
+    private static final int MAX_LINE = 8192;
+
+    final int status;
+    final Map<String, String> headers; // anahtarlar küçük harf
+    final byte[] body;
+    final boolean keepAlive;
+
+    private HttpResponse(int status, Map<String, String> headers, byte[] body, boolean keepAlive) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.keepAlive = keepAlive;
+    }
+
+    boolean isSuccess() { return status >= 200 && status < 300; }
+
+    String header(String nameLower) { return headers.get(nameLower); }
+
+    InputStream bodyStream() { return new ByteArrayInputStream(body); }
+
+    /** in tamponlu olmalı ve aynı bağlantının sonraki yanıtları için korunmalı. */
+    static HttpResponse read(InputStream in, boolean headRequest) throws IOException {
+        String statusLine = readLine(in);
+        while (statusLine.isEmpty()) statusLine = readLine(in); // bazı cihazlar başta CRLF bırakır
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) throw new IOException("bad status: " + statusLine);
+        int status = Integer.parseInt(parts[1].trim());
+        boolean http10 = parts[0].equals("HTTP/1.0");
+
+        Map<String, String> headers = readHeaders(in);
+
+        String conn = headers.get("connection");
+        boolean keepAlive = conn != null ? !conn.equalsIgnoreCase("close") : !http10;
+
+        byte[] body;
+        if (headRequest || status == 204 || status == 304 || (status >= 100 && status < 200)) {
+            body = new byte[0];
+        } else {
+            body = readBody(in, headers);
+            if (body == null) {
+                // Çerçeve yok: kapanışa kadar oku, bağlantı yeniden kullanılamaz
+                body = readToEnd(in);
+                keepAlive = false;
+            }
+        }
+        return new HttpResponse(status, headers, body, keepAlive);
+    }
+
+    /** Boş satıra kadar başlıklar; anahtarlar küçük harf. İstek okuyan sunucular da kullanır. */
+    static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int c = line.indexOf(':');
+            if (c > 0) headers.put(line.substring(0, c).trim().toLowerCase(Locale.US), line.substring(c + 1).trim());
+        }
+        return headers;
+    }
+
+    /** chunked veya Content-Length gövdesi; çerçeve bilgisi yoksa null. */
+    static byte[] readBody(InputStream in, Map<String, String> headers) throws IOException {
+        String te = headers.get("transfer-encoding");
+        if (te != null && te.toLowerCase(Locale.US).contains("chunked")) return readChunked(in);
+        String cl = headers.get("content-length");
+        if (cl != null) return readFully(in, Integer.parseInt(cl.trim()));
+        return null;
+    }
+
+    private static byte[] readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            int semi = sizeLine.indexOf(';');
+            int size = Integer.parseInt((semi >= 0 ? sizeLine.substring(0, semi) : sizeLine).trim(), 16);
+            if (size == 0) {
+                while (!readLine(in).isEmpty()) { /* trailer */ }
+                return out.toByteArray();
+            }
+            out.write(readFully(in, size));
+            readLine(in); // chunk sonu CRLF
+        }
+    }
+
+    private static byte[] readFully(InputStream in, int n) throws IOException {
+        byte[] b = new byte[n];
+        int off = 0;
+        while (off < n) {
+            int r = in.read(b, off, n - off);
+            if (r < 0) throw new EOFException("body truncated");
+            off += r;
+        }
+        return b;
+    }
+
+    private static byte[] readToEnd(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] tmp = new byte[1024];
+        int r;
+        while ((r = in.read(tmp)) > 0) out.write(tmp, 0, r);
+        return out.toByteArray();
+    }
+
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') break;
+            if (b != '\r') line.write(b);
+            if (line.size() > MAX_LINE) throw new IOException("line too long");
+        }
+        if (b < 0 && line.size() == 0) throw new EOFException("connection closed");
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.minicast.devices;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Son başarılı yayın rotası (SharedPreferences + JSON); açılışta keşifsiz yeniden bağlanmak için.
+ * - Cast: deviceId + MediaRouter route id (oturum başladığında/sürdürüldüğünde yazılır)
+ * - DLNA: UDN + description LOCATION + AVTransport control URL (tek hedefli SetAVTransportURI başarılı olunca)
+ * DLNA tarafı: reconnectDlna() control URL’i GetTransportInfo ile doğrular; cevap yoksa
+ * description bir kez yeniden çekilir (port değişmiş olabilir), o da olmazsa normal keşfe kalınır.
+ */
+public final class LastRoute {
+
+    private static final String TAG = "LastRoute";
+    private static final String PREFS = "minicast_last_route";
+    private static final String KEY = "route";
+
+    /** Önbellek okuma ve description’ı yeniden çekme; açılışta ana thread’i tutmasın. */
+    private static final ExecutorService RECONNECT = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "minicast-reconnect");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static volatile Context appContext;
+
+    public final TargetDevice.DeviceType type;
+    public final String name;
+    public final long savedAt;
+    // Cast
+    public final String castDeviceId;
+    public final String castRouteId;
+    // DLNA
+    public final String udn;
+    public final String location;
+    public final String controlUrl;
+
+    private LastRoute(TargetDevice.DeviceType type, String name, long savedAt, String castDeviceId,
+                      String castRouteId, String udn, String location, String controlUrl) {
+        this.type = type;
+        this.name = name;
+        this.savedAt = savedAt;
+        this.castDeviceId = castDeviceId;
+        this.castRouteId = castRouteId;
+        this.udn = udn;
+        this.location = location;
+        this.controlUrl = controlUrl;
+    }
+
+    /** Açılışta bir kez; Context’i olmayan çağıranlar (DlnaController) için saklanır. */
+    public static void init(Context ctx) {
+        appContext = ctx.getApplicationContext();
+    }
+
+    /** Kayıtlı rota; yoksa ya da okunamazsa null. */
+    public static LastRoute load(Context ctx) {
+        String raw = prefs(ctx).getString(KEY, null);
+        if (raw == null) return null;
+        try {
+            JSONObject o = new JSONObject(raw);
+            return new LastRoute(TargetDevice.DeviceType.valueOf(o.getString("type")),
+                    o.optString("name", null), o.optLong("saved", 0),
+                    o.optString("castDevice", null), o.optString("castRoute", null),
+                    o.optString("udn", null), o.optString("location", null), o.optString("control", null));
+        } catch (Exception e) {
+            Log.w(TAG, "load error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static void rememberCast(Context ctx, String deviceId, String routeId, String name) {
+        if (deviceId == null && routeId == null) return;
+        save(ctx, new LastRoute(TargetDevice.DeviceType.CAST, name, System.currentTimeMillis(),
+                deviceId, routeId, null, null, null));
+    }
+
+    /** init() yapılmadıysa sessizce atlanır. */
+    public static void rememberDlna(DlnaDevice d) {
+        Context ctx = appContext;
+        if (ctx == null || d.getControlUrl() == null || d.getLocationUrl() == null) return;
+        save(ctx, new LastRoute(TargetDevice.DeviceType.DLNA, d.getFriendlyName(), System.currentTimeMillis(),
+                null, null, d.getUsn(), d.getLocationUrl().toString(), d.getControlUrl().toString()));
+    }
+
+    public static void forget(Context ctx) {
+        prefs(ctx).edit().remove(KEY).apply();
+    }
+
+    /**
+     * Kayıtlı DLNA rotasını doğrular; canlıysa cihazla tamamlanır (TargetDeviceRegistry’ye de yazılır).
+     * Çağıran thread’i bloklamaz: önbellek (JSON dosyası) de RECONNECT thread’inde okunur.
+     */
+    public CompletableFuture<DlnaDevice> reconnectDlna(Context ctx) {
+        CompletableFuture<DlnaDevice> result = new CompletableFuture<>();
+        if (type != TargetDevice.DeviceType.DLNA || udn == null || location == null || controlUrl == null) {
+            result.completeExceptionally(new IllegalStateException("no DLNA route"));
+            return result;
+        }
+        RECONNECT.execute(() -> reconnect(ctx, result));
+        return result;
+    }
+
+    private void reconnect(Context ctx, CompletableFuture<DlnaDevice> result) {
+        DescriptionCache cache = DescriptionCache.get(ctx);
+        DlnaDevice known;
+        try {
+            // Önbellekteki tam cihaz (RenderingControl/ConnectionManager ile) varsa onu kullan
+            known = cache.cached(udn, location);
+            if (known == null || !String.valueOf(known.getControlUrl()).equals(controlUrl)) {
+                known = new DlnaDevice(udn, name, new URL(location), new URL(controlUrl));
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        DlnaDevice first = known;
+        validate(first).whenComplete((ok, e) -> {
+            if (e == null) {
+                accept(first, result);
+                return;
+            }
+            Log.d(TAG, "control URL did not answer (" + e.getMessage() + "), refetching description");
+            RECONNECT.execute(() -> {
+                try {
+                    DlnaDevice fresh = cache.fetch(udn, location, -1, -1, DlnaDiscovery.DEFAULT_MAX_AGE_SEC);
+                    cache.save();
+                    if (fresh == null || fresh.getControlUrl() == null) throw new IllegalStateException("no AVTransport");
+                    validate(fresh).whenComplete((ok2, e2) -> {
+                        if (e2 == null) accept(fresh, result);
+                        else result.completeExceptionally(e2);
+                    });
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        });
+    }
+
+    /** AVTransport’un gerçekten cevap verdiğini GetTransportInfo ile sınar (TCP açık olması yetmez). */
+    private static CompletableFuture<DlnaController.TransportInfo> validate(DlnaDevice d) {
+        return DlnaController.of(d).getTransportInfo();
+    }
+
+    private static void accept(DlnaDevice d, CompletableFuture<DlnaDevice> result) {
+        TargetDeviceRegistry.get().put(d);
+        rememberDlna(d); // control URL değişmişse güncellensin
+        result.complete(d);
+    }
+
+    private static void save(Context ctx, LastRoute r) {
+        try {
+            JSONObject o = new JSONObject();
+            o.put("type", r.type.name());
+            o.put("saved", r.savedAt);
+            if (r.name != null) o.put("name", r.name);
+            if (r.castDeviceId != null) o.put("castDevice", r.castDeviceId);
+            if (r.castRouteId != null) o.put("castRoute", r.castRouteId);
+            if (r.udn != null) o.put("udn", r.udn);
+            if (r.location != null) o.put("location", r.location);
+            if (r.controlUrl != null) o.put("control", r.controlUrl);
+            prefs(ctx).edit().putString(KEY, o.toString()).apply();
+        } catch (Exception e) {
+            Log.w(TAG, "save error: " + e.getMessage());
+        }
+    }
+
+    private static SharedPreferences prefs(Context ctx) {
+        return ctx.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
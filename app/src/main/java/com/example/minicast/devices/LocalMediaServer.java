@@ -0,0 +1,308 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cihazdaki dosyaları TV’ye (DLNA / Cast) sunan gömülü HTTP sunucusu.
+ * - Gövde FileChannel.transferTo ile doğrudan sokete gider (sendfile; kullanıcı alanına kopya yok)
+ * - Tek aralıklı Range (bytes=a-b, a-, -n) → 206; TV çok GB’lık dosyada yeniden kodlama olmadan atlar
+ * - Aynı anda birden çok okuyucu (TV’ler çoğu zaman paralel Range bağlantıları açar), keep-alive
+ * - DLNA başlıkları: transferMode.dlna.org, contentFeatures.dlna.org (istenirse)
+ * - Yalnızca publish() edilen dosyalar, tahmin edilemez token’lı yollardan erişilebilir
+ */
+public final class LocalMediaServer {
+
+    private static final String TAG = "LocalMediaServer";
+    private static final int WORKERS = 8;
+    private static final int WORK_QUEUE = 16;
+    private static final int IDLE_TIMEOUT_MS = 15_000;
+    private static final String PATH_PREFIX = "/m/";
+
+    private static LocalMediaServer instance;
+
+    public static synchronized LocalMediaServer get() throws IOException {
+        if (instance == null) instance = new LocalMediaServer();
+        return instance;
+    }
+
+    private static final class Item {
+        final File file;
+        final String mimeType;
+
+        Item(File file, String mimeType) {
+            this.file = file;
+            this.mimeType = mimeType;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, Item> items = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean running = true;
+
+    private LocalMediaServer() throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(0));
+        workers = new ThreadPoolExecutor(WORKERS, WORKERS, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORK_QUEUE), r -> new Thread(r, "minicast-media"));
+        workers.allowCoreThreadTimeOut(true);
+        new Thread(this::acceptLoop, "minicast-media-accept").start();
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+
+    /**
+     * Dosyayı yayınlar; dönen URL, targetHost’a (TV’nin IP’si) giden arayüzün adresini taşır.
+     * mimeType null ise uzantıdan tahmin edilir.
+     */
+    public String publish(File file, String mimeType, String targetHost) throws IOException {
+        byte[] b = new byte[12];
+        random.nextBytes(b);
+        StringBuilder token = new StringBuilder(24);
+        for (byte x : b) token.append(String.format(Locale.US, "%02x", x));
+        items.put(token.toString(), new Item(file, mimeType != null ? mimeType : guessMimeType(file.getName())));
+
+        String host = LocalRoute.to(targetHost).getHostAddress();
+        // Dosya adı yalnızca TV arayüzünde görünsün diye; yönlendirme token’la yapılır
+        String name = URLEncoder.encode(file.getName(), "UTF-8").replace("+", "%20");
+        return "http://" + host + ":" + getPort() + PATH_PREFIX + token + "/" + name;
+    }
+
+    /** URL’i geçersiz kılar; devam eden aktarımlar tamamlanır. */
+    public void unpublish(String url) {
+        String token = tokenOf(url);
+        if (token != null) items.remove(token);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        items.clear();
+        try { server.close(); } catch (IOException ignore) {}
+        workers.shutdownNow();
+        synchronized (LocalMediaServer.class) {
+            if (instance == this) instance = null;
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel ch = server.accept();
+                try {
+                    workers.execute(() -> serve(ch));
+                } catch (RejectedExecutionException e) {
+                    close(ch);
+                }
+            } catch (IOException e) {
+                if (running) Log.w(TAG, "accept error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel ch) {
+        try {
+            ch.socket().setSoTimeout(IDLE_TIMEOUT_MS);
+            ch.socket().setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(ch.socket().getInputStream(), 4096);
+            while (running) {
+                String requestLine;
+                try {
+                    requestLine = HttpResponse.readLine(in);
+                } catch (IOException closedOrIdle) {
+                    return;
+                }
+                if (requestLine.isEmpty()) continue;
+                Map<String, String> headers = HttpResponse.readHeaders(in);
+                if (!handle(ch, requestLine.split(" "), headers)) return;
+            }
+        } catch (SocketTimeoutException ignore) {
+            // boşta keep-alive bağlantısı
+        } catch (IOException e) {
+            // TV aramada bağlantıları sık sık keser; hata değil
+            Log.d(TAG, "connection closed: " + e.getMessage());
+        } finally {
+            close(ch);
+        }
+    }
+
+    /** Bağlantı açık kalacaksa true. */
+    private boolean handle(SocketChannel ch, String[] req, Map<String, String> headers) throws IOException {
+        boolean close = "close".equalsIgnoreCase(headers.get("connection"))
+                || (req.length > 2 && req[2].equals("HTTP/1.0"));
+        if (req.length < 2 || !(req[0].equals("GET") || req[0].equals("HEAD"))) {
+            sendEmpty(ch, 405, "Method Not Allowed", true);
+            return false;
+        }
+        Item item = items.get(String.valueOf(tokenOf(req[1])));
+        if (item == null || !item.file.isFile()) {
+            sendEmpty(ch, 404, "Not Found", close);
+            return !close;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(item.file, "r")) {
+            FileChannel fc = raf.getChannel();
+            long length = fc.size();
+            long start = 0, end = length - 1;
+            boolean partial = false;
+
+            String range = headers.get("range");
+            if (range != null) {
+                long[] r = parseRange(range, length);
+                if (r == null) {
+                    sendHeaders(ch, 416, "Range Not Satisfiable", "Content-Range: bytes */" + length + "\r\n"
+                            + "Content-Length: 0\r\n", close);
+                    return !close;
+                }
+                start = r[0];
+                end = r[1];
+                partial = true;
+            }
+            long count = length == 0 ? 0 : end - start + 1;
+
+            StringBuilder h = new StringBuilder(256)
+                    .append("Content-Type: ").append(item.mimeType).append("\r\n")
+                    .append("Content-Length: ").append(count).append("\r\n")
+                    .append("Accept-Ranges: bytes\r\n")
+                    .append("Last-Modified: ").append(httpDate(item.file.lastModified())).append("\r\n");
+            if (partial) h.append("Content-Range: bytes ").append(start).append('-').append(end)
+                    .append('/').append(length).append("\r\n");
+            appendDlnaHeaders(h, item.mimeType, headers);
+
+            if (partial) sendHeaders(ch, 206, "Partial Content", h.toString(), close);
+            else sendHeaders(ch, 200, "OK", h.toString(), close);
+
+            if (req[0].equals("GET")) {
+                long pos = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long n = fc.transferTo(pos, remaining, ch);
+                    if (n <= 0) throw new IOException("transfer stalled");
+                    pos += n;
+                    remaining -= n;
+                }
+            }
+        }
+        return !close;
+    }
+
+    private static void appendDlnaHeaders(StringBuilder h, String mimeType, Map<String, String> req) {
+        String mode = req.get("transfermode.dlna.org");
+        if (mode == null) mode = mimeType.startsWith("image/") ? "Interactive" : "Streaming";
+        h.append("transferMode.dlna.org: ").append(mode).append("\r\n");
+        if ("1".equals(req.get("getcontentfeatures.dlna.org"))) {
+            h.append("contentFeatures.dlna.org: ").append(contentFeatures(mimeType)).append("\r\n");
+        }
+    }
+
+    /** DLNA 4. alan, MIME’a göre (PN, OP, FLAGS); profil bilinmez, yalnızca MIME’dan çıkanı yazılır. */
+    static String contentFeatures(String mimeType) {
+        return ProtocolInfo.features(mimeType, null);
+    }
+
+    /** "bytes=a-b" / "bytes=a-" / "bytes=-n" → [start, end]; karşılanamazsa null. Çoklu aralıkta ilki. */
+    static long[] parseRange(String header, long length) {
+        String h = header.trim();
+        if (!h.regionMatches(true, 0, "bytes=", 0, 6)) return null;
+        String spec = h.substring(6);
+        int comma = spec.indexOf(',');
+        if (comma >= 0) spec = spec.substring(0, comma);
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String a = spec.substring(0, dash).trim();
+            String b = spec.substring(dash + 1).trim();
+            long start, end;
+            if (a.isEmpty()) {
+                long suffix = Long.parseLong(b);
+                if (suffix <= 0) return null;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(a);
+                end = b.isEmpty() ? length - 1 : Math.min(Long.parseLong(b), length - 1);
+            }
+            if (start >= length || start > end) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void sendEmpty(SocketChannel ch, int code, String reason, boolean close) throws IOException {
+        sendHeaders(ch, code, reason, "Content-Length: 0\r\n", close);
+    }
+
+    private static void sendHeaders(SocketChannel ch, int code, String reason, String headers, boolean close)
+            throws IOException {
+        String s = "HTTP/1.1 " + code + " " + reason + "\r\n"
+                + headers
+                + "Date: " + httpDate(System.currentTimeMillis()) + "\r\n"
+                + "Server: MiniCast UPnP/1.0 DLNADOC/1.50\r\n"
+                + (close ? "Connection: close\r\n" : "Connection: keep-alive\r\n")
+                + "\r\n";
+        ByteBuffer buf = ByteBuffer.wrap(s.getBytes(StandardCharsets.ISO_8859_1));
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    private static String tokenOf(String pathOrUrl) {
+        int i = pathOrUrl.indexOf(PATH_PREFIX);
+        if (i < 0) return null;
+        int s = i + PATH_PREFIX.length();
+        int e = pathOrUrl.indexOf('/', s);
+        return e > s ? pathOrUrl.substring(s, e) : pathOrUrl.substring(s);
+    }
+
+    private static String httpDate(long millis) {
+        SimpleDateFormat f = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        f.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return f.format(new Date(millis));
+    }
+
+    private static void close(SocketChannel ch) {
+        try { ch.close(); } catch (IOException ignore) {}
+    }
+
+    static String guessMimeType(String name) {
+        String n = name.toLowerCase(Locale.US);
+        if (n.endsWith(".mp4") || n.endsWith(".m4v")) return "video/mp4";
+        if (n.endsWith(".mkv")) return "video/x-matroska";
+        if (n.endsWith(".webm")) return "video/webm";
+        if (n.endsWith(".avi")) return "video/x-msvideo";
+        if (n.endsWith(".mov")) return "video/quicktime";
+        if (n.endsWith(".ts")) return "video/mp2t";
+        if (n.endsWith(".m3u8")) return "application/vnd.apple.mpegurl";
+        if (n.endsWith(".mp3")) return "audio/mpeg";
+        if (n.endsWith(".m4a") || n.endsWith(".aac")) return "audio/mp4";
+        if (n.endsWith(".flac")) return "audio/flac";
+        if (n.endsWith(".jpg") || n.endsWith(".jpeg")) return "image/jpeg";
+        if (n.endsWith(".png")) return "image/png";
+        return "application/octet-stream";
+    }
+}
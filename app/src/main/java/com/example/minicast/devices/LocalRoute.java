@@ -0,0 +1,21 @@
+package com.example.minicast.devices;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+/** Bir cihaza giden rotanın yerel adresi: TV’ye verilecek callback / medya URL’leri için. */
+final class LocalRoute {
+
+    private LocalRoute() {}
+
+    /** UDP connect yalnızca rota seçer, paket göndermez. */
+    static InetAddress to(String host) throws IOException {
+        try (DatagramSocket ds = new DatagramSocket()) {
+            ds.connect(InetAddress.getByName(host), 1900);
+            InetAddress local = ds.getLocalAddress();
+            if (local == null || local.isAnyLocalAddress()) throw new IOException("no route to " + host);
+            return local;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.minicast.devices;
+
+/**
+ * Kutulamasız (boxing’siz) long kümesi: açık adresleme, lineer yoklama.
+ * 0 değeri boş slot işaretidir; çağıranlar 0 göndermemeli (SsdpPacket.hash 0 döndürmez).
+ */
+final class LongHashSet {
+
+    private long[] slots;
+    private int size;
+
+    LongHashSet(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        slots = new long[cap];
+    }
+
+    /** Yeni eklendiyse true. */
+    boolean add(long v) {
+        if ((size + 1) * 2 > slots.length) grow();
+        return insert(slots, v);
+    }
+
+    boolean contains(long v) {
+        int mask = slots.length - 1;
+        for (int i = mix(v) & mask; ; i = (i + 1) & mask) {
+            if (slots[i] == 0) return false;
+            if (slots[i] == v) return true;
+        }
+    }
+
+    boolean remove(long v) {
+        int mask = slots.length - 1;
+        int i = mix(v) & mask;
+        while (slots[i] != v) {
+            if (slots[i] == 0) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = 0;
+        size--;
+        // Aynı kümedeki sonraki girdileri yeniden yerleştir (lineer yoklama silmesi)
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            long moved = slots[j];
+            slots[j] = 0;
+            size--;
+            insert(slots, moved);
+        }
+        return true;
+    }
+
+    int size() { return size; }
+
+    private boolean insert(long[] table, long v) {
+        int mask = table.length - 1;
+        for (int i = mix(v) & mask; ; i = (i + 1) & mask) {
+            if (table[i] == v) return false;
+            if (table[i] == 0) {
+                table[i] = v;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        size = 0;
+        for (long v : old) if (v != 0) insert(slots, v);
+    }
+
+    private static int mix(long v) {
+        v ^= v >>> 33;
+        v *= 0xff51afd7ed558ccdL;
+        v ^= v >>> 33;
+        return (int) v;
+    }
+}
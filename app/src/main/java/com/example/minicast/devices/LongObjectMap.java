@@ -0,0 +1,98 @@
+package com.example.minicast.devices;
+
+import java.util.Arrays;
+
+/**
+ * Kutulamasız long anahtarlı harita: açık adresleme, lineer yoklama (LongHashSet ile aynı düzen).
+ * 0 anahtarı boş slot işaretidir; çağıranlar 0 göndermemeli (SsdpPacket.hash 0 döndürmez).
+ */
+final class LongObjectMap<V> {
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongObjectMap(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        keys = new long[cap];
+        values = new Object[cap];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long k) {
+        int mask = keys.length - 1;
+        for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == 0) return null;
+            if (keys[i] == k) return (V) values[i];
+        }
+    }
+
+    void put(long k, V v) {
+        if ((size + 1) * 2 > keys.length) grow();
+        insert(keys, values, k, v);
+    }
+
+    void remove(long k) {
+        int mask = keys.length - 1;
+        int i = mix(k) & mask;
+        while (keys[i] != k) {
+            if (keys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        keys[i] = 0;
+        values[i] = null;
+        size--;
+        // Aynı kümedeki sonraki girdileri yeniden yerleştir (lineer yoklama silmesi)
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            long mk = keys[j];
+            Object mv = values[j];
+            keys[j] = 0;
+            values[j] = null;
+            size--;
+            insert(keys, values, mk, mv);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    int size() { return size; }
+
+    private void insert(long[] ks, Object[] vs, long k, Object v) {
+        int mask = ks.length - 1;
+        for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+            if (ks[i] == k) {
+                vs[i] = v;
+                return;
+            }
+            if (ks[i] == 0) {
+                ks[i] = k;
+                vs[i] = v;
+                size++;
+                return;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) insert(keys, values, oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private static int mix(long v) {
+        v ^= v >>> 33;
+        v *= 0xff51afd7ed558ccdL;
+        v ^= v >>> 33;
+        return (int) v;
+    }
+}
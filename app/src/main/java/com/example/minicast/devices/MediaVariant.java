@@ -0,0 +1,33 @@
+package com.example.minicast.devices;
+
+/** Aynı içeriğin oynatılabilir bir sürümü (ör. HLS, MP4 720p, MKV orijinal); tercih sırasıyla verilir. */
+public final class MediaVariant {
+    private final String url;
+    private final String mimeType;
+    private final long sizeBytes;
+    private final String profile;
+
+    public MediaVariant(String url, String mimeType) {
+        this(url, mimeType, -1);
+    }
+
+    public MediaVariant(String url, String mimeType, long sizeBytes) {
+        this(url, mimeType, sizeBytes, null);
+    }
+
+    public MediaVariant(String url, String mimeType, long sizeBytes, String profile) {
+        this.url = url;
+        this.mimeType = mimeType;
+        this.sizeBytes = sizeBytes;
+        this.profile = profile;
+    }
+
+    public String getUrl() { return url; }
+    public String getMimeType() { return mimeType; }
+    /** Bilinmiyorsa -1. */
+    public long getSizeBytes() { return sizeBytes; }
+    /** Kodlamadan bilinen DLNA.ORG_PN profili (ör. AVC_MP4_HP_HD_AAC); bilinmiyorsa null. */
+    public String getProfile() { return profile; }
+
+    @Override public String toString() { return mimeType + " " + url; }
+}
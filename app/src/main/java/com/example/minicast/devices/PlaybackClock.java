@@ -0,0 +1,145 @@
+package com.example.minicast.devices;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uzaktaki oynatıcının konumunu yerelde yürüten saat.
+ * - Cihazdan seyrek gelen (konum, hız, oynuyor mu, ölçüm anı) ile çapalanır; arada konum
+ *   çapa + geçen süre * hız olarak hesaplanır, ağ gerekmez
+ * - Yeni ölçüm küçük sapma gösteriyorsa fark SLEW_MS içinde yumuşakça eritilir (çubuk zıplamaz);
+ *   büyük sapmada, duraklat/oynat geçişinde veya seek’te anında atlanır
+ * - DLNA RelTime saniye çözünürlüklüdür: tahmin o saniyenin içindeyse düzeltme yapılmaz
+ * Zaman tabanı System.nanoTime (Choreographer frameTimeNanos ile aynı).
+ */
+public final class PlaybackClock {
+
+    private static final long SNAP_MS = 1_500;
+    private static final long SLEW_NANOS = TimeUnit.MILLISECONDS.toNanos(400);
+
+    private long basePositionMs;
+    private long baseNanos;
+    private double rate = 1.0;
+    private boolean playing;
+    private long durationMs = -1;
+    private boolean synced;
+    // Eritilmekte olan görüntü farkı (gösterilen - gerçek), SLEW_NANOS içinde sıfıra iner
+    private long residualMs;
+    private long residualStartNanos;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    /** Oynat/duraklat, seek, süre gibi kesikli değişikliklerde çağrılır (kare başına değil). */
+    public void addChangeListener(Runnable r) { changeListeners.add(r); }
+    public void removeChangeListener(Runnable r) { changeListeners.remove(r); }
+
+    public synchronized boolean isPlaying() { return playing; }
+    public synchronized boolean isSynced() { return synced; }
+    /** Bilinmiyorsa -1. */
+    public synchronized long getDurationMs() { return durationMs; }
+    public synchronized double getRate() { return rate; }
+
+    public long positionMs() { return positionMs(System.nanoTime()); }
+
+    /** nowNanos anındaki tahmini konum; [0, süre] aralığında. */
+    public synchronized long positionMs(long nowNanos) {
+        long p = truePosition(nowNanos);
+        if (residualMs != 0) {
+            long elapsed = nowNanos - residualStartNanos;
+            if (elapsed >= SLEW_NANOS) {
+                residualMs = 0;
+            } else {
+                p += Math.round(residualMs * (1 - (double) elapsed / SLEW_NANOS));
+            }
+        }
+        return clamp(p);
+    }
+
+    /**
+     * Cihazdan gelen ölçüm. measuredAtNanos: konumun geçerli olduğu an
+     * (istek/yanıt ortası ya da durum mesajının varışı).
+     * secondResolution: konum tam saniyeye kesilmiş (DLNA RelTime) ise true.
+     */
+    public void sync(long positionMs, long durationMs, double rate, boolean playing,
+                     long measuredAtNanos, boolean secondResolution) {
+        boolean changed;
+        synchronized (this) {
+            long shown = positionMs(measuredAtNanos);
+            long error = positionMs - shown;
+            changed = !synced || playing != this.playing || rate != this.rate || durationMs != this.durationMs;
+            boolean smooth = synced && playing && this.playing && rate == this.rate && Math.abs(error) < SNAP_MS;
+
+            if (smooth && secondResolution && error <= 0 && error > -1000) {
+                // Tahmin raporlanan saniyenin içinde: çapa aynı kalır, yalnızca süre güncellenir
+                this.durationMs = durationMs;
+                return;
+            }
+            this.basePositionMs = positionMs;
+            this.baseNanos = measuredAtNanos;
+            this.rate = rate;
+            this.playing = playing;
+            this.durationMs = durationMs;
+            this.synced = true;
+            if (smooth) {
+                residualMs = shown - positionMs;
+                residualStartNanos = measuredAtNanos;
+            } else {
+                residualMs = 0;
+                changed |= error != 0;
+            }
+        }
+        if (changed) fireChanged();
+    }
+
+    /** Yerel seek: onay beklenmeden konum atlar (sonraki sync doğrular). */
+    public void jump(long positionMs) {
+        synchronized (this) {
+            basePositionMs = positionMs;
+            baseNanos = System.nanoTime();
+            residualMs = 0;
+        }
+        fireChanged();
+    }
+
+    /** Yerel oynat/duraklat: gösterim hemen durur/başlar (sonraki sync doğrular). */
+    public void setPlaying(boolean playing) {
+        synchronized (this) {
+            if (this.playing == playing) return;
+            long now = System.nanoTime();
+            basePositionMs = truePosition(now);
+            baseNanos = now;
+            residualMs = 0;
+            this.playing = playing;
+        }
+        fireChanged();
+    }
+
+    /** Oturum bitti / medya yok. */
+    public void reset() {
+        synchronized (this) {
+            basePositionMs = 0;
+            baseNanos = System.nanoTime();
+            playing = false;
+            durationMs = -1;
+            residualMs = 0;
+            synced = false;
+        }
+        fireChanged();
+    }
+
+    private long truePosition(long nowNanos) {
+        long p = basePositionMs;
+        if (playing) p += Math.round((nowNanos - baseNanos) / 1_000_000.0 * rate);
+        return p;
+    }
+
+    private long clamp(long p) {
+        if (p < 0) return 0;
+        return durationMs > 0 && p > durationMs ? durationMs : p;
+    }
+
+    private void fireChanged() {
+        for (Runnable r : changeListeners) r.run();
+    }
+}
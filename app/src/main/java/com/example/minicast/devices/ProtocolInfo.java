@@ -0,0 +1,118 @@
+package com.example.minicast.devices;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * UPnP protocolInfo girdisi: "http-get:*:video/mp4:DLNA.ORG_PN=AVC_MP4_HP_HD_AAC;DLNA.ORG_OP=01".
+ * ConnectionManager GetProtocolInfo’nun Sink listesi bunlardan oluşur.
+ */
+public final class ProtocolInfo {
+
+    /** DLNA.ORG_FLAGS: streaming + background aktarım + bağlantı durdurma + DLNA 1.5 (ses/video). */
+    private static final String STREAMING_FLAGS = "01700000000000000000000000000000";
+    /** DLNA.ORG_FLAGS: interactive + background aktarım + DLNA 1.5 (resim). */
+    private static final String INTERACTIVE_FLAGS = "00D00000000000000000000000000000";
+
+    private final String protocol;
+    private final String network;
+    private final String contentFormat;
+    private final String additionalInfo;
+
+    ProtocolInfo(String protocol, String network, String contentFormat, String additionalInfo) {
+        this.protocol = protocol;
+        this.network = network;
+        this.contentFormat = contentFormat;
+        this.additionalInfo = additionalInfo;
+    }
+
+    public String getProtocol() { return protocol; }
+    public String getContentFormat() { return contentFormat; }
+    public String getAdditionalInfo() { return additionalInfo; }
+
+    /** DLNA.ORG_PN profili; yoksa null. */
+    public String getProfile() {
+        for (String part : additionalInfo.split(";")) {
+            if (part.startsWith("DLNA.ORG_PN=")) return part.substring(12);
+        }
+        return null;
+    }
+
+    /** http-get ve mime eşleşmesi ("*", "video/*" ve bilinen takma adlar dahil). */
+    public boolean accepts(String mimeType) {
+        if (!protocol.equals("http-get") && !protocol.equals("*")) return false;
+        String cf = contentFormat.toLowerCase(Locale.US);
+        String m = canonicalMime(mimeType);
+        if (cf.equals("*") || canonicalMime(cf).equals(m)) return true;
+        return cf.endsWith("/*") && m.startsWith(cf.substring(0, cf.length() - 1));
+    }
+
+    /** Kaynağımız için gönderilecek protocolInfo; 4. alan features() ile. */
+    static String forResource(String mimeType, String profile) {
+        return "http-get:*:" + mimeType + ":" + features(mimeType, profile);
+    }
+
+    /**
+     * protocolInfo 4. alanı / contentFeatures.dlna.org. PN: verilen profil, yoksa MIME’ın tek anlamlı
+     * profili (MP3, LPCM); OP=01 bayt araması (resimde yok); CI=0 dönüştürülmemiş; FLAGS MIME’a göre.
+     */
+    static String features(String mimeType, String profile) {
+        String m = canonicalMime(mimeType);
+        boolean image = m.startsWith("image/");
+        if (profile == null) profile = impliedProfile(m);
+        StringBuilder sb = new StringBuilder(96);
+        if (profile != null) sb.append("DLNA.ORG_PN=").append(profile).append(';');
+        if (!image) sb.append("DLNA.ORG_OP=01;");
+        return sb.append("DLNA.ORG_CI=0;DLNA.ORG_FLAGS=").append(image ? INTERACTIVE_FLAGS : STREAMING_FLAGS).toString();
+    }
+
+    /** Yalnızca MIME’dan kesin çıkan profiller; video/resim profili çözünürlük/codec ister. */
+    private static String impliedProfile(String canonicalMime) {
+        if (canonicalMime.equals("audio/mpeg")) return "MP3";
+        if (canonicalMime.equals("audio/l16")) return "LPCM";
+        return null;
+    }
+
+    /** Virgülle ayrılmış Sink/Source listesi; bozuk girdiler atlanır. */
+    public static List<ProtocolInfo> parseList(String csv) {
+        if (csv == null || csv.trim().isEmpty()) return Collections.emptyList();
+        List<ProtocolInfo> out = new ArrayList<>();
+        for (String entry : csv.split(",")) {
+            String[] f = entry.trim().split(":", 4);
+            if (f.length == 4) out.add(new ProtocolInfo(f[0].trim(), f[1].trim(), f[2].trim(), f[3].trim()));
+        }
+        return out;
+    }
+
+    /** TV’lerin aynı biçim için kullandığı farklı mime adlarını tek ada indirger. */
+    static String canonicalMime(String mime) {
+        String m = mime.toLowerCase(Locale.US);
+        int semi = m.indexOf(';');
+        if (semi >= 0) m = m.substring(0, semi).trim();
+        switch (m) {
+            case "video/x-mkv":
+            case "video/mkv":
+                return "video/x-matroska";
+            case "audio/x-m4a":
+            case "audio/m4a":
+                return "audio/mp4";
+            case "video/vnd.dlna.mpeg-tts":
+            case "video/mpeg2ts":
+                return "video/mp2t";
+            case "audio/mp3":
+                return "audio/mpeg";
+            case "application/x-mpegurl":
+            case "audio/mpegurl":
+            case "audio/x-mpegurl":
+                return "application/vnd.apple.mpegurl";
+            default:
+                return m;
+        }
+    }
+
+    @Override public String toString() {
+        return protocol + ":" + network + ":" + contentFormat + ":" + additionalInfo;
+    }
+}
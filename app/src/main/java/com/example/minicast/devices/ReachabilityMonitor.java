@@ -0,0 +1,375 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listelenmiş cihazların arka planda canlılık takibi.
+ * - Yoklama: kontrol portuna non-blocking TCP connect (SOAP’ın gideceği yer); tek thread, tek Selector
+ * - Cihaz başına Jacobson/Karels RTT tahmini; connect timeout SRTT + 4 * RTTVAR
+ * - Durumu değişmeyen cihazın yoklama aralığı katlanarak büyür (2 s → 60 s), değişince başa döner;
+ *   SUSPECT cihaz DOWN’a ya da ALIVE’a dönene kadar kısa aralıkla doğrulanır
+ * - Çıktı: canlılık etiketli ve sıralı liste — ALIVE (en hızlı önce), UNKNOWN, SUSPECT, DOWN
+ * Cihaz listesi TargetDeviceRegistry’den gelir; eklenen/silinen cihazlar kendiliğinden izlenir.
+ */
+public final class ReachabilityMonitor {
+
+    private static final String TAG = "Reachability";
+
+    private static final long MIN_INTERVAL_MS = 2_000;
+    private static final long MAX_INTERVAL_MS = 60_000;
+    private static final long MIN_TIMEOUT_MS = 300;
+    private static final long MAX_TIMEOUT_MS = 2_000;
+    private static final int DOWN_AFTER = 3;      // art arda bu kadar hata: DOWN
+    private static final int CAST_PORT = 8009;
+
+    /** UNKNOWN: henüz yoklanmadı; SUSPECT: son yoklama(lar) başarısız; DOWN: art arda başarısız. */
+    public enum Liveness { ALIVE, UNKNOWN, SUSPECT, DOWN }
+
+    /** Sıralı listedeki bir cihaz; rttMs ölçülmediyse -1. */
+    public static final class Ranked {
+        public final UnifiedDevice device;
+        public final Liveness liveness;
+        public final long rttMs;
+        /** Son başarılı yoklamanın duvar saati; hiç yoksa 0. */
+        public final long lastSeenMs;
+
+        Ranked(UnifiedDevice device, Liveness liveness, long rttMs, long lastSeenMs) {
+            this.device = device;
+            this.liveness = liveness;
+            this.rttMs = rttMs;
+            this.lastSeenMs = lastSeenMs;
+        }
+
+        /** UI bu kayıtları soluk göstermeli. */
+        public boolean isStale() { return liveness == Liveness.SUSPECT || liveness == Liveness.DOWN; }
+
+        @Override public String toString() { return device + " " + liveness + (rttMs >= 0 ? " " + rttMs + "ms" : ""); }
+    }
+
+    public interface Listener {
+        /** İzleme thread’inden; sıra ya da bir cihazın canlılığı değişince. */
+        void onRankingChanged(List<Ranked> ranked);
+    }
+
+    /** Cihaz başına durum; yalnızca izleme thread’i dokunur. */
+    private static final class Health {
+        UnifiedDevice device;
+        InetSocketAddress target;
+        Liveness liveness = Liveness.UNKNOWN;
+        int failures;
+        long intervalMs = MIN_INTERVAL_MS;
+        long nextProbeNanos;
+        long lastSeenMs;
+        boolean hasSample;
+        double srttMs;
+        double rttvarMs;
+        SelectionKey inFlight;
+        long startNanos;
+        long deadlineNanos;
+
+        void sample(double r) {
+            if (!hasSample) {
+                srttMs = r;
+                rttvarMs = r / 2;
+                hasSample = true;
+            } else {
+                rttvarMs = 0.75 * rttvarMs + 0.25 * Math.abs(srttMs - r);
+                srttMs = 0.875 * srttMs + 0.125 * r;
+            }
+        }
+
+        long timeoutMs() {
+            if (!hasSample) return MAX_TIMEOUT_MS;
+            long t = (long) Math.ceil(srttMs + 4 * rttvarMs);
+            return Math.min(MAX_TIMEOUT_MS, Math.max(MIN_TIMEOUT_MS, t));
+        }
+    }
+
+    private final TargetDeviceRegistry registry;
+    private final Map<String, Health> health = new HashMap<>();
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final TargetDeviceRegistry.Listener registryListener = this::onDevicesChanged;
+    private volatile List<Ranked> ranked = Collections.emptyList();
+    private volatile boolean running = false;
+    private volatile Selector selector;
+    private Thread thread;
+
+    public ReachabilityMonitor(TargetDeviceRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void addListener(Listener l) { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    /** Son sıralama (değişmez); izleme başlamadıysa boş. */
+    public List<Ranked> ranked() { return ranked; }
+
+    /** Cihazın son bilinen canlılığı; izlenmiyorsa UNKNOWN. */
+    public Liveness liveness(String deviceId) {
+        for (Ranked r : ranked) {
+            if (r.device.getId().equals(deviceId)) return r.liveness;
+        }
+        return Liveness.UNKNOWN;
+    }
+
+    /** Cihazı beklemeden yoklar (ör. kullanıcı listeyi açınca). */
+    public void probeNow(String deviceId) {
+        post(() -> {
+            Health h = health.get(deviceId);
+            if (h != null && h.inFlight == null) h.nextProbeNanos = System.nanoTime();
+        });
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            Log.w(TAG, "selector: " + e.getMessage());
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "minicast-reachability");
+        thread.setDaemon(true);
+        thread.start();
+        registry.addListener(registryListener); // mevcut liste "added" olarak gelir
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        registry.removeListener(registryListener);
+        Selector s = selector;
+        if (s != null) s.wakeup();
+        try {
+            thread.join(1_000); // yeniden start() eski döngüyle çakışmasın
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onDevicesChanged(TargetDeviceRegistry.Change change) {
+        post(() -> {
+            for (UnifiedDevice d : change.added) track(d);
+            for (UnifiedDevice d : change.updated) track(d);
+            for (UnifiedDevice d : change.removed) {
+                Health h = health.remove(d.getId());
+                if (h != null && h.inFlight != null) close(h.inFlight);
+            }
+            rank();
+        });
+    }
+
+    private void post(Runnable task) {
+        tasks.add(task);
+        Selector s = selector;
+        if (s != null) s.wakeup();
+    }
+
+    private void track(UnifiedDevice d) {
+        Health h = health.get(d.getId());
+        if (h == null) {
+            h = new Health();
+            h.nextProbeNanos = System.nanoTime();
+            health.put(d.getId(), h);
+        }
+        h.device = d;
+        InetSocketAddress target = targetOf(d);
+        if (target != null && !target.equals(h.target)) {
+            // Adres/port değişti: eski ölçümler geçersiz, hemen yokla
+            if (h.inFlight != null) close(h.inFlight);
+            h.inFlight = null;
+            h.target = target;
+            h.hasSample = false;
+            h.failures = 0;
+            h.liveness = Liveness.UNKNOWN;
+            h.intervalMs = MIN_INTERVAL_MS;
+            h.nextProbeNanos = System.nanoTime();
+        }
+    }
+
+    /** SOAP’ın gideceği kontrol portu; yoksa description portu, en son Cast portu. */
+    private static InetSocketAddress targetOf(UnifiedDevice d) {
+        DlnaDevice dlna = d.getDlna();
+        if (dlna != null) {
+            URL u = dlna.getControlUrl() != null ? dlna.getControlUrl() : dlna.getLocationUrl();
+            if (u != null) return InetSocketAddress.createUnresolved(u.getHost(), u.getPort() > 0 ? u.getPort() : u.getDefaultPort());
+        }
+        if (d.getScanned() != null) {
+            return InetSocketAddress.createUnresolved(d.getScanned().getIp(), d.getScanned().getPort());
+        }
+        String host = d.getHost();
+        return host != null ? InetSocketAddress.createUnresolved(host, CAST_PORT) : null;
+    }
+
+    private void loop() {
+        Selector sel = selector;
+        try {
+            while (running) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) task.run();
+
+                long now = System.nanoTime();
+                long wakeNanos = now + TimeUnit.MILLISECONDS.toNanos(MAX_INTERVAL_MS);
+                for (Health h : health.values()) {
+                    if (h.inFlight == null && h.target != null && now >= h.nextProbeNanos) open(sel, h);
+                    wakeNanos = Math.min(wakeNanos, h.inFlight != null ? h.deadlineNanos : h.nextProbeNanos);
+                }
+
+                sel.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wakeNanos - now)));
+                now = System.nanoTime();
+                boolean changed = false;
+
+                Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Health h = (Health) key.attachment();
+                    boolean ok;
+                    try {
+                        if (!((SocketChannel) key.channel()).finishConnect()) continue;
+                        ok = true;
+                    } catch (IOException e) {
+                        // RST de başarısızlık: TV ağda ama renderer kapalı (standby) olabilir
+                        ok = false;
+                    }
+                    close(key);
+                    if (h.inFlight != key) continue; // cihaz bu arada silindi/taşındı
+                    h.inFlight = null;
+                    changed |= finish(h, ok, now);
+                }
+
+                for (Health h : health.values()) {
+                    if (h.inFlight != null && now >= h.deadlineNanos) {
+                        close(h.inFlight);
+                        h.inFlight = null;
+                        changed |= finish(h, false, now);
+                    }
+                }
+                if (changed) rank();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "monitor stopped: " + e.getMessage());
+        } finally {
+            for (Health h : health.values()) {
+                if (h.inFlight != null) close(h.inFlight);
+                h.inFlight = null;
+            }
+            health.clear();
+            tasks.clear();
+            try { sel.close(); } catch (IOException ignore) {}
+            ranked = Collections.emptyList();
+            if (running && selector == sel) {
+                // stop() çağrılmadan düştü (select() hatası): start() yeniden kurabilsin
+                running = false;
+                registry.removeListener(registryListener);
+            }
+        }
+    }
+
+    private void open(Selector sel, Health h) {
+        long now = System.nanoTime();
+        SocketChannel ch = null;
+        try {
+            ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            InetSocketAddress resolved = new InetSocketAddress(h.target.getHostString(), h.target.getPort());
+            h.startNanos = now;
+            if (ch.connect(resolved)) {
+                ch.close();
+                finish(h, true, System.nanoTime());
+                rank();
+                return;
+            }
+            h.deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(h.timeoutMs());
+            h.inFlight = ch.register(sel, SelectionKey.OP_CONNECT, h);
+        } catch (IOException e) {
+            if (ch != null) {
+                try { ch.close(); } catch (IOException ignore) {}
+            }
+            h.startNanos = now;
+            if (finish(h, false, now)) rank();
+        }
+    }
+
+    /**
+     * Yoklama sonucunu işler; sıralama yeniden hesaplanmalıysa true: canlılık değişti ya da yeni RTT
+     * örneği geldi (SRTT sırayı değiştirebilir, Ranked.rttMs güncel kalmalı). Sıra aynıysa rank()
+     * dinleyicileri çağırmaz.
+     */
+    private static boolean finish(Health h, boolean ok, long now) {
+        Liveness before = h.liveness;
+        if (ok) {
+            h.sample((now - h.startNanos) / 1_000_000.0);
+            h.failures = 0;
+            h.liveness = Liveness.ALIVE;
+            h.lastSeenMs = System.currentTimeMillis();
+        } else {
+            h.failures++;
+            h.liveness = h.failures >= DOWN_AFTER ? Liveness.DOWN : Liveness.SUSPECT;
+        }
+        // Durum sabitse aralık katlanır; değiştiyse ya da SUSPECT doğrulaması sürüyorsa kısa aralıkta kalır
+        boolean settled = h.liveness == before && h.liveness != Liveness.SUSPECT;
+        h.intervalMs = settled ? Math.min(MAX_INTERVAL_MS, h.intervalMs * 2) : MIN_INTERVAL_MS;
+        h.nextProbeNanos = now + TimeUnit.MILLISECONDS.toNanos(h.intervalMs);
+        return ok || h.liveness != before;
+    }
+
+    /** ALIVE önce (RTT artan), sonra UNKNOWN, SUSPECT, DOWN; eşitlikte ad. */
+    private void rank() {
+        List<Ranked> list = new ArrayList<>(health.size());
+        for (Health h : health.values()) {
+            list.add(new Ranked(h.device, h.liveness, h.hasSample ? Math.round(h.srttMs) : -1, h.lastSeenMs));
+        }
+        Collections.sort(list, (a, b) -> {
+            int c = a.liveness.compareTo(b.liveness);
+            if (c != 0) return c;
+            if (a.liveness == Liveness.ALIVE) {
+                c = Long.compare(a.rttMs, b.rttMs);
+                if (c != 0) return c;
+            }
+            return String.CASE_INSENSITIVE_ORDER.compare(a.device.getName(), b.device.getName());
+        });
+        List<Ranked> before = ranked;
+        ranked = Collections.unmodifiableList(list);
+        if (sameOrder(before, list)) return;
+        for (Listener l : listeners) {
+            try {
+                l.onRankingChanged(ranked);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean sameOrder(List<Ranked> a, List<Ranked> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            Ranked x = a.get(i), y = b.get(i);
+            if (x.device != y.device || x.liveness != y.liveness) return false;
+        }
+        return true;
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try { key.channel().close(); } catch (IOException ignore) {}
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.minicast.devices;
+
+import java.util.Objects;
+
+/** IP taramasında description’ı bulunan cihaz (SSDP’ye yanıt vermeyen TV’ler için). */
+public class ScannedDevice implements TargetDevice {
+    private final String ip;
+    private final int port;
+    private final String descriptionUrl;
+    private final String friendlyName;
+
+    public ScannedDevice(String ip, int port, String descriptionUrl, String friendlyName) {
+        this.ip = ip;
+        this.port = port;
+        this.descriptionUrl = descriptionUrl;
+        this.friendlyName = friendlyName;
+    }
+
+    public String getIp() { return ip; }
+    public int getPort() { return port; }
+    public String getDescriptionUrl() { return descriptionUrl; }
+
+    @Override
+    public String getId() { return ip + ":" + port; }
+
+    @Override
+    public String getName() { return friendlyName != null && !friendlyName.isEmpty() ? friendlyName : ip; }
+
+    @Override
+    public DeviceType getType() { return DeviceType.DLNA; }
+
+    @Override
+    public String toString() { return getName(); }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScannedDevice)) return false;
+        ScannedDevice that = (ScannedDevice) o;
+        return port == that.port && Objects.equals(ip, that.ip)
+                && Objects.equals(descriptionUrl, that.descriptionUrl)
+                && Objects.equals(friendlyName, that.friendlyName);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(ip, port); }
+}
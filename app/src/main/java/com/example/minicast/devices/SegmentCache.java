@@ -0,0 +1,62 @@
+package com.example.minicast.devices;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HlsRelay’in segment önbelleği: toplam bayta göre sınırlı LRU (erişim sırası LinkedHashMap).
+ * Anahtar kaynak URL’i; aynı yayını izleyen TV’ler ve geri sarma aynı girdiyi kullanır.
+ */
+final class SegmentCache {
+
+    static final class Entry {
+        final byte[] data;
+        final String mimeType;
+
+        Entry(byte[] data, String mimeType) {
+            this.data = data;
+            this.mimeType = mimeType;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+
+    SegmentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    synchronized boolean contains(String url) {
+        return entries.containsKey(url);
+    }
+
+    /** Önbelleğin dörtte birinden büyük girdi tutulmaz (tek dosya tüm segmentleri silmesin). */
+    synchronized void put(String url, Entry e) {
+        if (e.data.length > maxBytes / 4) return;
+        Entry old = entries.put(url, e);
+        if (old != null) bytes -= old.data.length;
+        bytes += e.data.length;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue() == e) continue;
+            bytes -= eldest.getValue().data.length;
+            it.remove();
+        }
+    }
+
+    synchronized long sizeBytes() { return bytes; }
+
+    synchronized int count() { return entries.size(); }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renderer başına kalıcı (keep-alive) SOAP istemcisi.
+ * - host:port başına küçük bir boşta bağlantı havuzu; her komutta TCP el sıkışması yok
+ * - Zarflar SoapEnvelope ile önceden derlenir, istek tek write ile gider
+ * - pipeline(): birden çok komut (ör. SetAVTransportURI + Play) aynı bağlantıya art arda yazılır
+ * - Bayat havuz bağlantısı (yanıt başlamadan EOF / reset) bir kez taze bağlantıyla yeniden denenir;
+ *   zaman aşımında istek tekrarlanmaz, cihaz komutu işlemiş olabilir
+ * - Pipelining’i art arda bozan cihazlar bir süre "Connection: close" moduna düşülür
+ */
+final class SoapClient {
+
+    private static final String TAG = "SoapClient";
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int READ_TIMEOUT_MS = 3000;
+    private static final int MAX_IDLE = 2;
+    private static final long IDLE_TIMEOUT_MS = 15_000; // çoğu TV boştaki bağlantıyı 20-60 sn’de kapatır
+    private static final int PIPELINE_FAILURES = 2; // art arda bu kadar yarım kalan pipeline → close-per-request
+    private static final long CLOSE_PER_REQUEST_MS = 10 * 60_000L; // sonra pipelining yeniden denenir
+
+    private static final Map<String, SoapClient> CLIENTS = new ConcurrentHashMap<>();
+
+    /** Tek bir SOAP çağrısı: hedef control URL + zarf + parametreler. */
+    static final class Call {
+        final URL controlUrl;
+        final SoapEnvelope envelope;
+        final String[] args;
+
+        Call(URL controlUrl, SoapEnvelope envelope, String... args) {
+            this.controlUrl = controlUrl;
+            this.envelope = envelope;
+            this.args = args;
+        }
+    }
+
+    /** send() ile yazılmış, yanıtı henüz okunmamış istek. */
+    static final class Sent {
+        final Call call;
+        final long sentAtNanos;
+        private final SoapClient client;
+        private final Conn conn;
+        private final boolean close;
+
+        private Sent(SoapClient client, Call call, Conn conn, boolean close) {
+            this.client = client;
+            this.call = call;
+            this.conn = conn;
+            this.close = close;
+            this.sentAtNanos = System.nanoTime();
+        }
+
+        /** Yanıtı okur ve bağlantıyı havuza bırakır. */
+        HttpResponse receive() throws IOException {
+            try {
+                HttpResponse r = HttpResponse.read(conn.in, false);
+                client.release(conn, r.keepAlive && !close);
+                return r;
+            } catch (IOException e) {
+                discard(conn);
+                // Bayat havuz bağlantısı: istek işlenmedi, taze bağlantıyla bir kez daha
+                if (conn.stale(e)) return client.execute(call);
+                throw e;
+            }
+        }
+    }
+
+    private static final class Conn {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        long lastUsed;
+        boolean reused;
+        long received; // son istek yazıldığından beri soketten okunan bayt
+
+        Conn(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(new FilterInputStream(socket.getInputStream()) {
+                @Override public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) received++;
+                    return b;
+                }
+
+                @Override public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) received += n;
+                    return n;
+                }
+            }, 4096);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 4096);
+        }
+
+        void write(byte[] req) throws IOException {
+            received = 0;
+            out.write(req);
+            out.flush();
+        }
+
+        /**
+         * Cihaz boştaki havuz bağlantısını kapatmış mı: yanıtın tek baytı gelmeden EOF / reset → istek
+         * işlenmedi, yeniden göndermek güvenli. Zaman aşımı sayılmaz (Play/Seek iki kez gitmesin).
+         */
+        boolean stale(IOException e) {
+            return reused && received == 0 && !(e instanceof SocketTimeoutException)
+                    && (e instanceof EOFException || e instanceof SocketException);
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final ArrayDeque<Conn> idle = new ArrayDeque<>();
+    private volatile long closePerRequestUntil; // 0: pipelining / keep-alive açık
+    private int pipelineFailures; // this kilidiyle
+
+    private SoapClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /** Aynı renderer’a (host:port) giden tüm çağrılar aynı istemciyi paylaşır. */
+    static SoapClient forUrl(URL controlUrl) {
+        int port = controlUrl.getPort() > 0 ? controlUrl.getPort() : controlUrl.getDefaultPort();
+        String key = controlUrl.getHost() + ":" + port;
+        SoapClient c = CLIENTS.get(key);
+        if (c != null) return c;
+        SoapClient created = new SoapClient(controlUrl.getHost(), port);
+        c = CLIENTS.putIfAbsent(key, created);
+        return c != null ? c : created;
+    }
+
+    boolean isClosePerRequest() { return System.currentTimeMillis() < closePerRequestUntil; }
+
+    /** Tek çağrı; yanıt gövdesi sonraki ayrıştırma için döner. */
+    HttpResponse execute(URL controlUrl, SoapEnvelope env, String... args) throws IOException {
+        return execute(new Call(controlUrl, env, args));
+    }
+
+    HttpResponse execute(Call call) throws IOException {
+        boolean close = isClosePerRequest();
+        byte[] req = encode(call, close);
+        for (int attempt = 0; ; attempt++) {
+            Conn c = acquire(close);
+            try {
+                c.write(req);
+                HttpResponse r = HttpResponse.read(c.in, false);
+                release(c, r.keepAlive && !close);
+                return r;
+            } catch (IOException e) {
+                discard(c);
+                // Havuzdan gelen bağlantıyı cihaz sessizce kapatmış olabilir: bir kez taze bağlantıyla dene
+                if (attempt > 0 || !c.stale(e)) throw e;
+            }
+        }
+    }
+
+    /**
+     * İsteği yazar, yanıtı beklemeden döner. Tek thread’in birçok renderer’a aynı anda komut
+     * göndermesi için (grup Play): önce hepsine send(), sonra sırayla Sent.receive().
+     */
+    Sent send(Call call) throws IOException {
+        boolean close = isClosePerRequest();
+        byte[] req = encode(call, close);
+        Conn c = acquire(close);
+        try {
+            c.write(req);
+            return new Sent(this, call, c, close);
+        } catch (IOException e) {
+            discard(c);
+            if (!c.stale(e)) throw e;
+            c = acquire(close);
+            try {
+                c.write(req);
+                return new Sent(this, call, c, close);
+            } catch (IOException again) {
+                discard(c);
+                throw again;
+            }
+        }
+    }
+
+    /**
+     * Çağrıları tek bağlantıya art arda yazar, yanıtları sırayla okur.
+     * Cihaz kalan istekleri yanıtlamadan bağlantıyı kapatırsa kalanlar tek tek gönderilir; bu art
+     * arda PIPELINE_FAILURES kez olursa renderer CLOSE_PER_REQUEST_MS boyunca close-per-request
+     * moduna alınır. Zaman aşımında kalanlar gönderilmez (cihaz işliyor olabilir), hata döner.
+     */
+    List<HttpResponse> pipeline(List<Call> calls) throws IOException {
+        if (calls.isEmpty()) return Collections.emptyList();
+        List<HttpResponse> out = new ArrayList<>(calls.size());
+        if (isClosePerRequest() || calls.size() == 1) {
+            for (Call call : calls) out.add(execute(call));
+            return out;
+        }
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(2048);
+        for (Call call : calls) {
+            byte[] b = encode(call, false);
+            batch.write(b, 0, b.length);
+        }
+        byte[] bytes = batch.toByteArray();
+
+        Conn c = acquire(false);
+        try {
+            c.write(bytes);
+            while (out.size() < calls.size()) {
+                HttpResponse r = HttpResponse.read(c.in, false);
+                out.add(r);
+                if (!r.keepAlive) break;
+            }
+        } catch (IOException e) {
+            discard(c);
+            if (out.isEmpty() && c.stale(e)) {
+                // Bayat havuz bağlantısı: hiçbir istek işlenmedi, bütün grubu yeniden dene
+                return pipeline(calls);
+            }
+            if (out.isEmpty() || e instanceof SocketTimeoutException) throw e;
+        }
+
+        if (out.size() == calls.size()) {
+            release(c, out.get(out.size() - 1).keepAlive);
+            pipelined(true);
+            return out;
+        }
+
+        // Kalan istekler yanıtlanmadan bağlantı kapandı: cihaz onları işlemedi
+        discard(c);
+        pipelined(false);
+        for (int i = out.size(); i < calls.size(); i++) out.add(execute(calls.get(i)));
+        return out;
+    }
+
+    /** Yarım kalan pipeline’ları sayar; eşik aşılınca close-per-request süresi başlar. */
+    private synchronized void pipelined(boolean ok) {
+        if (ok) {
+            pipelineFailures = 0;
+            return;
+        }
+        if (++pipelineFailures < PIPELINE_FAILURES) return;
+        pipelineFailures = 0;
+        closePerRequestUntil = System.currentTimeMillis() + CLOSE_PER_REQUEST_MS;
+        Log.w(TAG, host + ":" + port + " does not pipeline, falling back to close-per-request");
+    }
+
+    private byte[] encode(Call call, boolean close) {
+        byte[] body = call.envelope.render(call.args);
+        String path = call.controlUrl.getFile();
+        if (path == null || path.isEmpty()) path = "/";
+        String head = "POST " + path + " HTTP/1.1\r\n"
+                + "Host: " + host + ":" + port + "\r\n"
+                + "Content-Type: text/xml; charset=\"utf-8\"\r\n"
+                + "SOAPAction: " + call.envelope.soapAction + "\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: " + (close ? "close" : "keep-alive") + "\r\n"
+                + "\r\n";
+        byte[] h = head.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] req = new byte[h.length + body.length];
+        System.arraycopy(h, 0, req, 0, h.length);
+        System.arraycopy(body, 0, req, h.length, body.length);
+        return req;
+    }
+
+    private Conn acquire(boolean close) throws IOException {
+        if (!close) {
+            long now = System.currentTimeMillis();
+            synchronized (idle) {
+                Conn c;
+                while ((c = idle.pollLast()) != null) {
+                    if (now - c.lastUsed < IDLE_TIMEOUT_MS && !c.socket.isClosed()) {
+                        c.reused = true;
+                        return c;
+                    }
+                    discard(c);
+                }
+            }
+        }
+        Socket s = new Socket();
+        try {
+            s.setTcpNoDelay(true); // küçük SOAP istekleri Nagle’a takılmasın
+            s.setKeepAlive(true);
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setSoTimeout(READ_TIMEOUT_MS);
+            return new Conn(s);
+        } catch (IOException e) {
+            try { s.close(); } catch (IOException ignore) {}
+            throw e;
+        }
+    }
+
+    private void release(Conn c, boolean keepAlive) {
+        if (!keepAlive || isClosePerRequest()) {
+            discard(c);
+            return;
+        }
+        c.lastUsed = System.currentTimeMillis();
+        synchronized (idle) {
+            if (idle.size() < MAX_IDLE) {
+                idle.addLast(c);
+                return;
+            }
+        }
+        discard(c);
+    }
+
+    private static void discard(Conn c) {
+        try { c.socket.close(); } catch (IOException ignore) {}
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.minicast.devices;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Önceden derlenmiş SOAP zarfı: sabit parçalar bir kez bayta çevrilir, çağrıda yalnızca
+ * (XML-escape edilmiş) parametre değerleri yuvalarına yerleştirilir.
+ */
+final class SoapEnvelope {
+
+    final String serviceType;
+    final String action;
+    final String soapAction; // SOAPAction başlığı: "type#action"
+
+    private final byte[] head;
+    private final byte[][] open;
+    private final byte[][] close;
+    private final byte[] tail;
+
+    private SoapEnvelope(String serviceType, String action, String[] argNames) {
+        this.serviceType = serviceType;
+        this.action = action;
+        this.soapAction = "\"" + serviceType + "#" + action + "\"";
+        this.head = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+                + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\">"
+                + "<s:Body>"
+                + "<u:" + action + " xmlns:u=\"" + serviceType + "\">").getBytes(StandardCharsets.UTF_8);
+        this.open = new byte[argNames.length][];
+        this.close = new byte[argNames.length][];
+        for (int i = 0; i < argNames.length; i++) {
+            open[i] = ("<" + argNames[i] + ">").getBytes(StandardCharsets.UTF_8);
+            close[i] = ("</" + argNames[i] + ">").getBytes(StandardCharsets.UTF_8);
+        }
+        this.tail = ("</u:" + action + "></s:Body></s:Envelope>").getBytes(StandardCharsets.UTF_8);
+    }
+
+    static SoapEnvelope compile(String serviceType, String action, String... argNames) {
+        return new SoapEnvelope(serviceType, action, argNames);
+    }
+
+    String getAction() { return action; }
+
+    /** Değerler argNames sırasıyla verilir; null boş eleman olarak yazılır. */
+    byte[] render(String... values) {
+        if (values.length != open.length) {
+            throw new IllegalArgumentException(action + " expects " + open.length + " args");
+        }
+        int size = head.length + tail.length;
+        byte[][] escaped = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            escaped[i] = values[i] != null
+                    ? xmlEscape(values[i]).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            size += open[i].length + escaped[i].length + close[i].length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.write(head, 0, head.length);
+        for (int i = 0; i < values.length; i++) {
+            out.write(open[i], 0, open[i].length);
+            out.write(escaped[i], 0, escaped[i].length);
+            out.write(close[i], 0, close[i].length);
+        }
+        out.write(tail, 0, tail.length);
+        return out.toByteArray();
+    }
+
+    static String xmlEscape(String s) {
+        return s.replace("&","&amp;")
+                .replace("<","&lt;")
+                .replace(">","&gt;")
+                .replace("\"","&quot;")
+                .replace("'","&apos;");
+    }
+}
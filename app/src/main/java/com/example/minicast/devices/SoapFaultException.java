@@ -0,0 +1,16 @@
+package com.example.minicast.devices;
+
+import java.io.IOException;
+
+/** Cihazın döndürdüğü UPnP SOAP hatası (ör. 701 Transition not available, 711 Illegal seek target). */
+public class SoapFaultException extends IOException {
+    private final int errorCode;
+
+    public SoapFaultException(int errorCode, String description) {
+        super("UPnP error " + errorCode + (description != null ? ": " + description : ""));
+        this.errorCode = errorCode;
+    }
+
+    /** UPnPError/errorCode; yoksa -1. */
+    public int getErrorCode() { return errorCode; }
+}
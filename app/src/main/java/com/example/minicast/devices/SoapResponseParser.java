@@ -0,0 +1,77 @@
+package com.example.minicast.devices;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SOAP yanıtını akıştan okur: &lt;u:XxxResponse&gt; altındaki çıkış argümanları ad → değer olarak döner,
+ * &lt;s:Fault&gt; ise UPnPError kodu ile SoapFaultException fırlatılır.
+ */
+final class SoapResponseParser {
+
+    private SoapResponseParser() {}
+
+    static Map<String, String> parse(HttpResponse r) throws IOException {
+        Map<String, String> out;
+        try {
+            out = parse(r.bodyStream());
+        } catch (SoapFaultException e) {
+            throw e;
+        } catch (Exception e) {
+            if (!r.isSuccess()) throw new IOException("HTTP " + r.status);
+            throw new IOException("bad SOAP response: " + e.getMessage());
+        }
+        if (!r.isSuccess()) throw new IOException("HTTP " + r.status);
+        return out;
+    }
+
+    private static Map<String, String> parse(InputStream in) throws Exception {
+        XmlPullParser p = Xml.newPullParser();
+        p.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        p.setInput(in, null);
+
+        Map<String, String> out = new HashMap<>();
+        int responseDepth = -1;
+        boolean fault = false;
+        int errorCode = -1;
+        String errorDescription = null;
+
+        for (int ev = p.next(); ev != XmlPullParser.END_DOCUMENT; ev = p.next()) {
+            if (ev == XmlPullParser.END_TAG) {
+                if (p.getDepth() == responseDepth) responseDepth = -1;
+                continue;
+            }
+            if (ev != XmlPullParser.START_TAG) continue;
+
+            String name = local(p.getName());
+            if (fault) {
+                if (name.equals("errorCode")) {
+                    try { errorCode = Integer.parseInt(p.nextText().trim()); } catch (NumberFormatException ignore) {}
+                } else if (name.equals("errorDescription") || (name.equals("faultstring") && errorDescription == null)) {
+                    errorDescription = p.nextText().trim();
+                }
+            } else if (name.equals("Fault")) {
+                fault = true;
+            } else if (responseDepth < 0 && name.endsWith("Response")) {
+                responseDepth = p.getDepth();
+            } else if (responseDepth > 0 && p.getDepth() == responseDepth + 1) {
+                String v = p.nextText();
+                out.put(name, v != null ? v.trim() : "");
+            }
+        }
+        if (fault) throw new SoapFaultException(errorCode, errorDescription);
+        return out;
+    }
+
+    /** "u:CurrentVolume" → "CurrentVolume" */
+    private static String local(String name) {
+        int i = name.indexOf(':');
+        return i >= 0 ? name.substring(i + 1) : name;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * M-SEARCH için arayüz başına bir DatagramChannel; hepsi tek Selector’a kayıtlı.
+ * - Açık, multicast destekli, IPv4 adresli ve loopback olmayan her arayüz (Wi-Fi, Ethernet, hotspot, VPN köprüsü)
+ * - Kanal arayüz adresine bağlanır, böylece unicast yanıtlar geldiği arayüzün kanalına düşer
+ * - Uygun arayüz bulunamazsa işletim sisteminin seçtiği varsayılan arayüzle tek kanal
+ * Kanalların attachment’ı Endpoint’tir; alıcı bulunan cihazı arayüz adıyla etiketler.
+ */
+final class SsdpInterfaces implements Closeable {
+
+    private static final String TAG = "DlnaDiscovery";
+    private static final int RECEIVE_BUFFER = 256 * 1024; // kalabalık ağlarda yanıt patlamasına karşı
+
+    static final class Endpoint {
+        final String name;          // "wlan0", "eth0"...; varsayılan kanalda null
+        final DatagramChannel channel;
+
+        Endpoint(String name, DatagramChannel channel) {
+            this.name = name;
+            this.channel = channel;
+        }
+    }
+
+    final Selector selector;
+    final List<Endpoint> endpoints;
+
+    private SsdpInterfaces(Selector selector, List<Endpoint> endpoints) {
+        this.selector = selector;
+        this.endpoints = endpoints;
+    }
+
+    static SsdpInterfaces open() throws IOException {
+        Selector selector = Selector.open();
+        List<Endpoint> endpoints = new ArrayList<>();
+        try {
+            Enumeration<NetworkInterface> all = NetworkInterface.getNetworkInterfaces();
+            for (NetworkInterface ni : all != null ? Collections.list(all) : Collections.<NetworkInterface>emptyList()) {
+                try {
+                    if (!ni.isUp() || ni.isLoopback() || !ni.supportsMulticast()) continue;
+                    InetAddress addr = ipv4(ni);
+                    if (addr == null) continue;
+                    DatagramChannel ch = DatagramChannel.open(StandardProtocolFamily.INET);
+                    try {
+                        ch.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER);
+                        ch.setOption(StandardSocketOptions.IP_MULTICAST_IF, ni);
+                        ch.bind(new InetSocketAddress(addr, 0));
+                        ch.configureBlocking(false);
+                    } catch (IOException e) {
+                        ch.close();
+                        throw e;
+                    }
+                    Endpoint ep = new Endpoint(ni.getName(), ch);
+                    ch.register(selector, SelectionKey.OP_READ, ep);
+                    endpoints.add(ep);
+                } catch (IOException e) {
+                    Log.w(TAG, "skip interface " + ni.getName() + ": " + e.getMessage());
+                }
+            }
+            if (endpoints.isEmpty()) {
+                DatagramChannel ch = DatagramChannel.open(StandardProtocolFamily.INET);
+                ch.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER);
+                ch.bind(null);
+                ch.configureBlocking(false);
+                Endpoint ep = new Endpoint(null, ch);
+                ch.register(selector, SelectionKey.OP_READ, ep);
+                endpoints.add(ep);
+            }
+        } catch (IOException e) {
+            new SsdpInterfaces(selector, endpoints).close();
+            throw e;
+        }
+        return new SsdpInterfaces(selector, endpoints);
+    }
+
+    /** Aynı datagram’ı her arayüzden gönderir; tek arayüzdeki hata diğerlerini etkilemez. */
+    void sendAll(byte[] data, InetSocketAddress group) {
+        for (Endpoint ep : endpoints) {
+            try {
+                ep.channel.send(ByteBuffer.wrap(data), group);
+            } catch (IOException e) {
+                Log.w(TAG, "M-SEARCH failed on " + ep.name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Endpoint ep : endpoints) {
+            try { ep.channel.close(); } catch (IOException ignore) {}
+        }
+        try { selector.close(); } catch (IOException ignore) {}
+    }
+
+    private static InetAddress ipv4(NetworkInterface ni) {
+        for (InetAddress a : Collections.list(ni.getInetAddresses())) {
+            if (a instanceof Inet4Address && !a.isLoopbackAddress()) return a;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.minicast.devices;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.util.Log;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pasif SSDP dinleyicisi: 239.255.255.250:1900 grubuna katılır, NOTIFY mesajlarını işler.
+ * - ssdp:alive → cihaz kayıtlıysa ömrü uzatılır, değilse description çekilip eklenir
+ * - ssdp:byebye → cihaz hemen silinir
+ * - max-age dolan cihazlar registry’den düşer
+ * Aktif M-SEARCH (DlnaDiscovery.discover) yerine sürekli açık, bedava güncel liste sağlar.
+ */
+public class SsdpNotifyListener {
+
+    private static final String TAG = "SsdpNotify";
+    private static final String SSDP_ADDR = "239.255.255.250";
+    private static final int SSDP_PORT = 1900;
+
+    private final Context ctx;
+    private final DlnaDeviceRegistry registry;
+    private final ExecutorService fetchers = Executors.newFixedThreadPool(2);
+    private final Set<String> fetching = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = false;
+    private volatile MulticastSocket socket;
+    private volatile Thread thread; // döngü yalnızca kendisi hâlâ bu thread iken çalışır
+
+    public SsdpNotifyListener(Context ctx) {
+        this(ctx, new DlnaDeviceRegistry());
+    }
+
+    public SsdpNotifyListener(Context ctx, DlnaDeviceRegistry registry) {
+        this.ctx = ctx.getApplicationContext();
+        this.registry = registry;
+    }
+
+    public DlnaDeviceRegistry getRegistry() { return registry; }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::loop, "minicast-ssdp-notify");
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        MulticastSocket s = socket;
+        if (s != null) s.close(); // receive() hemen düşsün
+        thread = null;
+    }
+
+    private void loop() {
+        Thread me = Thread.currentThread();
+        WifiManager.MulticastLock lock = null;
+        InetAddress group = null;
+        MulticastSocket sock = null;
+        try {
+            WifiManager wm = (WifiManager) ctx.getSystemService(Context.WIFI_SERVICE);
+            if (wm != null) {
+                lock = wm.createMulticastLock("minicast-ssdp-notify");
+                lock.setReferenceCounted(false);
+                lock.acquire();
+            }
+
+            group = InetAddress.getByName(SSDP_ADDR);
+            sock = new MulticastSocket(null);
+            sock.setReuseAddress(true); // başka SSDP dinleyicileriyle portu paylaş
+            sock.bind(new InetSocketAddress(SSDP_PORT));
+            sock.joinGroup(group);
+            sock.setSoTimeout(1000); // süre dolumlarını kontrol etmek için
+            synchronized (this) {
+                if (thread != me) return; // bağlanırken stop() geldi
+                socket = sock;
+            }
+
+            byte[] buf = new byte[8192];
+            DatagramPacket p = new DatagramPacket(buf, buf.length);
+            SsdpPacket pkt = new SsdpPacket();
+            while (running && thread == me) {
+                p.setLength(buf.length);
+                try {
+                    sock.receive(p);
+                    pkt.parse(p.getData(), p.getOffset(), p.getLength());
+                    handle(pkt);
+                } catch (SocketTimeoutException ignore) {
+                    // süre dolumu kontrolü
+                }
+                registry.expire();
+            }
+        } catch (Exception e) {
+            if (running && thread == me) Log.w(TAG, "notify loop error: " + e.getMessage());
+        } finally {
+            // Yalnızca kendi soketimiz kapatılır; stop()+start() sonrası yeni thread’in alanlarına dokunulmaz
+            if (sock != null) {
+                try { if (group != null) sock.leaveGroup(group); } catch (Throwable ignore) {}
+                sock.close();
+            }
+            synchronized (this) {
+                if (socket == sock) socket = null;
+                if (thread == me) {
+                    thread = null;
+                    running = false;
+                }
+            }
+            try { if (lock != null && lock.isHeld()) lock.release(); } catch (Throwable ignore) {}
+        }
+    }
+
+    private void handle(SsdpPacket pkt) {
+        if (!pkt.isNotify()) return; // M-SEARCH vb.
+        if (!pkt.has(SsdpPacket.NTS) || !pkt.has(SsdpPacket.USN)) return;
+        boolean byebye = pkt.valueEqualsIgnoreCase(SsdpPacket.NTS, "ssdp:byebye");
+        if (!byebye && !pkt.valueEqualsIgnoreCase(SsdpPacket.NTS, "ssdp:alive")) return; // ssdp:update vb.
+        long uuidHash = pkt.uuidHash();
+
+        if (byebye) {
+            if (registry.containsHash(uuidHash)) registry.remove(uuidOf(pkt.string(SsdpPacket.USN)));
+            return;
+        }
+
+        long maxAgeSec = pkt.maxAgeSeconds(DlnaDiscovery.DEFAULT_MAX_AGE_SEC);
+        long maxAge = maxAgeSec * 1000L;
+        // Bilinen cihazın tekrarı (NOTIFY’ların çoğu): özetlerle yenilenir, String oluşturulmaz
+        if (registry.touch(uuidHash, pkt.hash(SsdpPacket.LOCATION), maxAge)) return;
+        if (!pkt.has(SsdpPacket.LOCATION)) return;
+
+        // Yalnızca yeni (ya da LOCATION’ı değişmiş) cihaz için
+        String uuid = uuidOf(pkt.string(SsdpPacket.USN));
+        String location = pkt.string(SsdpPacket.LOCATION);
+        if (!fetching.add(uuid)) return;
+
+        long bootId = pkt.number(SsdpPacket.BOOTID);
+        long configId = pkt.number(SsdpPacket.CONFIGID);
+        DescriptionCache cache = DescriptionCache.get(ctx);
+        fetchers.execute(() -> {
+            try {
+                DlnaDevice dev = cache.fresh(uuid, location, bootId, configId, maxAgeSec);
+                if (dev == null) dev = cache.fetch(uuid, location, bootId, configId, maxAgeSec);
+                if (dev != null && running) registry.put(uuid, dev, maxAge);
+            } catch (Exception e) {
+                Log.w(TAG, "description error: " + e.getMessage());
+            } finally {
+                fetching.remove(uuid);
+            }
+        });
+    }
+
+    /** "uuid:XXXX::urn:..." → "uuid:XXXX" */
+    static String uuidOf(String usn) {
+        int i = usn.indexOf("::");
+        return i > 0 ? usn.substring(0, i) : usn;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.minicast.devices;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tekrar kullanılabilir, allocation’sız SSDP başlık ayrıştırıcı.
+ * - Başlıklar doğrudan DatagramPacket tamponundan, büyük/küçük harf duyarsız bayt karşılaştırmayla bulunur
+ * - Değerler tampon içindeki [start, end) aralıkları olarak tutulur (kopya yok)
+ * - String yalnızca string() çağrılınca (ör. yeni cihaz) oluşturulur
+ * Tampon bir sonraki receive’e kadar geçerlidir; instance thread’ler arasında paylaşılmamalı.
+ */
+final class SsdpPacket {
+
+    static final int LOCATION = 0;
+    static final int USN = 1;
+    static final int ST = 2;
+    static final int NT = 3;
+    static final int NTS = 4;
+    static final int CACHE_CONTROL = 5;
+    static final int BOOTID = 6;
+    static final int CONFIGID = 7;
+
+    private static final byte[][] NAMES = {
+            ascii("location"),
+            ascii("usn"),
+            ascii("st"),
+            ascii("nt"),
+            ascii("nts"),
+            ascii("cache-control"),
+            ascii("bootid.upnp.org"),
+            ascii("configid.upnp.org"),
+    };
+
+    private static final byte[] NOTIFY = ascii("notify");
+    private static final byte[] MAX_AGE = ascii("max-age");
+
+    private byte[] data;
+    private boolean notify;
+    private final int[] start = new int[NAMES.length];
+    private final int[] end = new int[NAMES.length];
+
+    /** data[off, off+len) üzerindeki mesajı işaretler. Her zaman true; başlık yoksa has() false döner. */
+    boolean parse(byte[] data, int off, int len) {
+        this.data = data;
+        for (int i = 0; i < NAMES.length; i++) start[i] = -1;
+
+        int limit = off + len;
+        notify = regionMatches(off, limit, NOTIFY);
+
+        // İlk satır (istek/durum satırı) atlanır
+        int p = off;
+        while (p < limit && data[p] != '\n') p++;
+        p++;
+
+        while (p < limit) {
+            int lineEnd = p;
+            while (lineEnd < limit && data[lineEnd] != '\n') lineEnd++;
+            int e = lineEnd;
+            if (e > p && data[e - 1] == '\r') e--;
+            if (e == p) break; // boş satır: başlıklar bitti
+
+            int colon = p;
+            while (colon < e && data[colon] != ':') colon++;
+            if (colon < e) {
+                int h = header(p, trimEnd(p, colon));
+                if (h >= 0 && start[h] < 0) {
+                    int vs = colon + 1;
+                    while (vs < e && (data[vs] == ' ' || data[vs] == '\t')) vs++;
+                    start[h] = vs;
+                    end[h] = trimEnd(vs, e);
+                }
+            }
+            p = lineEnd + 1;
+        }
+        return true;
+    }
+
+    boolean isNotify() { return notify; }
+
+    boolean has(int h) { return start[h] >= 0; }
+
+    /** Değeri String olarak döner (allocation); yoksa null. */
+    String string(int h) {
+        if (start[h] < 0) return null;
+        return new String(data, start[h], end[h] - start[h], StandardCharsets.UTF_8);
+    }
+
+    /** Değerin 64-bit FNV-1a özeti; görülmüş kümesi için String’siz anahtar. Yoksa 0. */
+    long hash(int h) {
+        if (start[h] < 0) return 0;
+        return fnv(data, start[h], end[h]);
+    }
+
+    /** USN’nin cihaz UUID’i kısmının ("::" öncesi) özeti; hash(uuidOf(usn)) ile aynı. Yoksa 0. */
+    long uuidHash() {
+        if (start[USN] < 0) return 0;
+        int e = end[USN];
+        for (int i = start[USN] + 1; i + 1 < e; i++) {
+            if (data[i] == ':' && data[i + 1] == ':') {
+                e = i;
+                break;
+            }
+        }
+        return fnv(data, start[USN], e);
+    }
+
+    /** String’in (UTF-8 baytlarının) özeti; hash(int) ile karşılaştırılabilir. */
+    static long hash(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return fnv(b, 0, b.length);
+    }
+
+    private static long fnv(byte[] b, int s, int e) {
+        long x = 0xcbf29ce484222325L;
+        for (int i = s; i < e; i++) {
+            x ^= b[i] & 0xff;
+            x *= 0x100000001b3L;
+        }
+        return x == 0 ? 1 : x;
+    }
+
+    boolean valueEqualsIgnoreCase(int h, String s) {
+        if (start[h] < 0 || end[h] - start[h] != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (lower(data[start[h] + i]) != lower((byte) s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    boolean valueIn(int h, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (valueEqualsIgnoreCase(h, values.get(i))) return true;
+        }
+        return false;
+    }
+
+    /** CACHE-CONTROL: max-age=N → N sn; yoksa def. */
+    long maxAgeSeconds(long def) {
+        if (start[CACHE_CONTROL] < 0) return def;
+        int s = start[CACHE_CONTROL], e = end[CACHE_CONTROL];
+        for (int i = s; i + MAX_AGE.length <= e; i++) {
+            if (!regionMatches(i, e, MAX_AGE)) continue;
+            int j = i + MAX_AGE.length;
+            while (j < e && (data[j] == ' ' || data[j] == '=')) j++;
+            long v = 0;
+            int digits = 0;
+            while (j < e && data[j] >= '0' && data[j] <= '9') {
+                v = v * 10 + (data[j++] - '0');
+                digits++;
+            }
+            return digits > 0 ? v : def;
+        }
+        return def;
+    }
+
+    /** Sayısal başlık (BOOTID / CONFIGID); yoksa veya bozuksa -1. */
+    long number(int h) {
+        if (start[h] < 0) return -1;
+        long v = 0;
+        int digits = 0;
+        for (int i = start[h]; i < end[h] && data[i] >= '0' && data[i] <= '9'; i++) {
+            v = v * 10 + (data[i] - '0');
+            digits++;
+        }
+        return digits > 0 ? v : -1;
+    }
+
+    private int header(int s, int e) {
+        for (int h = 0; h < NAMES.length; h++) {
+            if (e - s == NAMES[h].length && regionMatches(s, e, NAMES[h])) return h;
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(int s, int e, byte[] lowerName) {
+        if (e - s < lowerName.length) return false;
+        for (int i = 0; i < lowerName.length; i++) {
+            if (lower(data[s + i]) != lowerName[i]) return false;
+        }
+        return true;
+    }
+
+    private int trimEnd(int s, int e) {
+        while (e > s && (data[e - 1] == ' ' || data[e - 1] == '\t')) e--;
+        return e;
+    }
+
+    private static byte lower(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b + 32) : b;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
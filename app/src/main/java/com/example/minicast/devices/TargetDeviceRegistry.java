@@ -0,0 +1,303 @@
+package com.example.minicast.devices;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cast, DLNA ve IP taramasının ortak cihaz listesi.
+ * - Aynı TV tek kayıt (UnifiedDevice): UDN, Cast deviceId veya IP ile eşleşir;
+ *   aynı IP’de farklı UDN’li renderer’lar ayrı kalır
+ * - Kilitsiz: durum değişmez bir State, yazıcılar AtomicReference üzerinde CAS ile ilerler;
+ *   snapshot() hiçbir keşif thread’ini beklemez
+ * - Dinleyiciler tek teslim thread’inde, son teslim edilen duruma göre hesaplanmış farkı alır;
+ *   art arda gelen güncellemeler tek bildirimde birleşebilir, sıra bozulmaz, fark kaybolmaz
+ */
+public final class TargetDeviceRegistry {
+
+    private static final String TAG = "DeviceRegistry";
+
+    /** Bir teslimdeki değişiklik; listeler değişmez. */
+    public static final class Change {
+        public final List<UnifiedDevice> snapshot;
+        public final List<UnifiedDevice> added;
+        public final List<UnifiedDevice> updated;
+        public final List<UnifiedDevice> removed;
+
+        Change(List<UnifiedDevice> snapshot, List<UnifiedDevice> added,
+               List<UnifiedDevice> updated, List<UnifiedDevice> removed) {
+            this.snapshot = snapshot;
+            this.added = Collections.unmodifiableList(added);
+            this.updated = Collections.unmodifiableList(updated);
+            this.removed = Collections.unmodifiableList(removed);
+        }
+
+        public boolean isEmpty() { return added.isEmpty() && updated.isEmpty() && removed.isEmpty(); }
+    }
+
+    public interface Listener {
+        /** Teslim thread’inde çağrılır (UI thread’i değil). */
+        void onDevicesChanged(Change change);
+    }
+
+    /** Değişmez durum: id → kayıt ve eşleştirme anahtarı → id. */
+    private static final class State {
+        static final State EMPTY = new State(Collections.<String, UnifiedDevice>emptyMap(),
+                Collections.<String, String>emptyMap());
+
+        final Map<String, UnifiedDevice> byId;
+        final Map<String, String> index;
+        final List<UnifiedDevice> list;
+
+        State(Map<String, UnifiedDevice> byId, Map<String, String> index) {
+            this.byId = byId;
+            this.index = index;
+            List<UnifiedDevice> l = new ArrayList<>(byId.values());
+            Collections.sort(l, (a, b) -> {
+                int c = String.CASE_INSENSITIVE_ORDER.compare(a.getName(), b.getName());
+                return c != 0 ? c : a.getId().compareTo(b.getId());
+            });
+            this.list = Collections.unmodifiableList(l);
+        }
+
+        State with(TargetDevice src) {
+            List<String> keys = UnifiedDevice.keysOf(src);
+            String udn = UnifiedDevice.udnOf(src);
+            Set<String> ids = new LinkedHashSet<>();
+            for (String k : keys) {
+                String id = index.get(k);
+                if (id == null) continue;
+                // Aynı IP’de birden çok renderer olabilir (ör. TV + ekran paylaşımı): UDN’ler çelişiyorsa birleştirme
+                if (k.startsWith("ip:") && udn != null) {
+                    String other = byId.get(id).getUdn();
+                    if (other != null && !other.equals(udn)) continue;
+                }
+                ids.add(id);
+            }
+
+            UnifiedDevice merged;
+            if (ids.isEmpty()) {
+                merged = UnifiedDevice.of(src);
+                // Görünümünü kaybetmiş eski bir kayıt aynı id’yi taşıyor olabilir
+                for (int n = 2; byId.containsKey(merged.getId()); n++) {
+                    merged = UnifiedDevice.of(src, keys.get(0) + "#" + n);
+                }
+            } else {
+                UnifiedDevice base = null;
+                for (String id : ids) {
+                    base = base == null ? byId.get(id) : base.absorb(byId.get(id));
+                }
+                merged = base.with(src);
+                if (ids.size() == 1 && merged == byId.get(merged.getId())) return this;
+            }
+            return replace(ids, merged);
+        }
+
+        State without(TargetDevice src) {
+            for (String k : UnifiedDevice.keysOf(src)) {
+                String id = index.get(k);
+                if (id == null) continue;
+                UnifiedDevice cur = byId.get(id);
+                if (!cur.holds(src)) continue;
+                UnifiedDevice next = cur.without(src);
+                Set<String> ids = Collections.singleton(id);
+                if (next != null) return replace(ids, next);
+                Map<String, UnifiedDevice> nextById = new HashMap<>(byId);
+                Map<String, String> nextIndex = new HashMap<>(index);
+                reassign(drop(ids, nextById, nextIndex), nextById, nextIndex);
+                return new State(nextById, nextIndex);
+            }
+            return this;
+        }
+
+        /** ids’deki kayıtları tek kayıtla değiştirir ve anahtarlarını yeniden dizinler. */
+        private State replace(Set<String> ids, UnifiedDevice merged) {
+            Map<String, UnifiedDevice> nextById = new HashMap<>(byId);
+            Map<String, String> nextIndex = new HashMap<>(index);
+            List<String> freedIps = drop(ids, nextById, nextIndex);
+            nextById.put(merged.getId(), merged);
+            for (String k : merged.keys()) {
+                // IP anahtarı paylaşılabilir: ilk sahibinde kalır
+                if (k.startsWith("ip:")) nextIndex.putIfAbsent(k, merged.getId());
+                else nextIndex.put(k, merged.getId());
+            }
+            reassign(freedIps, nextById, nextIndex);
+            return new State(nextById, nextIndex);
+        }
+
+        /** ids’deki kayıtları ve anahtarlarını siler; sahipsiz kalan IP anahtarlarını döner. */
+        private static List<String> drop(Set<String> ids, Map<String, UnifiedDevice> nextById,
+                                         Map<String, String> nextIndex) {
+            List<String> freedIps = new ArrayList<>();
+            for (Iterator<Map.Entry<String, String>> it = nextIndex.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, String> e = it.next();
+                if (!ids.contains(e.getValue())) continue;
+                if (e.getKey().startsWith("ip:")) freedIps.add(e.getKey());
+                it.remove();
+            }
+            for (String id : ids) nextById.remove(id);
+            return freedIps;
+        }
+
+        /**
+         * Sahibi giden paylaşılan IP anahtarını o IP’yi hâlâ taşıyan başka bir kayda devreder;
+         * yoksa aynı IP’deki ikinci renderer artık IP ile eşleşmez olur.
+         */
+        private static void reassign(List<String> freedIps, Map<String, UnifiedDevice> nextById,
+                                     Map<String, String> nextIndex) {
+            if (freedIps.isEmpty()) return;
+            for (UnifiedDevice d : nextById.values()) {
+                for (String k : d.keys()) {
+                    if (freedIps.contains(k)) nextIndex.putIfAbsent(k, d.getId());
+                }
+            }
+        }
+    }
+
+    private static volatile TargetDeviceRegistry instance;
+
+    public static TargetDeviceRegistry get() {
+        TargetDeviceRegistry r = instance;
+        if (r == null) {
+            synchronized (TargetDeviceRegistry.class) {
+                if (instance == null) instance = new TargetDeviceRegistry();
+                r = instance;
+            }
+        }
+        return r;
+    }
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.EMPTY);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "minicast-devices");
+        t.setDaemon(true);
+        return t;
+    });
+    private State delivered = State.EMPTY; // yalnızca teslim thread’i
+
+    TargetDeviceRegistry() {}
+
+    /** Güncel birleşik liste (ada göre sıralı, değişmez); kilitsiz okuma. */
+    public List<UnifiedDevice> snapshot() { return state.get().list; }
+
+    /** Kaynaktan gelen cihazı ekler/günceller: CastDeviceWrapper, DlnaDevice veya ScannedDevice. */
+    public void put(TargetDevice src) {
+        if (src == null) return;
+        while (true) {
+            State cur = state.get();
+            State next = cur.with(src);
+            if (next == cur) return;
+            if (state.compareAndSet(cur, next)) break;
+        }
+        scheduleDelivery();
+    }
+
+    /** Kaynağın görünümünü siler; kaydın başka görünümü kalmadıysa kayıt da gider. */
+    public void remove(TargetDevice src) {
+        if (src == null) return;
+        while (true) {
+            State cur = state.get();
+            State next = cur.without(src);
+            if (next == cur) return;
+            if (state.compareAndSet(cur, next)) break;
+        }
+        scheduleDelivery();
+    }
+
+    /** Yeni dinleyici önce mevcut listeyi "added" olarak alır, sonra farkları. */
+    public void addListener(Listener l) {
+        delivery.execute(() -> {
+            if (!listeners.contains(l)) listeners.add(l);
+            if (!delivered.list.isEmpty()) {
+                notify(l, new Change(delivered.list, delivered.list,
+                        Collections.<UnifiedDevice>emptyList(), Collections.<UnifiedDevice>emptyList()));
+            }
+        });
+    }
+
+    /** Teslim sırasına da girer: henüz işlenmemiş bir addListener dinleyiciyi geri eklemesin. */
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+        delivery.execute(() -> listeners.remove(l));
+    }
+
+    /** DlnaDiscovery sonuçlarını kayda yazar, ardından (varsa) next’e iletir. */
+    public DlnaDiscovery.Listener feed(DlnaDiscovery.Listener next) {
+        return new DlnaDiscovery.Listener() {
+            @Override public void onDeviceFound(DlnaDevice device) {
+                put(device);
+                if (next != null) next.onDeviceFound(device);
+            }
+            @Override public void onDone() { if (next != null) next.onDone(); }
+            @Override public void onError(Exception e) { if (next != null) next.onError(e); }
+        };
+    }
+
+    /** SSDP NOTIFY listesini bağlar: alive/byebye ve max-age bitişi buraya yansır. */
+    public void attach(DlnaDeviceRegistry ssdp) {
+        ssdp.addListener(new DlnaDeviceRegistry.Listener() {
+            @Override public void onDeviceAdded(DlnaDevice device) { put(device); }
+
+            @Override public void onDeviceRemoved(DlnaDevice device) {
+                // put() yenilerken eskiyi "removed" bildirir: aynı USN’li cihaz hâlâ listedeyse silme
+                // (UUID anahtarına bakılmaz; gömülü cihazın UUID’i başka cihaza bağlı kalabilir)
+                String usn = device.getUsn();
+                if (usn != null) {
+                    for (DlnaDevice d : ssdp.snapshot()) {
+                        if (usn.equals(d.getUsn())) return;
+                    }
+                }
+                remove(device);
+            }
+        });
+        for (DlnaDevice d : ssdp.snapshot()) put(d);
+    }
+
+    private void scheduleDelivery() {
+        if (deliveryPending.compareAndSet(false, true)) delivery.execute(this::deliver);
+    }
+
+    /** Son teslim edilen durumla güncel durumun farkını tüm dinleyicilere verir. */
+    private void deliver() {
+        deliveryPending.set(false);
+        State cur = state.get();
+        if (cur == delivered) return;
+        List<UnifiedDevice> added = new ArrayList<>();
+        List<UnifiedDevice> updated = new ArrayList<>();
+        List<UnifiedDevice> removed = new ArrayList<>();
+        for (UnifiedDevice d : cur.list) {
+            UnifiedDevice old = delivered.byId.get(d.getId());
+            if (old == null) added.add(d);
+            else if (old != d) updated.add(d);
+        }
+        for (UnifiedDevice d : delivered.list) {
+            if (!cur.byId.containsKey(d.getId())) removed.add(d);
+        }
+        delivered = cur;
+        Change change = new Change(cur.list, added, updated, removed);
+        if (change.isEmpty()) return;
+        for (Listener l : listeners) notify(l, change);
+    }
+
+    private static void notify(Listener l, Change change) {
+        try {
+            l.onDevicesChanged(change);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "listener failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.minicast.devices;
+
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Aynı fiziksel cihazın tüm görünümleri tek kayıtta: Cast, DLNA (SSDP) ve IP taraması.
+ * Değişmezdir; bir kaynak değişince TargetDeviceRegistry yeni örnek üretir, id sabit kalır.
+ * Eşleştirme anahtarları: "udn:…", "cast:…", "ip:…".
+ */
+public final class UnifiedDevice implements TargetDevice {
+    private final String id;
+    private final CastDeviceWrapper cast;
+    private final DlnaDevice dlna;
+    private final ScannedDevice scanned;
+
+    private UnifiedDevice(String id, CastDeviceWrapper cast, DlnaDevice dlna, ScannedDevice scanned) {
+        this.id = id;
+        this.cast = cast;
+        this.dlna = dlna;
+        this.scanned = scanned;
+    }
+
+    /** Tek kaynaktan yeni kayıt; id kaynağın ilk anahtarıdır. */
+    static UnifiedDevice of(TargetDevice src) {
+        return of(src, keysOf(src).get(0));
+    }
+
+    static UnifiedDevice of(TargetDevice src, String id) {
+        return new UnifiedDevice(id, null, null, null).with(src);
+    }
+
+    /** Chromecast görünümü (selectRoute için); yoksa null. */
+    public CastDeviceWrapper getCast() { return cast; }
+    /** SSDP ile bulunan renderer (AVTransport/RenderingControl); yoksa null. */
+    public DlnaDevice getDlna() { return dlna; }
+    /** IP taramasıyla bulunan description; yoksa null. */
+    public ScannedDevice getScanned() { return scanned; }
+
+    /** Cihazın IPv4 adresi; hiçbir kaynak bildirmediyse null. */
+    public String getHost() {
+        if (dlna != null) return hostOf(dlna);
+        if (scanned != null) return scanned.getIp();
+        return cast != null ? hostOf(cast) : null;
+    }
+
+    /** Normalize UDN ("uuid:…", küçük harf); yalnızca DLNA görünümü varsa. */
+    public String getUdn() { return dlna != null ? udnOf(dlna) : null; }
+
+    @Override
+    public String getId() { return id; }
+
+    @Override
+    public String getName() {
+        // Renderer’ın friendlyName’i en açıklayıcısı; Cast adı çoğu zaman aynıdır
+        if (dlna != null && dlna.getFriendlyName() != null) return dlna.getFriendlyName();
+        if (cast != null) return cast.getName();
+        return scanned != null ? scanned.getName() : id;
+    }
+
+    /** Cast görünümü varsa CAST (oturum yönetimi daha zengin), değilse DLNA. */
+    @Override
+    public DeviceType getType() { return cast != null ? DeviceType.CAST : DeviceType.DLNA; }
+
+    @Override
+    public String toString() { return getName(); }
+
+    // --- Kayıt içi işlemler (TargetDeviceRegistry) ---
+
+    /** Kaynağı ilgili yuvaya yazar; değişiklik yoksa aynı örnek. */
+    UnifiedDevice with(TargetDevice src) {
+        if (src instanceof CastDeviceWrapper) {
+            CastDeviceWrapper c = (CastDeviceWrapper) src;
+            if (cast != null && cast.equals(c) && Objects.equals(cast.getName(), c.getName())
+                    && Objects.equals(hostOf(cast), hostOf(c))) return this;
+            return new UnifiedDevice(id, c, dlna, scanned);
+        }
+        if (src instanceof DlnaDevice) {
+            DlnaDevice d = (DlnaDevice) src;
+            if (dlna != null && sameDlna(dlna, d)) return this;
+            return new UnifiedDevice(id, cast, d, scanned);
+        }
+        if (src instanceof ScannedDevice) {
+            if (src.equals(scanned)) return this;
+            return new UnifiedDevice(id, cast, dlna, (ScannedDevice) src);
+        }
+        return this;
+    }
+
+    /** Kaynağı çıkarır; kayıt boşalırsa null, kaynak bu kayıtta değilse aynı örnek. */
+    UnifiedDevice without(TargetDevice src) {
+        if (!holds(src)) return this;
+        CastDeviceWrapper c = src instanceof CastDeviceWrapper ? null : cast;
+        DlnaDevice d = src instanceof DlnaDevice ? null : dlna;
+        ScannedDevice s = src instanceof ScannedDevice ? null : scanned;
+        if (c == null && d == null && s == null) return null;
+        return new UnifiedDevice(id, c, d, s);
+    }
+
+    /** İki kaydı birleştirir; çakışan yuvada bu kaydınki kalır. */
+    UnifiedDevice absorb(UnifiedDevice other) {
+        return new UnifiedDevice(id,
+                cast != null ? cast : other.cast,
+                dlna != null ? dlna : other.dlna,
+                scanned != null ? scanned : other.scanned);
+    }
+
+    /** Kaynağın aynı kimlikle (USN, deviceId, ip:port) bu kayıtta olup olmadığı. */
+    boolean holds(TargetDevice src) {
+        TargetDevice slot = src instanceof CastDeviceWrapper ? cast
+                : src instanceof DlnaDevice ? dlna
+                : src instanceof ScannedDevice ? scanned : null;
+        return slot != null && Objects.equals(slot.getId(), src.getId());
+    }
+
+    List<String> keys() {
+        List<String> keys = new ArrayList<>(4);
+        if (dlna != null) keys.addAll(keysOf(dlna));
+        if (cast != null) keys.addAll(keysOf(cast));
+        if (scanned != null) keys.addAll(keysOf(scanned));
+        return keys;
+    }
+
+    /** Kaynağın eşleştirme anahtarları, en ayırt ediciden başlayarak; boş olmaz. */
+    static List<String> keysOf(TargetDevice src) {
+        List<String> keys = new ArrayList<>(2);
+        String udn = udnOf(src);
+        if (udn != null) keys.add("udn:" + udn);
+        if (src instanceof CastDeviceWrapper) keys.add("cast:" + src.getId());
+        String host = hostOf(src);
+        if (host != null) keys.add("ip:" + host);
+        if (keys.isEmpty()) keys.add("id:" + src.getId());
+        return keys;
+    }
+
+    static String udnOf(TargetDevice src) {
+        if (!(src instanceof DlnaDevice)) return null;
+        String usn = ((DlnaDevice) src).getUsn();
+        if (usn == null || usn.isEmpty()) return null;
+        int sep = usn.indexOf("::");
+        return (sep >= 0 ? usn.substring(0, sep) : usn).trim().toLowerCase(Locale.US);
+    }
+
+    static String hostOf(TargetDevice src) {
+        if (src instanceof DlnaDevice) {
+            URL loc = ((DlnaDevice) src).getLocationUrl();
+            return loc != null && !loc.getHost().isEmpty() ? loc.getHost() : null;
+        }
+        if (src instanceof ScannedDevice) return ((ScannedDevice) src).getIp();
+        if (src instanceof CastDeviceWrapper) {
+            CastDeviceWrapper c = (CastDeviceWrapper) src;
+            InetAddress a = c.getDevice() != null ? c.getDevice().getInetAddress() : null;
+            return a != null ? a.getHostAddress() : null;
+        }
+        return null;
+    }
+
+    /** URL.equals DNS çözümlemesi yapar; karşılaştırma metin üzerinden. */
+    private static boolean sameDlna(DlnaDevice a, DlnaDevice b) {
+        return Objects.equals(a.getUsn(), b.getUsn())
+                && Objects.equals(a.getFriendlyName(), b.getFriendlyName())
+                && Objects.equals(String.valueOf(a.getLocationUrl()), String.valueOf(b.getLocationUrl()))
+                && Objects.equals(String.valueOf(a.getControlUrl()), String.valueOf(b.getControlUrl()))
+                && Objects.equals(a.getNetworkInterface(), b.getNetworkInterface());
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.minicast.devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GenaSubscriber’ı loopback’te çalışan sahte bir renderer’a karşı sınar: renderer SUBSCRIBE’a SID
+ * verir, test NOTIFY’ı (LastChange) callback adresine renderer gibi gönderir; yenileme ve reddedilen
+ * yenileme sonrası sıfırdan abonelik izlenir.
+ */
+public class GenaSubscriberTest {
+
+    private static final long WAIT_SEC = 5;
+
+    /** Renderer’ın aldığı istek: yöntem + başlıklar (küçük harf). */
+    private static final class Request {
+        final String method;
+        final Map<String, String> headers = new HashMap<>();
+
+        Request(String method) { this.method = method; }
+
+        String header(String name) { return headers.get(name); }
+    }
+
+    private HttpServer renderer;
+    private GenaSubscriber subscriber;
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Map<String, String>> changes = new LinkedBlockingQueue<>();
+    private final AtomicInteger nextSid = new AtomicInteger(1);
+    private final AtomicBoolean rejectRenewals = new AtomicBoolean();
+
+    @Before
+    public void setUp() throws IOException {
+        renderer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        renderer.createContext("/evt/avt", ex -> {
+            Request r = new Request(ex.getRequestMethod());
+            for (Map.Entry<String, List<String>> e : ex.getRequestHeaders().entrySet()) {
+                r.headers.put(e.getKey().toLowerCase(), e.getValue().get(0));
+            }
+            int status = 200;
+            if (r.method.equals("SUBSCRIBE")) {
+                if (r.header("callback") != null) {
+                    ex.getResponseHeaders().add("SID", "uuid:sub-" + nextSid.getAndIncrement());
+                } else if (rejectRenewals.get()) {
+                    status = 412;
+                } else {
+                    ex.getResponseHeaders().add("SID", r.header("sid"));
+                }
+                if (status == 200) ex.getResponseHeaders().add("TIMEOUT", "Second-1800");
+            }
+            requests.add(r);
+            ex.sendResponseHeaders(status, -1);
+            ex.close();
+        });
+        renderer.start();
+
+        String base = "http://127.0.0.1:" + renderer.getAddress().getPort();
+        DlnaService avt = new DlnaService("urn:schemas-upnp-org:service:AVTransport:1",
+                "urn:upnp-org:serviceId:AVTransport", new URL(base + "/ctl/avt"), new URL(base + "/evt/avt"), null);
+        DlnaDevice device = new DlnaDevice("uuid:tv::urn:schemas-upnp-org:device:MediaRenderer:1", "TV",
+                new URL(base + "/desc.xml"), avt.getControlUrl(), "urn:schemas-upnp-org:device:MediaRenderer:1",
+                Collections.singletonList(avt));
+        subscriber = new GenaSubscriber(device, new GenaSubscriber.Listener() {
+            @Override public void onStateChanged(DlnaDevice d, Map<String, String> changed) {
+                changes.add(changed);
+            }
+
+            @Override public void onSubscriptionLost(DlnaDevice d, String service) {}
+        });
+    }
+
+    @After
+    public void tearDown() {
+        subscriber.stop();
+        renderer.stop(0);
+    }
+
+    @Test
+    public void subscribesAndAppliesLastChange() throws Exception {
+        subscriber.start();
+        Request sub = take();
+        assertEquals("SUBSCRIBE", sub.method);
+        assertEquals("upnp:event", sub.header("nt"));
+        assertEquals("Second-1800", sub.header("timeout"));
+        URL callback = callback(sub);
+
+        // İlk olay tüm durumu taşır, sonrakiler yalnızca değişeni
+        assertEquals(200, notify(callback, "uuid:sub-1", 0, lastChange("TransportState", "PLAYING")
+                + lastChange("CurrentTrackURI", "http://media/1.mp4")));
+        Map<String, String> first = changes.poll(WAIT_SEC, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals("PLAYING", first.get("TransportState"));
+        assertEquals("http://media/1.mp4", first.get("CurrentTrackURI"));
+
+        assertEquals(200, notify(callback, "uuid:sub-1", 1, lastChange("TransportState", "PAUSED_PLAYBACK")));
+        assertEquals(Collections.singletonMap("TransportState", "PAUSED_PLAYBACK"),
+                changes.poll(WAIT_SEC, TimeUnit.SECONDS));
+        assertEquals("PAUSED_PLAYBACK", subscriber.getState().get("TransportState"));
+        assertEquals("http://media/1.mp4", subscriber.getState().get("CurrentTrackURI"));
+    }
+
+    @Test
+    public void renewsWithSidAndUnsubscribesOnStop() throws Exception {
+        subscriber.start();
+        URL callback = callback(take());
+
+        subscriber.renewNow();
+        Request renew = take();
+        assertEquals("SUBSCRIBE", renew.method);
+        assertEquals("uuid:sub-1", renew.header("sid"));
+        assertNull("renewal must not carry CALLBACK", renew.header("callback"));
+        assertNull(renew.header("nt"));
+
+        // Abonelik kurulduktan sonra yabancı SID reddedilir
+        assertEquals(412, notify(callback, "uuid:other", 0, lastChange("TransportState", "STOPPED")));
+        assertTrue(changes.isEmpty());
+
+        subscriber.stop();
+        assertFalse(subscriber.isRunning());
+        Request unsub = take();
+        assertEquals("UNSUBSCRIBE", unsub.method);
+        assertEquals("uuid:sub-1", unsub.header("sid"));
+    }
+
+    @Test
+    public void rejectedRenewalSubscribesAgain() throws Exception {
+        subscriber.start();
+        URL oldCallback = callback(take());
+        rejectRenewals.set(true);
+
+        subscriber.renewNow();
+        assertEquals("uuid:sub-1", take().header("sid")); // 412
+        Request unsub = take();
+        assertEquals("UNSUBSCRIBE", unsub.method);
+        assertEquals("uuid:sub-1", unsub.header("sid"));
+        Request fresh = take();
+        assertEquals("SUBSCRIBE", fresh.method);
+        URL callback = callback(fresh);
+        assertEquals(oldCallback, callback);
+
+        rejectRenewals.set(false);
+        subscriber.renewNow(); // yeni SID yerleşti mi: yenileme onunla gider
+        assertEquals("uuid:sub-2", take().header("sid"));
+        assertEquals(412, notify(callback, "uuid:sub-1", 1, lastChange("TransportState", "STOPPED")));
+        assertEquals(200, notify(callback, "uuid:sub-2", 0, lastChange("TransportState", "PLAYING")));
+        assertEquals("PLAYING", changes.poll(WAIT_SEC, TimeUnit.SECONDS).get("TransportState"));
+    }
+
+    @Test
+    public void seqGapSubscribesAgain() throws Exception {
+        subscriber.start();
+        URL callback = callback(take());
+        assertEquals(200, notify(callback, "uuid:sub-1", 0, lastChange("TransportState", "PLAYING")));
+        assertNotNull(changes.poll(WAIT_SEC, TimeUnit.SECONDS));
+
+        // SEQ 1 kaçtı: olay işlenmez, eski abonelik bırakılıp yenisi açılır
+        assertEquals(200, notify(callback, "uuid:sub-1", 2, lastChange("TransportState", "STOPPED")));
+        assertEquals("UNSUBSCRIBE", take().method);
+        Request fresh = take();
+        assertEquals("SUBSCRIBE", fresh.method);
+        assertNotNull(fresh.header("callback"));
+        assertEquals("PLAYING", subscriber.getState().get("TransportState"));
+    }
+
+    // --- yardımcılar ---
+
+    private Request take() throws InterruptedException {
+        Request r = requests.poll(WAIT_SEC, TimeUnit.SECONDS);
+        assertNotNull("renderer got no request", r);
+        return r;
+    }
+
+    /** "&lt;http://192.168.1.5:40123/gena/1&gt;" → URL. */
+    private static URL callback(Request sub) throws IOException {
+        String cb = sub.header("callback");
+        assertNotNull("SUBSCRIBE without CALLBACK", cb);
+        assertTrue(cb, cb.startsWith("<http://") && cb.endsWith(">"));
+        return new URL(cb.substring(1, cb.length() - 1));
+    }
+
+    /** AVTransport LastChange property’si (InstanceID 0). */
+    private static String lastChange(String variable, String value) {
+        String event = "<Event xmlns=\"urn:schemas-upnp-org:metadata-1-0/AVT/\"><InstanceID val=\"0\">"
+                + "<" + variable + " val=\"" + value + "\"/></InstanceID></Event>";
+        return "<e:property><LastChange>" + event.replace("&", "&amp;").replace("<", "&lt;")
+                .replace(">", "&gt;").replace("\"", "&quot;") + "</LastChange></e:property>";
+    }
+
+    /** Renderer gibi NOTIFY gönderir; HTTP durum kodunu döner. */
+    private static int notify(URL callback, String sid, long seq, String properties) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\"?><e:propertyset xmlns:e=\"urn:schemas-upnp-org:event-1-0\">"
+                + properties + "</e:propertyset>").getBytes(StandardCharsets.UTF_8);
+        String head = "NOTIFY " + callback.getFile() + " HTTP/1.1\r\n"
+                + "HOST: " + callback.getHost() + ":" + callback.getPort() + "\r\n"
+                + "CONTENT-TYPE: text/xml; charset=\"utf-8\"\r\n"
+                + "NT: upnp:event\r\nNTS: upnp:propchange\r\n"
+                + "SID: " + sid + "\r\nSEQ: " + seq + "\r\n"
+                + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+        try (Socket s = new Socket(callback.getHost(), callback.getPort())) {
+            s.setSoTimeout((int) TimeUnit.SECONDS.toMillis(WAIT_SEC));
+            OutputStream out = s.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body);
+            out.flush();
+            return HttpResponse.read(new BufferedInputStream(s.getInputStream()), false).status;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.minicast.devices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HlsRelay’i loopback’te çalışan sahte bir HLS kaynağına karşı sınar: kaynak yalnızca yakalanan
+ * Cookie ile yanıt verir; master → media playlist → init/anahtar/segment zinciri röleden izlenir.
+ */
+public class HlsRelayTest {
+
+    private static final int SEGMENTS = 10;
+    private static final int SEGMENT_BYTES = 256 * 1024;
+
+    private HttpServer origin;
+    private HlsRelay relay;
+    private String originBase;
+    private final AtomicInteger segmentFetches = new AtomicInteger();
+    private final AtomicInteger liveStart = new AtomicInteger(); // canlı pencerenin ilk segmenti
+
+    @Before
+    public void setUp() throws IOException {
+        origin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        origin.createContext("/", ex -> {
+            String path = ex.getRequestURI().getPath();
+            if (!"sid=1".equals(ex.getRequestHeaders().getFirst("Cookie"))) {
+                ex.sendResponseHeaders(403, -1);
+                ex.close();
+                return;
+            }
+            byte[] body;
+            String type = "application/vnd.apple.mpegurl";
+            if (path.equals("/hls/master.m3u8")) {
+                body = "#EXTM3U\n#EXT-X-STREAM-INF:BANDWIDTH=800000\nlow/index.m3u8?tok=abc\n"
+                        .getBytes(StandardCharsets.UTF_8);
+            } else if (path.equals("/live/index.m3u8")) {
+                StringBuilder sb = new StringBuilder("#EXTM3U\n#EXT-X-TARGETDURATION:4\n")
+                        .append("#EXT-X-MEDIA-SEQUENCE:").append(liveStart.get()).append('\n');
+                for (int i = liveStart.get(); i < liveStart.get() + 4; i++) sb.append("#EXTINF:4.0,\nseg").append(i).append(".ts\n");
+                body = sb.toString().getBytes(StandardCharsets.UTF_8);
+            } else if (path.equals("/hls/low/index.m3u8")) {
+                StringBuilder sb = new StringBuilder("#EXTM3U\n#EXT-X-TARGETDURATION:4\n")
+                        .append("#EXT-X-MAP:URI=\"init.mp4\"\n")
+                        .append("#EXT-X-KEY:METHOD=AES-128,URI=\"/keys/k1.key\"\n");
+                for (int i = 0; i < SEGMENTS; i++) sb.append("#EXTINF:4.0,\nseg").append(i).append(".ts?tok=abc\n");
+                body = sb.append("#EXT-X-ENDLIST\n").toString().getBytes(StandardCharsets.UTF_8);
+            } else {
+                if (path.endsWith(".ts")) segmentFetches.incrementAndGet();
+                body = segment(path);
+                type = "video/mp2t";
+            }
+            ex.getResponseHeaders().add("Content-Type", type);
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        origin.start();
+        originBase = "http://127.0.0.1:" + origin.getAddress().getPort();
+        relay = new HlsRelay(8L * 1024 * 1024, 3);
+    }
+
+    @After
+    public void tearDown() {
+        relay.stop();
+        origin.stop(0);
+    }
+
+    @Test
+    public void rewritesPlaylistsToRelayPaths() throws IOException {
+        String url = publish();
+        String master = get(url);
+        assertFalse(master, master.contains("tok=abc"));
+        assertTrue(master, master.contains("\n1.m3u8\n"));
+
+        String media = get(new URL(new URL(url), "1.m3u8").toString());
+        assertFalse(media, media.contains(originBase));
+        assertFalse(media, media.contains("tok=abc"));
+        assertTrue(media, media.matches("(?s).*#EXT-X-MAP:URI=\"\\d+\\.mp4\".*"));
+        assertTrue(media, media.matches("(?s).*#EXT-X-KEY:METHOD=AES-128,URI=\"\\d+\\.key\".*"));
+        assertEquals(SEGMENTS, segmentLines(media).size());
+        for (String line : segmentLines(media)) assertTrue(line, line.matches("\\d+\\.ts"));
+    }
+
+    @Test
+    public void servesSegmentsWithCapturedHeaders() throws IOException {
+        URL media = mediaUrl(publish());
+        String first = segmentLines(get(media.toString())).get(0);
+        HttpURLConnection c = (HttpURLConnection) new URL(media, first).openConnection();
+        assertEquals(200, c.getResponseCode());
+        assertArrayEquals(segment("/hls/low/seg0.ts"), read(c.getInputStream()));
+    }
+
+    @Test
+    public void answersRangeWith206() throws IOException {
+        URL media = mediaUrl(publish());
+        String fifth = segmentLines(get(media.toString())).get(5);
+        HttpURLConnection c = (HttpURLConnection) new URL(media, fifth).openConnection();
+        c.setRequestProperty("Range", "bytes=10-19");
+        assertEquals(206, c.getResponseCode());
+        assertEquals("bytes 10-19/" + SEGMENT_BYTES, c.getHeaderField("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(segment("/hls/low/seg5.ts"), 10, 20), read(c.getInputStream()));
+    }
+
+    @Test
+    public void unknownIdOrTokenIs404() throws IOException {
+        String url = publish();
+        assertEquals(404, status(url.replace("0.m3u8", "999.ts")));
+        assertEquals(404, status(url.replaceFirst("/r/[0-9a-f]+/", "/r/00/")));
+        relay.unpublish(url);
+        assertEquals(404, status(url));
+    }
+
+    @Test
+    public void secondClientIsServedFromCache() throws IOException {
+        URL media = mediaUrl(publish());
+        List<String> segments = segmentLines(get(media.toString()));
+        for (String s : segments) assertEquals(SEGMENT_BYTES, read(new URL(media, s).openStream()).length);
+        int originAfterFirst = segmentFetches.get();
+        long hitsAfterFirst = relay.getStats().hits;
+
+        for (String s : segments) assertEquals(SEGMENT_BYTES, read(new URL(media, s).openStream()).length);
+
+        assertEquals("second client must not reach the origin", originAfterFirst, segmentFetches.get());
+        assertEquals(hitsAfterFirst + SEGMENTS, relay.getStats().hits);
+        assertTrue(relay.getStats().hitRate() >= 0.5);
+    }
+
+    @Test
+    public void liveWindowForgetsSegmentsThatDroppedOut() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cookie", "sid=1");
+        String url = relay.publish(originBase + "/live/index.m3u8", headers, "127.0.0.1");
+        String oldest = segmentLines(get(url)).get(0);
+        String oldestUrl = new URL(new URL(url), oldest).toString();
+        assertEquals(200, status(oldestUrl));
+
+        // Bir yenileme sonra hâlâ çözülür (TV’nin elindeki eski playlist), ikincisinde unutulur
+        liveStart.addAndGet(4);
+        List<String> window = segmentLines(get(url));
+        assertFalse(window.contains(oldest));
+        assertEquals(200, status(oldestUrl));
+        liveStart.addAndGet(4);
+        window = segmentLines(get(url));
+        assertEquals(404, status(oldestUrl));
+        for (String s : window) assertEquals(200, status(new URL(new URL(url), s).toString()));
+        assertEquals(200, status(url));
+    }
+
+    // --- yardımcılar ---
+
+    private String publish() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cookie", "sid=1");
+        headers.put("Referer", "http://page.example/");
+        return relay.publish(originBase + "/hls/master.m3u8", headers, "127.0.0.1");
+    }
+
+    private static URL mediaUrl(String relayUrl) throws IOException {
+        String master = get(relayUrl);
+        return new URL(new URL(relayUrl), segmentLines(master).get(0));
+    }
+
+    private static List<String> segmentLines(String playlist) {
+        List<String> out = new ArrayList<>();
+        for (String line : playlist.split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) out.add(line);
+        }
+        return out;
+    }
+
+    /** Yola göre belirlenimci içerik; yanıtlar baytı baytına karşılaştırılabilir. */
+    private static byte[] segment(String path) {
+        byte[] b = new byte[SEGMENT_BYTES];
+        for (int i = 0; i < b.length; i++) b[i] = (byte) (i * 31 + path.hashCode());
+        return b;
+    }
+
+    private static int status(String url) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            return c.getResponseCode();
+        } finally {
+            c.disconnect();
+        }
+    }
+
+    private static String get(String url) throws IOException {
+        return new String(read(new URL(url).openStream()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream s = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[16 * 1024];
+            int r;
+            while ((r = s.read(buf)) > 0) out.write(buf, 0, r);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.minicast.devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SsdpPacket’in eski String + split tabanlı ayrıştırmaya göre doğruluğu ve allocation kazancı.
+ * Girdi: test kaynaklarındaki datagramlar (ssdp/datagrams.txt), döngüde tekrar tekrar işlenir;
+ * NOTIFY yolu (bilinen cihazın tekrarı) ve M-SEARCH yanıt yolu (görülmüş kümesi) ayrı ölçülür.
+ * Hız karşılaştırması (fasterThanLegacy) yalnızca -Dminicast.benchmark=true verilince çalışır.
+ */
+public class SsdpPacketBenchmarkTest {
+
+    // Allocation kontrolü deterministik: kısa döngü yeter
+    private static final int ALLOC_WARMUP = 10_000;
+    private static final int ALLOC_ROUNDS = 100_000;
+    // Zamanlama karşılaştırması yalnızca -Dminicast.benchmark=true ile
+    private static final boolean BENCHMARK = Boolean.getBoolean("minicast.benchmark");
+    private static final int BENCH_WARMUP = 200_000;
+    private static final int BENCH_ROUNDS = 1_000_000;
+
+    private static List<byte[]> datagrams;
+    private static byte[][] packets; // ölçülen döngüler için: List iteratörü JIT’ten önce allocation yapar
+
+    @BeforeClass
+    public static void load() throws IOException {
+        String text;
+        try (InputStream in = SsdpPacketBenchmarkTest.class.getClassLoader()
+                .getResourceAsStream("ssdp/datagrams.txt")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int r;
+            while ((r = in.read(buf)) > 0) out.write(buf, 0, r);
+            text = out.toString("UTF-8");
+        }
+        datagrams = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        for (String line : text.split("\n")) {
+            if (line.startsWith("#")) continue;
+            if (line.equals("----")) {
+                datagrams.add(cur.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+                cur.setLength(0);
+            } else {
+                cur.append(line.trim()).append("\r\n");
+            }
+        }
+        if (cur.length() > 0) datagrams.add(cur.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+        packets = datagrams.toArray(new byte[0][]);
+    }
+
+    /** Yeni ayrıştırıcı eski headerValue ile aynı değerleri ve UUID özetini vermeli. */
+    @Test
+    public void parsesSameValuesAsLegacy() {
+        SsdpPacket pkt = new SsdpPacket();
+        for (byte[] d : datagrams) {
+            pkt.parse(d, 0, d.length);
+            String msg = new String(d, StandardCharsets.UTF_8);
+            assertEquals(legacyHeaderValue(msg, "location"), pkt.string(SsdpPacket.LOCATION));
+            assertEquals(legacyHeaderValue(msg, "usn"), pkt.string(SsdpPacket.USN));
+            assertEquals(legacyHeaderValue(msg, "st"), pkt.string(SsdpPacket.ST));
+            String usn = pkt.string(SsdpPacket.USN);
+            if (usn != null) {
+                assertEquals(SsdpPacket.hash(SsdpNotifyListener.uuidOf(usn)), pkt.uuidHash());
+            }
+        }
+    }
+
+    /** ssdp:all’a kök/cihaz/servis USN’leriyle gelen yanıtlar tek cihaz (uuid + LOCATION) sayılır. */
+    @Test
+    public void deviceKeyIgnoresUsnSuffix() {
+        SsdpPacket pkt = new SsdpPacket();
+        LongHashSet keys = new LongHashSet(16);
+        Set<String> devices = new HashSet<>();
+        for (byte[] d : datagrams) {
+            pkt.parse(d, 0, d.length);
+            if (!pkt.has(SsdpPacket.LOCATION)) continue;
+            String usn = pkt.string(SsdpPacket.USN);
+            boolean newKey = keys.add(DlnaDiscovery.deviceKey(pkt));
+            boolean newDevice = devices.add(SsdpNotifyListener.uuidOf(usn) + "|" + pkt.string(SsdpPacket.LOCATION));
+            assertEquals(usn, newDevice, newKey);
+        }
+        assertEquals(5, devices.size());
+    }
+
+    @Test
+    public void notifyPathAllocatesNothingForKnownDevices() throws Exception {
+        assumeTrue(allocationCounterAvailable());
+        Pass[] p = notifyPasses();
+        Result legacy = measure(p[0], ALLOC_WARMUP, ALLOC_ROUNDS);
+        Result current = measure(p[1], ALLOC_WARMUP, ALLOC_ROUNDS);
+
+        assertEquals(legacy.checksum, current.checksum);
+        assertTrue("known-device NOTIFY should not allocate: " + current.bytesPerPacket,
+                current.bytesPerPacket < 1);
+        assertTrue(legacy.bytesPerPacket > 1_000);
+    }
+
+    @Test
+    public void searchResponsePathAllocatesNothingForRepeats() {
+        assumeTrue(allocationCounterAvailable());
+        Pass[] p = searchPasses();
+        Result legacy = measure(p[0], ALLOC_WARMUP, ALLOC_ROUNDS);
+        Result current = measure(p[1], ALLOC_WARMUP, ALLOC_ROUNDS);
+
+        assertTrue("repeated responses should not allocate: " + current.bytesPerPacket,
+                current.bytesPerPacket < 1);
+        assertTrue(legacy.bytesPerPacket > 1_000);
+    }
+
+    /**
+     * Duvar saati karşılaştırması; CI’da güvenilmez ve yavaş olduğundan yalnızca istenince çalışır:
+     * ./gradlew test -Dminicast.benchmark=true --tests '*SsdpPacketBenchmarkTest'
+     */
+    @Test
+    public void fasterThanLegacy() throws Exception {
+        assumeTrue(BENCHMARK);
+        Pass[][] paths = {notifyPasses(), searchPasses()};
+        String[] names = {"NOTIFY", "M-SEARCH"};
+        for (int i = 0; i < paths.length; i++) {
+            Result legacy = measure(paths[i][0], BENCH_WARMUP, BENCH_ROUNDS);
+            Result current = measure(paths[i][1], BENCH_WARMUP, BENCH_ROUNDS);
+            assertTrue(String.format(Locale.US, "%s: legacy %.0f ns/packet, SsdpPacket %.0f ns/packet",
+                            names[i], legacy.nanosPerPacket, current.nanosPerPacket),
+                    current.nanosPerPacket < legacy.nanosPerPacket);
+        }
+    }
+
+    // --- karşılaştırılan yollar: [0] eski, [1] yeni ---
+
+    /** Bilinen cihazın tekrarlanan NOTIFY’ı; eski yol String + headerValue x4 + uuidOf + String anahtarlı kayıt. */
+    private static Pass[] notifyPasses() throws Exception {
+        Map<String, String> legacyRegistry = new HashMap<>();
+        DlnaDeviceRegistry registry = new DlnaDeviceRegistry();
+        SsdpPacket pkt = new SsdpPacket();
+        for (byte[] d : datagrams) {
+            pkt.parse(d, 0, d.length);
+            if (!pkt.isNotify() || !pkt.has(SsdpPacket.LOCATION)) continue;
+            String uuid = SsdpNotifyListener.uuidOf(pkt.string(SsdpPacket.USN));
+            String location = pkt.string(SsdpPacket.LOCATION);
+            legacyRegistry.put(uuid, location);
+            registry.put(uuid, new DlnaDevice(uuid, null, new URL(location), null), 1_800_000);
+        }
+
+        Pass legacy = () -> {
+            int touched = 0;
+            for (byte[] d : packets) {
+                String msg = new String(d, 0, d.length);
+                if (!msg.regionMatches(true, 0, "NOTIFY", 0, 6)) continue;
+                String nts = legacyHeaderValue(msg, "nts");
+                String usn = legacyHeaderValue(msg, "usn");
+                if (nts == null || usn == null || !nts.equalsIgnoreCase("ssdp:alive")) continue;
+                String location = legacyHeaderValue(msg, "location");
+                legacyHeaderValue(msg, "cache-control");
+                String known = legacyRegistry.get(SsdpNotifyListener.uuidOf(usn));
+                if (known != null && known.equals(location)) touched++;
+            }
+            return touched;
+        };
+        Pass current = () -> {
+            int touched = 0;
+            for (byte[] d : packets) {
+                pkt.parse(d, 0, d.length);
+                if (!pkt.isNotify() || !pkt.valueEqualsIgnoreCase(SsdpPacket.NTS, "ssdp:alive")) continue;
+                long maxAge = pkt.maxAgeSeconds(DlnaDiscovery.DEFAULT_MAX_AGE_SEC) * 1000L;
+                if (registry.touch(pkt.uuidHash(), pkt.hash(SsdpPacket.LOCATION), maxAge)) touched++;
+            }
+            return touched;
+        };
+        return new Pass[] {legacy, current};
+    }
+
+    /** Görülmüş M-SEARCH yanıtlarının tekrarı; eski yol String kümeleri. */
+    private static Pass[] searchPasses() {
+        Set<String> seenLocation = new HashSet<>();
+        Set<String> seenUsn = new HashSet<>();
+        Pass legacy = () -> {
+            int fresh = 0;
+            for (byte[] d : packets) {
+                String msg = new String(d, 0, d.length);
+                String location = legacyHeaderValue(msg, "location");
+                String usn = legacyHeaderValue(msg, "usn");
+                legacyHeaderValue(msg, "st");
+                if (location == null) continue;
+                boolean firstTime = seenLocation.add(location);
+                if (usn != null) firstTime = seenUsn.add(usn) || firstTime;
+                if (firstTime) fresh++;
+            }
+            return fresh;
+        };
+
+        LongHashSet seen = new LongHashSet(64);
+        SsdpPacket pkt = new SsdpPacket();
+        Pass current = () -> {
+            int fresh = 0;
+            for (byte[] d : packets) {
+                pkt.parse(d, 0, d.length);
+                pkt.has(SsdpPacket.ST);
+                if (!pkt.has(SsdpPacket.LOCATION)) continue;
+                if (seen.add(DlnaDiscovery.deviceKey(pkt))) fresh++;
+            }
+            return fresh;
+        };
+        return new Pass[] {legacy, current};
+    }
+
+    // --- ölçüm ---
+
+    private interface Pass {
+        /** Tüm datagramları bir kez işler; sonucu (optimizasyona karşı) döner. */
+        int run();
+    }
+
+    private static final class Result {
+        double nanosPerPacket;
+        double bytesPerPacket;
+        long checksum;
+    }
+
+    private static Result measure(Pass pass, int warmup, int rounds) {
+        long checksum = 0;
+        for (int i = 0; i < warmup / datagrams.size(); i++) checksum += pass.run();
+
+        int passes = rounds / datagrams.size();
+        long bytes0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        checksum = 0;
+        for (int i = 0; i < passes; i++) checksum += pass.run();
+        long nanos = System.nanoTime() - t0;
+        long bytes = allocatedBytes() - bytes0;
+
+        Result r = new Result();
+        long packets = (long) passes * datagrams.size();
+        r.nanosPerPacket = (double) nanos / packets;
+        r.bytesPerPacket = (double) bytes / packets;
+        r.checksum = checksum;
+        return r;
+    }
+
+    private static boolean allocationCounterAvailable() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && allocatedBytes() >= 0;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** user-009 öncesi DlnaDiscovery.headerValue (karşılaştırma tabanı). */
+    private static String legacyHeaderValue(String raw, String keyLower) {
+        if (raw == null) return null;
+        String[] lines = raw.split("\r?\n");
+        for (String line : lines) {
+            int i = line.indexOf(':');
+            if (i > 0) {
+                String k = line.substring(0, i).trim().toLowerCase(Locale.US);
+                if (k.equals(keyLower)) return line.substring(i + 1).trim();
+            }
+        }
+        return null;
+    }
+}